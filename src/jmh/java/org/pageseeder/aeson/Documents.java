@@ -0,0 +1,188 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Generates synthetic Aeson documents for the benchmarks.
+ *
+ * <p>Each shape stresses a different part of the serializer; the documents are deterministic
+ * so that results can be compared across releases.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class Documents {
+
+  /**
+   * The shapes of documents available to the benchmarks.
+   */
+  public enum Shape {
+
+    /** A single chain of nested elements. */
+    DEEP,
+
+    /** Objects with many attributes. */
+    WIDE,
+
+    /** A large array of small records. */
+    ARRAY,
+
+    /** A few very long text values. */
+    TEXT,
+
+    /** Records with heavy use of number and boolean types. */
+    TYPED
+  }
+
+  /** Utility class. */
+  private Documents() {
+  }
+
+  /**
+   * Returns the XML for the specified shape as UTF-8.
+   *
+   * @param shape The shape of document to generate.
+   * @return the corresponding XML document
+   */
+  public static byte[] toXML(Shape shape) {
+    StringBuilder xml = new StringBuilder();
+    xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    switch (shape) {
+      case DEEP:
+        deep(xml, 1000);
+        break;
+      case WIDE:
+        wide(xml, 500, 40);
+        break;
+      case ARRAY:
+        array(xml, 50000);
+        break;
+      case TEXT:
+        text(xml, 8, 256*1024);
+        break;
+      case TYPED:
+        typed(xml, 20000);
+        break;
+      default:
+    }
+    return xml.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @param xml   Receives the XML
+   * @param depth The nesting depth
+   */
+  private static void deep(StringBuilder xml, int depth) {
+    for (int i = 0; i < depth; i++) {
+      xml.append("<level depth=\"").append(i).append("\" label=\"Level ").append(i).append("\">");
+    }
+    for (int i = 0; i < depth; i++) {
+      xml.append("</level>");
+    }
+  }
+
+  /**
+   * @param xml        Receives the XML
+   * @param objects    The number of objects
+   * @param attributes The number of attributes on each object
+   */
+  private static void wide(StringBuilder xml, int objects, int attributes) {
+    xml.append("<root>");
+    for (int i = 0; i < objects; i++) {
+      xml.append("<item").append(i);
+      for (int j = 0; j < attributes; j++) {
+        xml.append(" key").append(j).append("=\"value ").append(i).append('-').append(j).append('"');
+      }
+      xml.append("/>");
+    }
+    xml.append("</root>");
+  }
+
+  /**
+   * @param xml   Receives the XML
+   * @param items The number of items in the array
+   */
+  private static void array(StringBuilder xml, int items) {
+    xml.append("<json:array xmlns:json=\"").append(JSONSerializer.NS_URI).append("\">");
+    for (int i = 0; i < items; i++) {
+      xml.append("<item id=\"").append(i).append("\" name=\"Item #").append(i).append("\" status=\"ok\"/>");
+    }
+    xml.append("</json:array>");
+  }
+
+  /**
+   * @param xml    Receives the XML
+   * @param values The number of text values
+   * @param length The number of characters in each value
+   */
+  private static void text(StringBuilder xml, int values, int length) {
+    xml.append("<root xmlns:json=\"").append(JSONSerializer.NS_URI).append("\" json:string=\"body\">");
+    for (int i = 0; i < values; i++) {
+      xml.append("<json:object json:name=\"doc").append(i).append("\"><body>");
+      for (int j = 0; j < length; j++) {
+        // Mostly ASCII with the occasional character to escape or encode
+        int k = j % 64;
+        if (k == 62) xml.append("&quot;");
+        else if (k == 63) xml.append('é');
+        else xml.append((char)('A' + (k % 26)));
+      }
+      xml.append("</body></json:object>");
+    }
+    xml.append("</root>");
+  }
+
+  /**
+   * @param xml     Receives the XML
+   * @param records The number of typed records
+   */
+  private static void typed(StringBuilder xml, int records) {
+    xml.append("<json:array xmlns:json=\"").append(JSONSerializer.NS_URI).append("\">");
+    for (int i = 0; i < records; i++) {
+      xml.append("<record json:number=\"id price qty\" json:boolean=\"active\"");
+      xml.append(" id=\"").append(i).append('"');
+      xml.append(" price=\"").append(i % 1000).append('.').append(i % 100).append('"');
+      xml.append(" qty=\"").append(i % 50).append('"');
+      xml.append(" active=\"").append(i % 3 == 0).append('"');
+      xml.append(" code=\"C").append(i).append("\"/>");
+    }
+    xml.append("</json:array>");
+  }
+
+  /**
+   * An output stream discarding all bytes but keeping count.
+   */
+  static final class CountingOutputStream extends OutputStream {
+
+    /** Number of bytes written so far. */
+    long count = 0;
+
+    @Override
+    public void write(int b) throws IOException {
+      this.count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      this.count += len;
+    }
+
+  }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * A recorded sequence of SAX events which can be replayed onto any content handler.
+ *
+ * <p>Replaying events excludes the cost of XML parsing so that the serializer can be measured
+ * on its own.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+final class SAXEvents {
+
+  /** Kinds of events. */
+  private static final int START = 0, END = 1, TEXT = 2;
+
+  /** The kind of each event. */
+  private final int[] kinds;
+
+  /** Namespace URI of elements (start and end only). */
+  private final String[] uris;
+
+  /** Local name of elements (start and end only). */
+  private final String[] names;
+
+  /** Attributes of elements (start only). */
+  private final Attributes[] atts;
+
+  /** Text content (characters only). */
+  private final char[][] text;
+
+  /**
+   * @param events The list of events as recorded.
+   */
+  private SAXEvents(List<Object[]> events) {
+    int size = events.size();
+    this.kinds = new int[size];
+    this.uris = new String[size];
+    this.names = new String[size];
+    this.atts = new Attributes[size];
+    this.text = new char[size][];
+    for (int i = 0; i < size; i++) {
+      Object[] e = events.get(i);
+      this.kinds[i] = (Integer)e[0];
+      this.uris[i] = (String)e[1];
+      this.names[i] = (String)e[2];
+      this.atts[i] = (Attributes)e[3];
+      this.text[i] = (char[])e[4];
+    }
+  }
+
+  /**
+   * @return the number of recorded events.
+   */
+  public int size() {
+    return this.kinds.length;
+  }
+
+  /**
+   * Replays the recorded events onto the specified handler as a complete document.
+   *
+   * @param handler The handler receiving the events
+   *
+   * @throws SAXException If thrown by the handler
+   */
+  public void replay(ContentHandler handler) throws SAXException {
+    handler.startDocument();
+    final int size = this.kinds.length;
+    for (int i = 0; i < size; i++) {
+      switch (this.kinds[i]) {
+        case START:
+          handler.startElement(this.uris[i], this.names[i], this.names[i], this.atts[i]);
+          break;
+        case END:
+          handler.endElement(this.uris[i], this.names[i], this.names[i]);
+          break;
+        default:
+          handler.characters(this.text[i], 0, this.text[i].length);
+      }
+    }
+    handler.endDocument();
+  }
+
+  /**
+   * Records the events generated by parsing the specified XML.
+   *
+   * @param xml The XML to parse
+   * @return The recorded events
+   *
+   * @throws Exception If the XML could not be parsed
+   */
+  public static SAXEvents record(byte[] xml) throws Exception {
+    SAXParserFactory factory = SAXParserFactory.newInstance();
+    factory.setNamespaceAware(true);
+    final List<Object[]> events = new ArrayList<Object[]>();
+    factory.newSAXParser().parse(new ByteArrayInputStream(xml), new DefaultHandler() {
+      @Override
+      public void startElement(String uri, String localName, String qName, Attributes atts) {
+        events.add(new Object[]{START, uri, localName, new AttributesImpl(atts), null});
+      }
+      @Override
+      public void endElement(String uri, String localName, String qName) {
+        events.add(new Object[]{END, uri, localName, null, null});
+      }
+      @Override
+      public void characters(char[] ch, int start, int length) {
+        char[] copy = new char[length];
+        System.arraycopy(ch, start, copy, 0, length);
+        events.add(new Object[]{TEXT, null, null, null, copy});
+      }
+    });
+    return new SAXEvents(events);
+  }
+
+}
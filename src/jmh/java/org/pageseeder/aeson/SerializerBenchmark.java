@@ -0,0 +1,81 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pageseeder.aeson.Documents.CountingOutputStream;
+import org.pageseeder.aeson.Documents.Shape;
+
+/**
+ * Measures the serializer alone by replaying pre-recorded SAX events.
+ *
+ * <p>Run with <code>-prof gc</code> to report allocation rates.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializerBenchmark {
+
+  /**
+   * The shape of document to serialize.
+   */
+  @Param({"DEEP", "WIDE", "ARRAY", "TEXT", "TYPED"})
+  public Shape shape;
+
+  /**
+   * The recorded events for the document.
+   */
+  private SAXEvents events;
+
+  @Setup
+  public void setup() throws Exception {
+    this.events = SAXEvents.record(Documents.toXML(this.shape));
+  }
+
+  @Benchmark
+  public long toOutputStream() throws Exception {
+    CountingOutputStream out = new CountingOutputStream();
+    this.events.replay(new JSONSerializer(out));
+    return out.count;
+  }
+
+  @Benchmark
+  public int toWriter() throws Exception {
+    StringWriter writer = new StringWriter();
+    this.events.replay(new JSONSerializer(writer));
+    return writer.getBuffer().length();
+  }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pageseeder.aeson.Documents.CountingOutputStream;
+import org.pageseeder.aeson.Documents.Shape;
+import org.xml.sax.InputSource;
+
+/**
+ * Measures the conversion of XML files to JSON as done by <code>Main</code>: through an
+ * identity transform into a <code>JSONResult</code>, as when a stylesheet is specified, and
+ * parsed directly into the serializer with <code>Aeson.convert</code> otherwise.
+ *
+ * <p>Run with <code>-prof gc</code> to report allocation rates.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransformBenchmark {
+
+  /**
+   * The shape of document to convert.
+   */
+  @Param({"DEEP", "WIDE", "ARRAY", "TEXT", "TYPED"})
+  public Shape shape;
+
+  /**
+   * The XML source as UTF-8.
+   */
+  private byte[] xml;
+
+  /**
+   * An identity transformer configured like the one in <code>Main</code>.
+   */
+  private Transformer transformer;
+
+  @Setup
+  public void setup() throws Exception {
+    this.xml = Documents.toXML(this.shape);
+    this.transformer = TransformerFactory.newInstance().newTransformer();
+    this.transformer.setOutputProperty("method", "xml");
+    this.transformer.setOutputProperty("media-type", "application/json");
+  }
+
+  @Benchmark
+  public long identity() throws Exception {
+    CountingOutputStream out = new CountingOutputStream();
+    Result result = JSONResult.newInstanceIfSupported(this.transformer, new StreamResult(out));
+    this.transformer.transform(new StreamSource(new ByteArrayInputStream(this.xml)), result);
+    return out.count;
+  }
+
+  @Benchmark
+  public long direct() throws Exception {
+    CountingOutputStream out = new CountingOutputStream();
+    Aeson.convert(new InputSource(new ByteArrayInputStream(this.xml)), out);
+    return out.count;
+  }
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Converts Aeson XML to JSON by parsing it directly into the serializer.
+ *
+ * <p>Use this class when no transformation is required: it avoids the overhead of an identity
+ * transformer.
+ *
+ * <p>XML readers and serializers are pooled, so that they are reused whether conversions run
+ * on a few platform threads or each on its own virtual thread.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class Aeson {
+
+  /**
+   * Namespace-aware SAX parser factory (not thread-safe).
+   */
+  private static final SAXParserFactory FACTORY = SAXParserFactory.newInstance();
+  static {
+    FACTORY.setNamespaceAware(true);
+  }
+
+  /**
+   * The idle XML readers.
+   */
+  private static final BlockingQueue<XMLReader> READERS = new ArrayBlockingQueue<XMLReader>(SerializerPool.DEFAULT_CAPACITY);
+
+  /**
+   * Handler set on idle XML readers, so that they do not retain the serializer.
+   */
+  private static final DefaultHandler NO_HANDLER = new DefaultHandler();
+
+  /** Utility class. */
+  private Aeson() {
+  }
+
+  /**
+   * Converts the Aeson XML from the specified byte stream to JSON.
+   *
+   * <p>The output stream is closed once the document has been converted.
+   *
+   * @param in  The XML to parse
+   * @param out Receives the JSON as UTF-8
+   *
+   * @throws IOException  If an I/O error occurs while reading or writing.
+   * @throws SAXException If the XML could not be parsed.
+   */
+  public static void convert(InputStream in, OutputStream out) throws IOException, SAXException {
+    convert(new InputSource(in), out);
+  }
+
+  /**
+   * Converts the specified Aeson XML file to a JSON file.
+   *
+   * <p>The target file is only replaced once the JSON is complete.
+   *
+   * @param source The XML file to parse
+   * @param target The JSON file to write
+   *
+   * @throws IOException  If an I/O error occurs while reading or writing.
+   * @throws SAXException If the XML could not be parsed.
+   */
+  public static void convert(File source, File target) throws IOException, SAXException {
+    convert(source, target, null);
+  }
+
+  /**
+   * Converts the specified Aeson XML file to a JSON file using the specified options.
+   *
+   * <p>If the options specify compression, the file is compressed.
+   *
+   * @param source  The XML file to parse
+   * @param target  The JSON file to write
+   * @param options The options for the serializer (may be <code>null</code>)
+   *
+   * @throws IOException  If an I/O error occurs while reading or writing.
+   * @throws SAXException If the XML could not be parsed.
+   */
+  static void convert(File source, File target, AesonBatch.Options options) throws IOException, SAXException {
+    InputStream in = new FileInputStream(source);
+    try {
+      String encoding = options != null? options.getCompression() : null;
+      AtomicFileOutputStream out = new AtomicFileOutputStream(target, encoding != null? 0 : source.length());
+      CompressedOutputStream compressed = null;
+      try {
+        if (encoding != null) {
+          compressed = new CompressedOutputStream(out, encoding, options.getCompressionLevel());
+        }
+        InputSource input = new InputSource(source.toURI().toString());
+        input.setByteStream(in);
+        convert(input, compressed != null? compressed : out, options);
+        out.close();
+      } finally {
+        // No effect once the file is complete
+        if (compressed != null) compressed.discard();
+        out.discard();
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Converts the Aeson XML from the specified input source to JSON.
+   *
+   * <p>The output stream is closed once the document has been converted.
+   *
+   * @param source The XML to parse
+   * @param out    Receives the JSON as UTF-8
+   *
+   * @throws IOException  If an I/O error occurs while reading or writing.
+   * @throws SAXException If the XML could not be parsed.
+   */
+  public static void convert(InputSource source, OutputStream out) throws IOException, SAXException {
+    convert(source, out, null);
+  }
+
+  /**
+   * Converts the Aeson XML from the specified input source to JSON using the specified options.
+   *
+   * @param source  The XML to parse
+   * @param out     Receives the JSON as UTF-8
+   * @param options The options for the serializer (may be <code>null</code>)
+   *
+   * @throws IOException  If an I/O error occurs while reading or writing.
+   * @throws SAXException If the XML could not be parsed.
+   */
+  static void convert(InputSource source, OutputStream out, AesonBatch.Options options) throws IOException, SAXException {
+    JSONSerializer serializer = SerializerPool.SHARED.acquire(out);
+    try {
+      if (options != null) options.configure(serializer);
+      parse(source, serializer);
+    } finally {
+      SerializerPool.SHARED.release(serializer);
+    }
+  }
+
+  /**
+   * Parses the Aeson XML from the specified input source into the serializer.
+   *
+   * @param source     The XML to parse
+   * @param serializer The serializer receiving the XML events
+   *
+   * @throws IOException  If an I/O error occurs while reading or writing.
+   * @throws SAXException If the XML could not be parsed.
+   */
+  static void parse(InputSource source, JSONSerializer serializer) throws IOException, SAXException {
+    XMLReader reader = READERS.poll();
+    if (reader == null) reader = newReader();
+    reader.setContentHandler(serializer);
+    reader.setErrorHandler(serializer);
+    try {
+      reader.parse(source);
+    } finally {
+      reader.setContentHandler(NO_HANDLER);
+      reader.setErrorHandler(NO_HANDLER);
+      READERS.offer(reader);
+    }
+  }
+
+  /**
+   * @return a new namespace-aware XML reader.
+   */
+  private static XMLReader newReader() {
+    try {
+      synchronized (FACTORY) {
+        return FACTORY.newSAXParser().getXMLReader();
+      }
+    } catch (ParserConfigurationException ex) {
+      throw new IllegalStateException(ex);
+    } catch (SAXException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+}
@@ -0,0 +1,464 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+
+/**
+ * Converts all the files in a directory concurrently.
+ *
+ * <p>On Java 21 or later, each file is converted on its own virtual thread so that blocking
+ * I/O, for example in URI resolvers, does not hold platform threads; the number of concurrent
+ * conversions is limited by the concurrency option. On earlier versions, files are converted
+ * by a fixed pool of threads.
+ *
+ * <p>Files are converted as by the command-line: when a stylesheet is specified, the name of
+ * each output file depends on the output properties of the stylesheet.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class AesonBatch {
+
+  /** Utility class. */
+  private AesonBatch() {
+  }
+
+  /**
+   * Converts all the files in the source directory into the output directory.
+   *
+   * <p>Errors are reported in the result of each file without interrupting the other
+   * conversions.
+   *
+   * @param sourceDir The directory containing the files to convert
+   * @param outDir    The directory receiving the converted files, created if necessary
+   * @param options   The options for the conversions
+   *
+   * @return the result for each file in the order of file names.
+   *
+   * @throws IOException          If the source directory cannot be read or the output
+   *                              directory cannot be created
+   * @throws InterruptedException If interrupted while waiting for the conversions to complete
+   */
+  public static List<FileResult> convertAll(Path sourceDir, Path outDir, final Options options)
+      throws IOException, InterruptedException {
+    final File output = Files.createDirectories(outDir).toFile();
+    final Templates templates = options.templates;
+    final int concurrency = options.concurrency;
+    final BlockingQueue<Transformer> transformers = new ArrayBlockingQueue<Transformer>(concurrency);
+    final Semaphore permits = new Semaphore(concurrency);
+
+    // List the files first, so that results are in a predictable order
+    List<Path> files = new ArrayList<Path>();
+    DirectoryStream<Path> stream = Files.newDirectoryStream(sourceDir);
+    try {
+      for (Path p : stream) {
+        if (Files.isRegularFile(p)) files.add(p);
+      }
+    } finally {
+      stream.close();
+    }
+    Collections.sort(files);
+
+    ExecutorService executor = newExecutor(concurrency, options.virtualThreads);
+    List<Future<FileResult>> futures = new ArrayList<Future<FileResult>>(files.size());
+    try {
+      for (final Path f : files) {
+        permits.acquire();
+        futures.add(executor.submit(new Callable<FileResult>() {
+          @Override
+          public FileResult call() {
+            long start = System.nanoTime();
+            Transformer transformer = null;
+            try {
+              if (templates != null) transformer = acquire(transformers, templates);
+              File target = Main.convertFile(f.toFile(), output, transformer, options);
+              return new FileResult(f, target.toPath(), System.nanoTime() - start, null);
+            } catch (Exception ex) {
+              return new FileResult(f, null, System.nanoTime() - start, ex);
+            } finally {
+              if (transformer != null) release(transformers, transformer);
+              permits.release();
+            }
+          }
+        }));
+      }
+    } finally {
+      executor.shutdown();
+    }
+    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+    // Collect the results
+    List<FileResult> results = new ArrayList<FileResult>(futures.size());
+    for (Future<FileResult> future : futures) {
+      try {
+        results.add(future.get());
+      } catch (ExecutionException ex) {
+        // Conversions catch their own exceptions
+        throw new IllegalStateException(ex.getCause());
+      }
+    }
+    return results;
+  }
+
+  // Private helpers
+  // ---------------------------------------------------------------------------------------------
+
+  /**
+   * Returns an executor starting a virtual thread for each task if requested and supported
+   * (Java 21), or a fixed pool of threads otherwise.
+   *
+   * @param threads The number of threads of the fixed pool
+   * @param virtual Whether to use virtual threads if supported
+   *
+   * @return the executor to use
+   */
+  static ExecutorService newExecutor(int threads, boolean virtual) {
+    if (virtual) {
+      try {
+        return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      } catch (ReflectiveOperationException ex) {
+        // Not supported before Java 21 (preview in Java 19 and 20)
+      }
+    }
+    return Executors.newFixedThreadPool(threads);
+  }
+
+  /**
+   * Returns an idle transformer or a new one.
+   */
+  private static Transformer acquire(BlockingQueue<Transformer> idle, Templates templates)
+      throws TransformerConfigurationException {
+    Transformer transformer = idle.poll();
+    return transformer != null? transformer : templates.newTransformer();
+  }
+
+  /**
+   * Resets the transformer and returns it to the idle transformers.
+   */
+  private static void release(BlockingQueue<Transformer> idle, Transformer transformer) {
+    transformer.reset();
+    idle.offer(transformer);
+  }
+
+  // Inner classes
+  // ---------------------------------------------------------------------------------------------
+
+  /**
+   * The options for a batch of conversions.
+   */
+  public static final class Options {
+
+    /**
+     * The compiled stylesheet (may be <code>null</code> to parse files directly).
+     */
+    private Templates templates = null;
+
+    /**
+     * The maximum number of concurrent conversions.
+     */
+    private int concurrency = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Whether to use virtual threads if supported.
+     */
+    private boolean virtualThreads = true;
+
+    /**
+     * The statistics to update (may be <code>null</code>).
+     */
+    private SerializerStats stats = null;
+
+    /**
+     * The mapping declaring the types of properties by path (may be <code>null</code>).
+     */
+    private AesonMapping mapping = null;
+
+    /**
+     * The projection selecting the values to serialize (may be <code>null</code>).
+     */
+    private AesonProjection projection = null;
+
+    /**
+     * The limits on what the serializer accepts for each document (may be <code>null</code>).
+     */
+    private SerializerLimits limits = null;
+
+    /**
+     * Whether to normalize the values of properties typed as numbers.
+     */
+    private boolean normalizeNumbers = true;
+
+    /**
+     * The content coding to compress output files (may be <code>null</code>).
+     */
+    private String compression = null;
+
+    /**
+     * The compression level.
+     */
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * Sets the stylesheet used to transform the files.
+     *
+     * <p>If not specified, files are parsed directly into JSON.
+     *
+     * @param templates The compiled stylesheet (may be <code>null</code>)
+     */
+    public void setTemplates(Templates templates) {
+      this.templates = templates;
+    }
+
+    /**
+     * Sets the maximum number of files converted concurrently.
+     *
+     * <p>Defaults to the number of available processors.
+     *
+     * @param concurrency A positive number of conversions
+     *
+     * @throws IllegalArgumentException If the number is not positive
+     */
+    public void setConcurrency(int concurrency) {
+      if (concurrency < 1) throw new IllegalArgumentException("Concurrency must be positive: "+concurrency);
+      this.concurrency = concurrency;
+    }
+
+    /**
+     * Sets whether to convert each file on its own virtual thread when running on Java 21 or
+     * later.
+     *
+     * <p>Enabled by default; when disabled or not supported, a fixed pool of threads is used.
+     *
+     * @param virtual <code>true</code> to use virtual threads; <code>false</code> otherwise.
+     */
+    public void setVirtualThreads(boolean virtual) {
+      this.virtualThreads = virtual;
+    }
+
+    /**
+     * Sets the statistics updated by the conversions.
+     *
+     * @param stats The statistics to update (may be <code>null</code>)
+     */
+    public void setStats(SerializerStats stats) {
+      this.stats = stats;
+    }
+
+    /**
+     * Sets the mapping declaring the types of properties by path.
+     *
+     * @param mapping The mapping (may be <code>null</code>)
+     */
+    public void setMapping(AesonMapping mapping) {
+      this.mapping = mapping;
+    }
+
+    /**
+     * Sets the projection selecting the values to serialize.
+     *
+     * @param projection The projection (may be <code>null</code> to serialize everything)
+     */
+    public void setProjection(AesonProjection projection) {
+      this.projection = projection;
+    }
+
+    /**
+     * Sets the limits on what the serializer accepts for each document.
+     *
+     * <p>A file exceeding a limit fails with a {@link LimitExceededException}.
+     *
+     * @param limits The limits (may be <code>null</code> for no limits)
+     */
+    public void setLimits(SerializerLimits limits) {
+      this.limits = limits;
+    }
+
+    /**
+     * Sets whether to normalize the values of properties typed as numbers.
+     *
+     * <p>Enabled by default; when disabled, values which are not valid JSON numbers are
+     * written as strings with a warning.
+     *
+     * @param normalize <code>true</code> to normalize numbers; <code>false</code> otherwise.
+     *
+     * @see JSONSerializer#setNormalizeNumbers(boolean)
+     */
+    public void setNormalizeNumbers(boolean normalize) {
+      this.normalizeNumbers = normalize;
+    }
+
+    /**
+     * Sets the content coding used to compress the output files.
+     *
+     * <p>Compressed files are named after the coding: <code>.gz</code> for gzip and
+     * <code>.zz</code> for deflate. Only the output of the serializer is compressed.
+     *
+     * @param encoding {@link JSONResult#GZIP_ENCODING}, {@link JSONResult#DEFLATE_ENCODING}
+     *                 or <code>null</code> for no compression
+     *
+     * @throws IllegalArgumentException If the coding is not supported
+     */
+    public void setCompression(String encoding) {
+      if (encoding != null) CompressedOutputStream.check(encoding, this.compressionLevel);
+      this.compression = encoding;
+    }
+
+    /**
+     * Sets the compression level, from 1 (fastest) to 9 (smallest), 0 for no compression or
+     * -1 for the default level.
+     *
+     * @param level The compression level
+     *
+     * @throws IllegalArgumentException If the level is not valid
+     */
+    public void setCompressionLevel(int level) {
+      CompressedOutputStream.check(JSONResult.GZIP_ENCODING, level);
+      this.compressionLevel = level;
+    }
+
+    /**
+     * @return the content coding to compress output files or <code>null</code>.
+     */
+    String getCompression() {
+      return this.compression;
+    }
+
+    /**
+     * @return the compression level.
+     */
+    int getCompressionLevel() {
+      return this.compressionLevel;
+    }
+
+    /**
+     * Applies the options for the serializer.
+     *
+     * @param serializer The serializer to configure
+     */
+    void configure(JSONSerializer serializer) {
+      serializer.setStats(this.stats);
+      serializer.setMapping(this.mapping);
+      serializer.setProjection(this.projection);
+      serializer.setLimits(this.limits);
+      serializer.setNormalizeNumbers(this.normalizeNumbers);
+    }
+
+  }
+
+  /**
+   * The result of the conversion of a file.
+   */
+  public static final class FileResult {
+
+    /**
+     * The source file.
+     */
+    private final Path source;
+
+    /**
+     * The output file (<code>null</code> if the conversion failed).
+     */
+    private final Path target;
+
+    /**
+     * The time taken by the conversion in nanoseconds.
+     */
+    private final long nanos;
+
+    /**
+     * The error which caused the conversion to fail (may be <code>null</code>).
+     */
+    private final Exception error;
+
+    /**
+     * Creates a new result.
+     */
+    FileResult(Path source, Path target, long nanos, Exception error) {
+      this.source = source;
+      this.target = target;
+      this.nanos = nanos;
+      this.error = error;
+    }
+
+    /**
+     * @return the source file.
+     */
+    public Path getSource() {
+      return this.source;
+    }
+
+    /**
+     * @return the output file or <code>null</code> if the conversion failed.
+     */
+    public Path getTarget() {
+      return this.target;
+    }
+
+    /**
+     * Returns the time taken by the conversion.
+     *
+     * @param unit The unit of time
+     *
+     * @return the time in the specified unit.
+     */
+    public long getTime(TimeUnit unit) {
+      return unit.convert(this.nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the error which caused the conversion to fail or <code>null</code>.
+     */
+    public Exception getError() {
+      return this.error;
+    }
+
+    /**
+     * @return <code>true</code> if the file was converted; <code>false</code> otherwise.
+     */
+    public boolean isSuccessful() {
+      return this.error == null;
+    }
+
+    @Override
+    public String toString() {
+      return this.source.getFileName()+(this.error == null? " -> "+this.target.getFileName() : " failed: "+this.error.getMessage())
+          +" ("+getTime(TimeUnit.MILLISECONDS)+" ms)";
+    }
+  }
+
+}
@@ -0,0 +1,473 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.pageseeder.aeson.JSONState.JSONType;
+
+/**
+ * Declares the types of properties by path, so that documents do not need to declare them
+ * with <code>json:*</code> attributes.
+ *
+ * <p>A mapping is made from properties using the type as key and a whitespace separated list
+ * of patterns as value, in the same way as the <code>json:*</code> attributes:
+ *
+ * <pre>
+ * number  = /catalog/product/price quantity product/@id
+ * boolean = @available
+ * </pre>
+ *
+ * <p>Patterns are made of element names or <code>*</code> separated by <code>/</code>,
+ * optionally followed by an attribute <code>@name</code> or <code>@*</code>. A pattern starting
+ * with <code>/</code> matches from the document element, other patterns match at any depth;
+ * so an attribute of the document element is matched by <code>/root/@name</code>, not
+ * <code>/@name</code>.
+ * Elements in the JSON namespace are matched using the <code>json</code> prefix, for example
+ * <code>json:array/price</code>.
+ *
+ * <p>When several patterns match, the one with the most steps wins, then patterns starting
+ * with <code>/</code>, then patterns ending with a name rather than <code>*</code>. Types
+ * declared in the document with <code>json:*</code> attributes take precedence over the
+ * mapping.
+ *
+ * <p>Patterns are compiled into an automaton which the serializer advances for each element,
+ * so that the cost of resolving types does not depend on the number of patterns. States are
+ * made as they are needed and shared; mappings are thread-safe.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class AesonMapping {
+
+  /**
+   * Maximum number of transitions cached for each state.
+   */
+  private static final int MAX_TRANSITIONS = 1024;
+
+  /**
+   * The patterns.
+   */
+  private final Pattern[] patterns;
+
+  /**
+   * The states by set of items, so that equivalent states are shared.
+   */
+  private final Map<Items, State> states = new HashMap<Items, State>();
+
+  /**
+   * The initial state before the document element.
+   */
+  private final State start;
+
+  /**
+   * Creates a new mapping from the specified patterns.
+   *
+   * @param patterns The patterns
+   */
+  private AesonMapping(List<Pattern> patterns) {
+    this.patterns = patterns.toArray(new Pattern[patterns.size()]);
+    int[] items = new int[this.patterns.length];
+    int n = 0;
+    for (int p = 0; p < this.patterns.length; p++) {
+      items[n++] = Items.item(p, 0);
+    }
+    this.start = state(new Items(items, n));
+  }
+
+  /**
+   * Makes a mapping from properties mapping each type to a list of patterns.
+   *
+   * <p>Keys must be <code>string</code>, <code>number</code>, <code>boolean</code> or
+   * <code>null</code>.
+   *
+   * @param properties The types and patterns
+   *
+   * @return the corresponding mapping
+   *
+   * @throws IllegalArgumentException If a type or pattern is invalid
+   */
+  public static AesonMapping compile(Properties properties) {
+    List<Pattern> patterns = new ArrayList<Pattern>();
+    for (String key : properties.stringPropertyNames()) {
+      JSONType type = toType(key.trim());
+      for (String pattern : properties.getProperty(key).trim().split("\\s+")) {
+        if (pattern.length() > 0) patterns.add(Pattern.parse(pattern, type));
+      }
+    }
+    return new AesonMapping(patterns);
+  }
+
+  /**
+   * Loads a mapping from a properties file.
+   *
+   * <p>Files ending with <code>.xml</code> are loaded using the XML format for properties.
+   *
+   * @param file The file to load
+   *
+   * @return the corresponding mapping
+   *
+   * @throws IOException If the file could not be read
+   * @throws IllegalArgumentException If a type or pattern is invalid
+   */
+  public static AesonMapping load(File file) throws IOException {
+    Properties properties = new Properties();
+    InputStream in = new FileInputStream(file);
+    try {
+      if (file.getName().endsWith(".xml")) {
+        properties.loadFromXML(in);
+      } else {
+        properties.load(in);
+      }
+    } finally {
+      in.close();
+    }
+    return compile(properties);
+  }
+
+  /**
+   * @return the initial state before the document element.
+   */
+  State start() {
+    return this.start;
+  }
+
+  /**
+   * Returns the state for the specified items, made if necessary.
+   *
+   * @param items The items of the state
+   *
+   * @return the shared state
+   */
+  private synchronized State state(Items items) {
+    State state = this.states.get(items);
+    if (state == null) {
+      state = new State(this, items);
+      this.states.put(items, state);
+    }
+    return state;
+  }
+
+  /**
+   * Returns the type for the specified key.
+   */
+  private static JSONType toType(String key) {
+    if ("string".equals(key)) return JSONType.STRING;
+    if ("number".equals(key)) return JSONType.NUMBER;
+    if ("boolean".equals(key)) return JSONType.BOOLEAN;
+    if ("null".equals(key)) return JSONType.NULL;
+    throw new IllegalArgumentException("Unknown type: "+key);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(this.patterns);
+  }
+
+  // Inner classes
+  // ---------------------------------------------------------------------------------------------
+
+  /**
+   * A state of the automaton, that is an element in the document.
+   *
+   * <p>A state knows the types of the properties of its element: its attributes and its child
+   * elements.
+   */
+  static final class State {
+
+    /**
+     * The mapping this state belongs to.
+     */
+    private final AesonMapping mapping;
+
+    /**
+     * The items of this state.
+     */
+    private final Items items;
+
+    /**
+     * Patterns for child elements by name (<code>*</code> for any name).
+     */
+    private final Map<String, Pattern> elements;
+
+    /**
+     * Patterns for attributes by name (<code>*</code> for any name).
+     */
+    private final Map<String, Pattern> attributes;
+
+    /**
+     * The next states by element name.
+     */
+    private final Map<String, State> next = new ConcurrentHashMap<String, State>();
+
+    /**
+     * Makes a new state.
+     *
+     * @param mapping The mapping this state belongs to
+     * @param items   The items of this state
+     */
+    State(AesonMapping mapping, Items items) {
+      this.mapping = mapping;
+      this.items = items;
+      Map<String, Pattern> elements = new HashMap<String, Pattern>();
+      Map<String, Pattern> attributes = new HashMap<String, Pattern>();
+      for (int k = 0; k < items.size; k++) {
+        Pattern pattern = mapping.patterns[Items.pattern(items.items[k])];
+        int step = Items.step(items.items[k]);
+        if (pattern.attribute == null && step == pattern.steps.length - 1) {
+          put(elements, pattern.steps[step], pattern);
+        } else if (pattern.attribute != null && step == pattern.steps.length) {
+          put(attributes, pattern.attribute, pattern);
+        }
+      }
+      this.elements = elements.isEmpty()? Collections.<String, Pattern>emptyMap() : elements;
+      this.attributes = attributes.isEmpty()? Collections.<String, Pattern>emptyMap() : attributes;
+    }
+
+    /**
+     * Returns the state for the child element with the specified name.
+     *
+     * @param name The name of the element
+     *
+     * @return the next state
+     */
+    State next(String name) {
+      State state = this.next.get(name);
+      if (state == null) {
+        state = this.mapping.state(this.items.next(this.mapping, name));
+        if (this.next.size() < MAX_TRANSITIONS) this.next.put(name, state);
+      }
+      return state;
+    }
+
+    /**
+     * Returns the type of the child elements with the specified name.
+     *
+     * @param name The name of the element
+     *
+     * @return the type or {@link JSONType#DEFAULT} if not mapped.
+     */
+    JSONType getElementType(String name) {
+      return type(this.elements, name);
+    }
+
+    /**
+     * Returns the type of the attributes with the specified name.
+     *
+     * @param name The name of the attribute
+     *
+     * @return the type or {@link JSONType#DEFAULT} if not mapped.
+     */
+    JSONType getAttributeType(String name) {
+      return type(this.attributes, name);
+    }
+
+    /**
+     * Returns the type of the best pattern matching the name.
+     */
+    private static JSONType type(Map<String, Pattern> patterns, String name) {
+      if (patterns.isEmpty()) return JSONType.DEFAULT;
+      Pattern named = patterns.get(name);
+      Pattern any = patterns.get("*");
+      Pattern best = named == null? any : any == null || named.compareTo(any) >= 0? named : any;
+      return best != null? best.type : JSONType.DEFAULT;
+    }
+
+    /**
+     * Maps the name to the pattern unless a better pattern is already mapped.
+     */
+    private static void put(Map<String, Pattern> patterns, String name, Pattern pattern) {
+      Pattern current = patterns.get(name);
+      if (current == null || pattern.compareTo(current) > 0) patterns.put(name, pattern);
+    }
+  }
+
+  /**
+   * A sorted set of items of the automaton, each item is a pattern and the number of its steps
+   * matched so far.
+   */
+  static final class Items {
+
+    /** The encoded items. */
+    private final int[] items;
+
+    /** The number of items. */
+    private final int size;
+
+    /** Precomputed hash code. */
+    private final int hash;
+
+    /**
+     * @param items The encoded items in ascending order
+     * @param size  The number of items
+     */
+    Items(int[] items, int size) {
+      this.items = items;
+      this.size = size;
+      int h = 1;
+      for (int i = 0; i < size; i++) h = 31*h + items[i];
+      this.hash = h;
+    }
+
+    /**
+     * Returns the items after the specified element.
+     *
+     * <p>Patterns which match at any depth are always included from their first step.
+     */
+    Items next(AesonMapping mapping, String name) {
+      Pattern[] patterns = mapping.patterns;
+      int[] next = new int[this.size + patterns.length];
+      int n = 0;
+      for (int k = 0; k < this.size; k++) {
+        int p = pattern(this.items[k]);
+        int step = step(this.items[k]);
+        String[] steps = patterns[p].steps;
+        if (step < steps.length && ("*".equals(steps[step]) || steps[step].equals(name))) {
+          next[n++] = item(p, step + 1);
+        }
+      }
+      for (int p = 0; p < patterns.length; p++) {
+        if (!patterns[p].anchored) next[n++] = item(p, 0);
+      }
+      Arrays.sort(next, 0, n);
+      // Remove duplicates
+      int size = 0;
+      for (int i = 0; i < n; i++) {
+        if (size == 0 || next[size-1] != next[i]) next[size++] = next[i];
+      }
+      return new Items(next, size);
+    }
+
+    /** @return the item for the specified pattern and step. */
+    static int item(int pattern, int step) {
+      return pattern << 16 | step;
+    }
+
+    /** @return the index of the pattern of the item. */
+    static int pattern(int item) {
+      return item >>> 16;
+    }
+
+    /** @return the number of steps matched by the item. */
+    static int step(int item) {
+      return item & 0xFFFF;
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Items)) return false;
+      Items other = (Items)o;
+      if (this.size != other.size) return false;
+      for (int i = 0; i < this.size; i++) {
+        if (this.items[i] != other.items[i]) return false;
+      }
+      return true;
+    }
+  }
+
+  /**
+   * A compiled pattern.
+   */
+  private static final class Pattern implements Comparable<Pattern> {
+
+    /** The source of the pattern. */
+    private final String source;
+
+    /** The element names or '*'. */
+    private final String[] steps;
+
+    /** The name of the attribute or '*' (<code>null</code> for an element). */
+    private final String attribute;
+
+    /** Whether the pattern matches from the document element. */
+    private final boolean anchored;
+
+    /** The type of the properties matching the pattern. */
+    private final JSONType type;
+
+    private Pattern(String source, String[] steps, String attribute, boolean anchored, JSONType type) {
+      this.source = source;
+      this.steps = steps;
+      this.attribute = attribute;
+      this.anchored = anchored;
+      this.type = type;
+    }
+
+    /**
+     * Parses the specified pattern.
+     *
+     * @throws IllegalArgumentException If the pattern is invalid
+     */
+    static Pattern parse(String source, JSONType type) {
+      boolean anchored = source.startsWith("/");
+      String path = anchored? source.substring(1) : source;
+      String attribute = null;
+      int at = path.lastIndexOf('@');
+      if (at >= 0) {
+        if (at > 0 && path.charAt(at-1) != '/')
+          throw new IllegalArgumentException("Invalid pattern: "+source);
+        attribute = path.substring(at+1);
+        path = at > 0? path.substring(0, at-1) : "";
+        if (attribute.length() == 0 || attribute.indexOf('/') >= 0)
+          throw new IllegalArgumentException("Invalid pattern: "+source);
+      }
+      String[] steps = path.length() > 0? path.split("/", -1) : new String[0];
+      for (String step : steps) {
+        if (step.length() == 0 || step.indexOf('@') >= 0)
+          throw new IllegalArgumentException("Invalid pattern: "+source);
+      }
+      // An anchored pattern needs an element for its attribute: '/@id' would never match
+      if (steps.length == 0 && (attribute == null || anchored))
+        throw new IllegalArgumentException("Invalid pattern: "+source);
+      return new Pattern(source, steps, attribute, anchored, type);
+    }
+
+    /**
+     * Compares patterns by number of steps, then anchored first, then names before '*'.
+     */
+    @Override
+    public int compareTo(Pattern o) {
+      if (this.steps.length != o.steps.length) return this.steps.length < o.steps.length? -1 : 1;
+      if (this.anchored != o.anchored) return this.anchored? 1 : -1;
+      boolean any = "*".equals(this.attribute != null? this.attribute : this.steps[this.steps.length-1]);
+      boolean oany = "*".equals(o.attribute != null? o.attribute : o.steps[o.steps.length-1]);
+      if (any != oany) return any? -1 : 1;
+      return this.source.compareTo(o.source);
+    }
+
+    @Override
+    public String toString() {
+      return this.source+"="+this.type.name().toLowerCase();
+    }
+  }
+
+}
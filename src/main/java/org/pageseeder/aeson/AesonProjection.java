@@ -0,0 +1,359 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Selects the parts of the JSON output to keep using JSON Pointers (RFC 6901).
+ *
+ * <p>Pointers refer to the JSON produced by the serializer: properties by name, whether they
+ * come from attributes or elements, and array items by index. A step can also be
+ * <code>*</code> to match any name or index.
+ *
+ * <p>If there are included pointers, only the values they point to are kept along with the
+ * objects and arrays containing them; otherwise everything is kept. The values excluded
+ * pointers point to are always removed.
+ *
+ * <pre>
+ * include: /products/*&#47;id /products/*&#47;price
+ * exclude: /products/*&#47;price/history
+ * </pre>
+ *
+ * <p>The serializer evaluates the pointers as elements start, so that removed values are
+ * skipped without being processed at all. As a consequence, an object or array matching the
+ * start of an included pointer is kept even if none of its descendants match the rest of it.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class AesonProjection {
+
+  /**
+   * The steps of each pointer.
+   */
+  private final String[][] steps;
+
+  /**
+   * The steps of each pointer as array indexes (-1 if the step is not an index).
+   */
+  private final int[][] indexes;
+
+  /**
+   * Whether each pointer excludes values.
+   */
+  private final boolean[] excluded;
+
+  /**
+   * Whether there is at least one included pointer.
+   */
+  private final boolean includes;
+
+  /**
+   * The sources of the pointers.
+   */
+  private final String source;
+
+  /**
+   * Creates a new projection.
+   */
+  private AesonProjection(List<String[]> steps, boolean[] excluded, String source) {
+    int count = steps.size();
+    this.steps = steps.toArray(new String[count][]);
+    this.indexes = new int[count][];
+    boolean includes = false;
+    for (int p = 0; p < count; p++) {
+      this.indexes[p] = new int[this.steps[p].length];
+      for (int s = 0; s < this.steps[p].length; s++) {
+        this.indexes[p][s] = toIndex(this.steps[p][s]);
+      }
+      if (!excluded[p]) includes = true;
+    }
+    this.excluded = excluded;
+    this.includes = includes;
+    this.source = source;
+  }
+
+  /**
+   * Makes a projection from the specified pointers.
+   *
+   * @param includes The pointers to the values to keep (may be empty to keep everything)
+   * @param excludes The pointers to the values to remove (may be empty)
+   *
+   * @return the corresponding projection
+   *
+   * @throws IllegalArgumentException If a pointer is invalid
+   */
+  public static AesonProjection compile(Collection<String> includes, Collection<String> excludes) {
+    List<String[]> steps = new ArrayList<String[]>(includes.size() + excludes.size());
+    boolean[] excluded = new boolean[includes.size() + excludes.size()];
+    for (String pointer : includes) {
+      steps.add(parse(pointer));
+    }
+    for (String pointer : excludes) {
+      excluded[steps.size()] = true;
+      steps.add(parse(pointer));
+    }
+    return new AesonProjection(steps, excluded, "include="+includes+" exclude="+excludes);
+  }
+
+  /**
+   * @return a new matcher to evaluate this projection on a document.
+   */
+  Matcher newMatcher() {
+    return new Matcher(this);
+  }
+
+  @Override
+  public String toString() {
+    return this.source;
+  }
+
+  /**
+   * Returns the steps of the specified pointer.
+   *
+   * @throws IllegalArgumentException If the pointer is invalid
+   */
+  private static String[] parse(String pointer) {
+    if (!pointer.startsWith("/") || pointer.length() == 1)
+      throw new IllegalArgumentException("Invalid pointer: "+pointer);
+    String[] steps = pointer.substring(1).split("/", -1);
+    for (int i = 0; i < steps.length; i++) {
+      String step = steps[i];
+      int tilde = step.indexOf('~');
+      while (tilde >= 0) {
+        char c = tilde+1 < step.length()? step.charAt(tilde+1) : 0;
+        if (c != '0' && c != '1') throw new IllegalArgumentException("Invalid pointer: "+pointer);
+        step = step.substring(0, tilde) + (c == '0'? '~' : '/') + step.substring(tilde+2);
+        tilde = step.indexOf('~', tilde+1);
+      }
+      steps[i] = step;
+    }
+    return steps;
+  }
+
+  /**
+   * Returns the array index corresponding to the step.
+   *
+   * @return the index or -1 if the step is not an index
+   */
+  private static int toIndex(String step) {
+    if (step.length() == 0 || step.length() > 9 || (step.charAt(0) == '0' && step.length() > 1)) return -1;
+    for (int i = 0; i < step.length(); i++) {
+      if (step.charAt(i) < '0' || step.charAt(i) > '9') return -1;
+    }
+    return Integer.parseInt(step);
+  }
+
+  // Inner classes
+  // ---------------------------------------------------------------------------------------------
+
+  /**
+   * Evaluates the projection as the elements of a document start and end.
+   *
+   * <p>For each element, the matcher keeps the pointers which can still match its descendants
+   * and how many steps of each they have matched, so that each element is only compared to
+   * these pointers.
+   *
+   * <p>This class is not thread-safe.
+   */
+  static final class Matcher {
+
+    /**
+     * The projection.
+     */
+    private final AesonProjection projection;
+
+    /**
+     * The pointers which may match for each element, each item is a pointer and the number of
+     * its steps matched so far.
+     */
+    private int[] items;
+
+    /**
+     * The number of items.
+     */
+    private int size = 0;
+
+    /**
+     * The index of the first item of each element.
+     */
+    private int[] starts = new int[8];
+
+    /**
+     * Whether the whole element is kept, except for excluded values.
+     */
+    private boolean[] included = new boolean[8];
+
+    /**
+     * The number of children of each element so far, for array indexes.
+     */
+    private int[] children = new int[8];
+
+    /**
+     * The number of elements.
+     */
+    private int depth = 0;
+
+    /**
+     * @param projection The projection to evaluate
+     */
+    Matcher(AesonProjection projection) {
+      this.projection = projection;
+      this.items = new int[projection.steps.length * 4];
+    }
+
+    /**
+     * Discards the state left from a previous document.
+     */
+    void reset() {
+      this.size = 0;
+      this.depth = 0;
+    }
+
+    /**
+     * Evaluates the projection for an element starting and keeps track of it if it must be
+     * serialized.
+     *
+     * <p>The document element is always kept.
+     *
+     * @param name    The name of the property for the element
+     * @param indexed Whether the element is an array item, identified by index rather than name
+     *
+     * @return <code>true</code> if the element must be serialized;
+     *         <code>false</code> if the element and its descendants must be skipped.
+     */
+    boolean push(String name, boolean indexed) {
+      if (this.depth == 0) {
+        // Document element
+        boolean included = !this.projection.includes;
+        for (int p = 0; p < this.projection.steps.length; p++) {
+          if (!included || this.projection.excluded[p]) add(p << 16);
+        }
+        push(0, included);
+        return true;
+      }
+      final int parent = this.depth - 1;
+      final int from = this.starts[parent];
+      final int to = this.size;
+      final int index = indexed? this.children[parent]++ : -1;
+      final int start = this.size;
+      boolean included = this.included[parent];
+      boolean partial = false;
+      for (int k = from; k < to; k++) {
+        int item = this.items[k];
+        int p = item >>> 16;
+        int s = item & 0xFFFF;
+        if (matches(p, s, name, index)) {
+          if (s + 1 == this.projection.steps[p].length) {
+            if (this.projection.excluded[p]) {
+              this.size = start;
+              return false;
+            }
+            included = true;
+          } else {
+            add(item + 1);
+            if (!this.projection.excluded[p]) partial = true;
+          }
+        }
+      }
+      if (!included && !partial) {
+        this.size = start;
+        return false;
+      }
+      if (included) {
+        // Only excluded pointers matter in an included element
+        int n = start;
+        for (int k = start; k < this.size; k++) {
+          if (this.projection.excluded[this.items[k] >>> 16]) this.items[n++] = this.items[k];
+        }
+        this.size = n;
+      }
+      push(start, included);
+      return true;
+    }
+
+    /**
+     * Returns to the parent element.
+     */
+    void pop() {
+      this.depth--;
+      this.size = this.starts[this.depth];
+    }
+
+    /**
+     * Indicates whether the specified attribute of the current element must be serialized.
+     *
+     * @param name The name of the attribute
+     *
+     * @return <code>true</code> if the attribute must be serialized;
+     *         <code>false</code> otherwise.
+     */
+    boolean accepts(String name) {
+      final int current = this.depth - 1;
+      final int from = this.starts[current];
+      boolean included = this.included[current];
+      for (int k = from; k < this.size; k++) {
+        int p = this.items[k] >>> 16;
+        int s = this.items[k] & 0xFFFF;
+        if (s + 1 == this.projection.steps[p].length && matches(p, s, name, -1)) {
+          if (this.projection.excluded[p]) return false;
+          included = true;
+        }
+      }
+      return included;
+    }
+
+    /**
+     * Indicates whether the step of the pointer matches the name or index.
+     */
+    private boolean matches(int p, int s, String name, int index) {
+      if (index >= 0) return this.projection.indexes[p][s] == index || "*".equals(this.projection.steps[p][s]);
+      String step = this.projection.steps[p][s];
+      return "*".equals(step) || step.equals(name);
+    }
+
+    /**
+     * Adds an item to the current element.
+     */
+    private void add(int item) {
+      if (this.size == this.items.length) {
+        this.items = Arrays.copyOf(this.items, Math.max(8, this.size * 2));
+      }
+      this.items[this.size++] = item;
+    }
+
+    /**
+     * Adds an element whose items start at the specified index.
+     */
+    private void push(int start, boolean included) {
+      if (this.depth == this.starts.length) {
+        int capacity = this.depth * 2;
+        this.starts = Arrays.copyOf(this.starts, capacity);
+        this.included = Arrays.copyOf(this.included, capacity);
+        this.children = Arrays.copyOf(this.children, capacity);
+      }
+      this.starts[this.depth] = start;
+      this.included[this.depth] = included;
+      this.children[this.depth] = 0;
+      this.depth++;
+    }
+  }
+
+}
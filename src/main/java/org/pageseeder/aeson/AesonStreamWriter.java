@@ -0,0 +1,527 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * An XML stream writer which writes JSON directly by interpreting the Aeson XML it receives.
+ *
+ * <p>This lets code producing Aeson XML with the StAX API generate JSON without having to
+ * serialize and parse the XML. The calls are translated into the same events as the ones sent
+ * to the {@link JSONSerializer} by a SAX parser.
+ *
+ * <p>Comments, processing instructions, DTDs and entity references are ignored, as they would
+ * be by the serializer. CDATA sections are treated like characters.
+ *
+ * <p>As per the StAX API, the underlying stream is flushed but not closed at the end of the
+ * document.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class AesonStreamWriter implements XMLStreamWriter {
+
+  /**
+   * The serializer receiving the events.
+   */
+  private final JSONSerializer serializer;
+
+  /**
+   * The namespace bindings in scope.
+   */
+  private final Bindings bindings = new Bindings();
+
+  /**
+   * Attributes of the pending start element.
+   */
+  private final AttributesImpl atts = new AttributesImpl();
+
+  /**
+   * Namespace URI, local name and qualified name of each open element (flattened).
+   */
+  private final List<String> elements = new ArrayList<String>();
+
+  /**
+   * Prefix of the pending start element.
+   */
+  private String pendingPrefix = null;
+
+  /**
+   * Namespace URI of the pending start element (<code>null</code> if it must be resolved from
+   * its prefix once the namespaces declared by the element are bound).
+   */
+  private String pendingURI = null;
+
+  /**
+   * Local name of the pending start element.
+   */
+  private String pendingLocalName = null;
+
+  /**
+   * Qualified name of the pending start element.
+   */
+  private String pendingQName = null;
+
+  /**
+   * Whether the pending start element is empty.
+   */
+  private boolean pendingEmpty = false;
+
+  /**
+   * Whether the document was started.
+   */
+  private boolean started = false;
+
+  /**
+   * Creates a new writer sending JSON to the specified byte stream.
+   *
+   * @param out A valid OutputStream.
+   */
+  public AesonStreamWriter(OutputStream out) {
+    this.serializer = new JSONSerializer(out);
+    this.serializer.setCloseStream(false);
+  }
+
+  /**
+   * Creates a new writer sending JSON to the specified character stream.
+   *
+   * @param writer A valid character stream.
+   */
+  public AesonStreamWriter(Writer writer) {
+    this.serializer = new JSONSerializer(writer);
+    this.serializer.setCloseStream(false);
+  }
+
+  // Document
+  // =============================================================================================
+
+  @Override
+  public void writeStartDocument() throws XMLStreamException {
+    start();
+  }
+
+  @Override
+  public void writeStartDocument(String version) throws XMLStreamException {
+    start();
+  }
+
+  @Override
+  public void writeStartDocument(String encoding, String version) throws XMLStreamException {
+    start();
+  }
+
+  @Override
+  public void writeEndDocument() throws XMLStreamException {
+    flushStart();
+    while (!this.elements.isEmpty()) {
+      writeEndElement();
+    }
+    if (this.started) {
+      try {
+        this.serializer.endDocument();
+      } catch (SAXException ex) {
+        throw new XMLStreamException(ex);
+      }
+      this.started = false;
+    }
+  }
+
+  // Elements
+  // =============================================================================================
+
+  @Override
+  public void writeStartElement(String localName) throws XMLStreamException {
+    startElement(XMLConstants.DEFAULT_NS_PREFIX, localName, null, false);
+  }
+
+  @Override
+  public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+    startElement(prefixFor(namespaceURI), localName, namespaceURI, false);
+  }
+
+  @Override
+  public void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+    startElement(prefix, localName, namespaceURI, false);
+  }
+
+  @Override
+  public void writeEmptyElement(String localName) throws XMLStreamException {
+    startElement(XMLConstants.DEFAULT_NS_PREFIX, localName, null, true);
+  }
+
+  @Override
+  public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+    startElement(prefixFor(namespaceURI), localName, namespaceURI, true);
+  }
+
+  @Override
+  public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+    startElement(prefix, localName, namespaceURI, true);
+  }
+
+  @Override
+  public void writeEndElement() throws XMLStreamException {
+    flushStart();
+    int size = this.elements.size();
+    if (size == 0) throw new XMLStreamException("No element to end");
+    String qName = this.elements.remove(size-1);
+    String localName = this.elements.remove(size-2);
+    String uri = this.elements.remove(size-3);
+    endElement(uri, localName, qName);
+  }
+
+  // Attributes
+  // =============================================================================================
+
+  @Override
+  public void writeAttribute(String localName, String value) throws XMLStreamException {
+    checkPending();
+    this.atts.addAttribute("", localName, localName, "CDATA", value);
+  }
+
+  @Override
+  public void writeAttribute(String namespaceURI, String localName, String value) throws XMLStreamException {
+    writeAttribute(prefixFor(namespaceURI), namespaceURI, localName, value);
+  }
+
+  @Override
+  public void writeAttribute(String prefix, String namespaceURI, String localName, String value)
+      throws XMLStreamException {
+    checkPending();
+    String uri = namespaceURI != null? namespaceURI : "";
+    String qName = prefix == null || prefix.isEmpty()? localName : prefix+':'+localName;
+    this.atts.addAttribute(uri, localName, qName, "CDATA", value);
+  }
+
+  // Namespaces
+  // =============================================================================================
+
+  @Override
+  public void writeNamespace(String prefix, String namespaceURI) throws XMLStreamException {
+    checkPending();
+    if (prefix == null || prefix.isEmpty() || XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) {
+      writeDefaultNamespace(namespaceURI);
+    } else {
+      this.bindings.bind(prefix, namespaceURI);
+    }
+  }
+
+  @Override
+  public void writeDefaultNamespace(String namespaceURI) throws XMLStreamException {
+    checkPending();
+    this.bindings.bind(XMLConstants.DEFAULT_NS_PREFIX, namespaceURI);
+  }
+
+  @Override
+  public String getPrefix(String uri) throws XMLStreamException {
+    return this.bindings.getPrefix(uri);
+  }
+
+  @Override
+  public void setPrefix(String prefix, String uri) throws XMLStreamException {
+    this.bindings.bind(prefix, uri);
+  }
+
+  @Override
+  public void setDefaultNamespace(String uri) throws XMLStreamException {
+    this.bindings.bind(XMLConstants.DEFAULT_NS_PREFIX, uri);
+  }
+
+  @Override
+  public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+    if (this.started) throw new XMLStreamException("Namespace context must be set before the document starts");
+    this.bindings.root = context;
+  }
+
+  @Override
+  public NamespaceContext getNamespaceContext() {
+    return this.bindings;
+  }
+
+  // Content
+  // =============================================================================================
+
+  @Override
+  public void writeCharacters(String text) throws XMLStreamException {
+    char[] ch = text.toCharArray();
+    writeCharacters(ch, 0, ch.length);
+  }
+
+  @Override
+  public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+    flushStart();
+    try {
+      this.serializer.characters(text, start, len);
+    } catch (SAXException ex) {
+      throw new XMLStreamException(ex);
+    }
+  }
+
+  @Override
+  public void writeCData(String data) throws XMLStreamException {
+    writeCharacters(data);
+  }
+
+  @Override
+  public void writeComment(String data) throws XMLStreamException {
+    flushStart();
+  }
+
+  @Override
+  public void writeProcessingInstruction(String target) throws XMLStreamException {
+    flushStart();
+  }
+
+  @Override
+  public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
+    flushStart();
+  }
+
+  @Override
+  public void writeDTD(String dtd) throws XMLStreamException {
+  }
+
+  @Override
+  public void writeEntityRef(String name) throws XMLStreamException {
+    flushStart();
+  }
+
+  // Lifecycle
+  // =============================================================================================
+
+  @Override
+  public Object getProperty(String name) {
+    throw new IllegalArgumentException("Unsupported property: "+name);
+  }
+
+  @Override
+  public void flush() throws XMLStreamException {
+    try {
+      this.serializer.flush();
+    } catch (IOException ex) {
+      throw new XMLStreamException(ex);
+    }
+  }
+
+  /**
+   * Does nothing, the underlying stream is never closed.
+   */
+  @Override
+  public void close() throws XMLStreamException {
+  }
+
+  // Private helpers
+  // =============================================================================================
+
+  /**
+   * Starts the document if it has not been started already.
+   */
+  private void start() throws XMLStreamException {
+    if (!this.started) {
+      try {
+        this.serializer.startDocument();
+      } catch (SAXException ex) {
+        throw new XMLStreamException(ex);
+      }
+      this.started = true;
+    }
+  }
+
+  /**
+   * Records the start of an element which is only sent to the serializer once all its
+   * attributes and namespaces are known.
+   *
+   * @param namespaceURI The namespace URI (<code>null</code> to resolve it from the prefix)
+   */
+  private void startElement(String prefix, String localName, String namespaceURI, boolean empty)
+      throws XMLStreamException {
+    flushStart();
+    start();
+    this.bindings.push();
+    this.pendingPrefix = prefix != null? prefix : XMLConstants.DEFAULT_NS_PREFIX;
+    this.pendingURI = namespaceURI;
+    this.pendingLocalName = localName;
+    this.pendingQName = prefix == null || prefix.isEmpty()? localName : prefix+':'+localName;
+    this.pendingEmpty = empty;
+  }
+
+  /**
+   * Sends the pending start element to the serializer.
+   */
+  private void flushStart() throws XMLStreamException {
+    if (this.pendingLocalName == null) return;
+    // Resolved now, as the element may declare the namespace of its own prefix
+    String uri = this.pendingURI != null? this.pendingURI : this.bindings.getNamespaceURI(this.pendingPrefix);
+    String localName = this.pendingLocalName;
+    String qName = this.pendingQName;
+    this.pendingPrefix = null;
+    this.pendingURI = null;
+    this.pendingLocalName = null;
+    this.pendingQName = null;
+    try {
+      this.serializer.startElement(uri, localName, qName, this.atts);
+    } catch (SAXException ex) {
+      throw new XMLStreamException(ex);
+    } finally {
+      this.atts.clear();
+    }
+    if (this.pendingEmpty) {
+      endElement(uri, localName, qName);
+    } else {
+      this.elements.add(uri);
+      this.elements.add(localName);
+      this.elements.add(qName);
+    }
+  }
+
+  /**
+   * Sends the end element to the serializer and removes the namespaces bound by it.
+   */
+  private void endElement(String uri, String localName, String qName) throws XMLStreamException {
+    try {
+      this.serializer.endElement(uri, localName, qName);
+    } catch (SAXException ex) {
+      throw new XMLStreamException(ex);
+    }
+    this.bindings.pop();
+  }
+
+  /**
+   * @throws XMLStreamException if there is no start element to add attributes or namespaces to.
+   */
+  private void checkPending() throws XMLStreamException {
+    if (this.pendingLocalName == null)
+      throw new XMLStreamException("Attributes and namespaces must follow a start element");
+  }
+
+  /**
+   * Returns the prefix bound to the specified namespace URI.
+   */
+  private String prefixFor(String namespaceURI) throws XMLStreamException {
+    if (namespaceURI == null || namespaceURI.isEmpty()) return XMLConstants.DEFAULT_NS_PREFIX;
+    String prefix = this.bindings.getPrefix(namespaceURI);
+    if (prefix == null) throw new XMLStreamException("Namespace URI "+namespaceURI+" is not bound to a prefix");
+    return prefix;
+  }
+
+  /**
+   * A stack of namespace bindings scoped by element.
+   */
+  private static final class Bindings implements NamespaceContext {
+
+    /**
+     * The namespace context supplied by the user (may be <code>null</code>).
+     */
+    private NamespaceContext root = null;
+
+    /**
+     * Prefixes and namespace URIs in binding order (flattened).
+     */
+    private final List<String> bindings = new ArrayList<String>();
+
+    /**
+     * Size of the bindings list at the start of each element.
+     */
+    private int[] marks = new int[16];
+
+    /**
+     * Number of element scopes.
+     */
+    private int depth = 0;
+
+    /**
+     * Opens a new element scope.
+     */
+    void push() {
+      if (this.depth == this.marks.length) {
+        int[] grown = new int[this.depth * 2];
+        System.arraycopy(this.marks, 0, grown, 0, this.depth);
+        this.marks = grown;
+      }
+      this.marks[this.depth++] = this.bindings.size();
+    }
+
+    /**
+     * Closes the current element scope removing its bindings.
+     */
+    void pop() {
+      if (this.depth == 0) return;
+      int mark = this.marks[--this.depth];
+      while (this.bindings.size() > mark) {
+        this.bindings.remove(this.bindings.size()-1);
+      }
+    }
+
+    /**
+     * Binds the prefix to the specified namespace URI in the current scope.
+     */
+    void bind(String prefix, String uri) {
+      this.bindings.add(prefix != null? prefix : XMLConstants.DEFAULT_NS_PREFIX);
+      this.bindings.add(uri != null? uri : XMLConstants.NULL_NS_URI);
+    }
+
+    @Override
+    public String getNamespaceURI(String prefix) {
+      if (prefix == null) throw new IllegalArgumentException("Prefix must not be null");
+      for (int i = this.bindings.size()-2; i >= 0; i -= 2) {
+        if (prefix.equals(this.bindings.get(i))) return this.bindings.get(i+1);
+      }
+      if (XMLConstants.XML_NS_PREFIX.equals(prefix)) return XMLConstants.XML_NS_URI;
+      if (XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)) return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+      if (this.root != null) {
+        String uri = this.root.getNamespaceURI(prefix);
+        if (uri != null) return uri;
+      }
+      return XMLConstants.NULL_NS_URI;
+    }
+
+    @Override
+    public String getPrefix(String uri) {
+      if (uri == null) throw new IllegalArgumentException("Namespace URI must not be null");
+      for (int i = this.bindings.size()-1; i > 0; i -= 2) {
+        String prefix = this.bindings.get(i-1);
+        // Ignore prefixes rebound to another URI in a nested scope
+        if (uri.equals(this.bindings.get(i)) && uri.equals(getNamespaceURI(prefix))) return prefix;
+      }
+      if (XMLConstants.XML_NS_URI.equals(uri)) return XMLConstants.XML_NS_PREFIX;
+      if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(uri)) return XMLConstants.XMLNS_ATTRIBUTE;
+      if (this.root != null) return this.root.getPrefix(uri);
+      return null;
+    }
+
+    @Override
+    public Iterator<String> getPrefixes(String uri) {
+      String prefix = getPrefix(uri);
+      return prefix != null? Collections.singletonList(prefix).iterator() : Collections.<String>emptyList().iterator();
+    }
+  }
+
+}
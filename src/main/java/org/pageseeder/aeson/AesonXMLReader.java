@@ -0,0 +1,363 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.xml.XMLConstants;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.DTDHandler;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * An XML reader which parses JSON and reports it as Aeson XML.
+ *
+ * <p>This is the reverse of the {@link JSONSerializer}: the events it generates serialize
+ * back to the same JSON. It can be used as part of a <code>SAXSource</code> to process JSON
+ * with XSLT.
+ *
+ * <p>The JSON is streamed: the memory used does not depend on the size of the document or of
+ * its string values.
+ *
+ * <p>Objects and arrays are reported as <code>json:object</code> and <code>json:array</code>
+ * elements and <code>null</code> as <code>json:null</code>. Strings, numbers and booleans are
+ * reported as <code>string</code>, <code>number</code> and <code>boolean</code> elements
+ * containing the value, the types of these elements are declared on the document element.
+ * The names of properties are always specified using <code>json:name</code>, so that any
+ * property name can be represented.
+ *
+ * <p>For example:
+ * <pre>{"id": 4, "name": "Ali Baba", "tags": ["a", null]}</pre>
+ * <p>is reported as:
+ * <pre>
+ * &lt;json:object xmlns:json="http://pageseeder.org/JSON"
+ *   json:string="string" json:number="number" json:boolean="boolean"&gt;
+ *   &lt;number json:name="id"&gt;4&lt;/number&gt;
+ *   &lt;string json:name="name"&gt;Ali Baba&lt;/string&gt;
+ *   &lt;json:array json:name="tags"&gt;&lt;string&gt;a&lt;/string&gt;&lt;json:null/&gt;&lt;/json:array&gt;
+ * &lt;/json:object&gt;
+ * </pre>
+ *
+ * <p>The document must be a JSON object or array.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class AesonXMLReader implements XMLReader {
+
+  /** SAX features */
+  private static final String NAMESPACES = "http://xml.org/sax/features/namespaces";
+  private static final String NAMESPACE_PREFIXES = "http://xml.org/sax/features/namespace-prefixes";
+
+  /** Prefix used for the JSON namespace */
+  private static final String PREFIX = "json";
+
+  /** Names of elements for values */
+  private static final String STRING = "string", NUMBER = "number", BOOLEAN = "boolean";
+
+  /** Bits used on the stack */
+  private static final byte ARRAY = 1, NOT_EMPTY = 2;
+
+  /**
+   * Default handler used when none is specified.
+   */
+  private static final DefaultHandler DEFAULT_HANDLER = new DefaultHandler();
+
+  /**
+   * Receives the content of the document.
+   */
+  private ContentHandler contentHandler = DEFAULT_HANDLER;
+
+  /**
+   * Receives errors.
+   */
+  private ErrorHandler errorHandler = null;
+
+  /**
+   * Not used but can be set.
+   */
+  private EntityResolver entityResolver = null;
+
+  /**
+   * Not used but can be set.
+   */
+  private DTDHandler dtdHandler = null;
+
+  /**
+   * Whether to report the namespace declaration as an attribute.
+   */
+  private boolean namespacePrefixes = false;
+
+  /**
+   * Reused attributes.
+   */
+  private final AttributesImpl atts = new AttributesImpl();
+
+  // Features and properties
+  // =============================================================================================
+
+  @Override
+  public boolean getFeature(String name) throws SAXNotRecognizedException, SAXNotSupportedException {
+    if (NAMESPACES.equals(name)) return true;
+    if (NAMESPACE_PREFIXES.equals(name)) return this.namespacePrefixes;
+    throw new SAXNotRecognizedException(name);
+  }
+
+  @Override
+  public void setFeature(String name, boolean value) throws SAXNotRecognizedException, SAXNotSupportedException {
+    if (NAMESPACES.equals(name)) {
+      if (!value) throw new SAXNotSupportedException("Namespaces are always reported");
+    } else if (NAMESPACE_PREFIXES.equals(name)) {
+      this.namespacePrefixes = value;
+    } else {
+      throw new SAXNotRecognizedException(name);
+    }
+  }
+
+  @Override
+  public Object getProperty(String name) throws SAXNotRecognizedException, SAXNotSupportedException {
+    throw new SAXNotRecognizedException(name);
+  }
+
+  @Override
+  public void setProperty(String name, Object value) throws SAXNotRecognizedException, SAXNotSupportedException {
+    throw new SAXNotRecognizedException(name);
+  }
+
+  // Handlers
+  // =============================================================================================
+
+  @Override
+  public void setEntityResolver(EntityResolver resolver) {
+    this.entityResolver = resolver;
+  }
+
+  @Override
+  public EntityResolver getEntityResolver() {
+    return this.entityResolver;
+  }
+
+  @Override
+  public void setDTDHandler(DTDHandler handler) {
+    this.dtdHandler = handler;
+  }
+
+  @Override
+  public DTDHandler getDTDHandler() {
+    return this.dtdHandler;
+  }
+
+  @Override
+  public void setContentHandler(ContentHandler handler) {
+    this.contentHandler = handler != null? handler : DEFAULT_HANDLER;
+  }
+
+  @Override
+  public ContentHandler getContentHandler() {
+    return this.contentHandler == DEFAULT_HANDLER? null : this.contentHandler;
+  }
+
+  @Override
+  public void setErrorHandler(ErrorHandler handler) {
+    this.errorHandler = handler;
+  }
+
+  @Override
+  public ErrorHandler getErrorHandler() {
+    return this.errorHandler;
+  }
+
+  // Parse
+  // =============================================================================================
+
+  @Override
+  public void parse(String systemId) throws IOException, SAXException {
+    parse(new InputSource(systemId));
+  }
+
+  @Override
+  public void parse(InputSource input) throws IOException, SAXException {
+    Reader reader = input.getCharacterStream();
+    InputStream in = null;
+    if (reader == null) {
+      in = input.getByteStream();
+      if (in == null) {
+        if (input.getSystemId() == null) throw new IOException("No input specified");
+        in = new URL(input.getSystemId()).openStream();
+      }
+      String encoding = input.getEncoding();
+      reader = encoding != null? new InputStreamReader(in, encoding) : new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+    JSONTokenizer tokenizer = new JSONTokenizer(reader, input.getPublicId(), input.getSystemId());
+    try {
+      parse(tokenizer);
+    } catch (SAXParseException ex) {
+      if (this.errorHandler != null) this.errorHandler.fatalError(ex);
+      throw ex;
+    } finally {
+      // Only close the streams we opened
+      if (in != null && input.getByteStream() == null) in.close();
+    }
+  }
+
+  /**
+   * Parses the JSON from the tokenizer and reports it to the content handler.
+   *
+   * @param tokenizer The tokenizer to use
+   */
+  private void parse(JSONTokenizer tokenizer) throws IOException, SAXException {
+    final ContentHandler handler = this.contentHandler;
+    handler.setDocumentLocator(tokenizer);
+    handler.startDocument();
+    handler.startPrefixMapping(PREFIX, JSONSerializer.NS_URI);
+
+    // Document element declares the types of value elements
+    AttributesImpl atts = this.atts;
+    atts.clear();
+    if (this.namespacePrefixes) {
+      atts.addAttribute(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, PREFIX, "xmlns:"+PREFIX, "CDATA", JSONSerializer.NS_URI);
+    }
+    atts.addAttribute(JSONSerializer.NS_URI, STRING, PREFIX+':'+STRING, "CDATA", STRING);
+    atts.addAttribute(JSONSerializer.NS_URI, NUMBER, PREFIX+':'+NUMBER, "CDATA", NUMBER);
+    atts.addAttribute(JSONSerializer.NS_URI, BOOLEAN, PREFIX+':'+BOOLEAN, "CDATA", BOOLEAN);
+
+    // Stack of objects and arrays
+    byte[] stack = new byte[32];
+    int depth = 0;
+
+    tokenizer.skipByteOrderMark();
+    int token = tokenizer.next();
+    if (token == JSONTokenizer.BEGIN_OBJECT) {
+      startJSONElement(handler, "object", atts);
+      stack[depth++] = 0;
+    } else if (token == JSONTokenizer.BEGIN_ARRAY) {
+      startJSONElement(handler, "array", atts);
+      stack[depth++] = ARRAY;
+    } else {
+      throw tokenizer.error("JSON document must be an object or array");
+    }
+
+    while (depth > 0) {
+      token = tokenizer.next();
+      byte top = stack[depth-1];
+      boolean isArray = (top & ARRAY) != 0;
+
+      // End of object or array
+      if (token == (isArray? JSONTokenizer.END_ARRAY : JSONTokenizer.END_OBJECT)) {
+        endJSONElement(handler, isArray? "array" : "object");
+        depth--;
+        continue;
+      }
+
+      // Separator between members
+      if ((top & NOT_EMPTY) != 0) {
+        if (token != JSONTokenizer.COMMA) throw tokenizer.error(isArray? "Expected ',' or ']'" : "Expected ',' or '}'");
+        token = tokenizer.next();
+      }
+      stack[depth-1] = (byte)(top | NOT_EMPTY);
+
+      // Property name
+      String name = null;
+      if (!isArray) {
+        if (token != JSONTokenizer.STRING) throw tokenizer.error("Expected property name");
+        name = tokenizer.readString();
+        if (tokenizer.next() != JSONTokenizer.COLON) throw tokenizer.error("Expected ':'");
+        token = tokenizer.next();
+      }
+
+      // Value
+      atts.clear();
+      if (name != null) {
+        atts.addAttribute(JSONSerializer.NS_URI, "name", PREFIX+":name", "CDATA", name);
+      }
+      switch (token) {
+        case JSONTokenizer.BEGIN_OBJECT:
+        case JSONTokenizer.BEGIN_ARRAY:
+          boolean array = token == JSONTokenizer.BEGIN_ARRAY;
+          startJSONElement(handler, array? "array" : "object", atts);
+          if (depth == stack.length) stack = Arrays.copyOf(stack, depth * 2);
+          stack[depth++] = array? ARRAY : 0;
+          break;
+        case JSONTokenizer.STRING:
+          handler.startElement("", STRING, STRING, atts);
+          tokenizer.readString(handler);
+          handler.endElement("", STRING, STRING);
+          break;
+        case JSONTokenizer.NUMBER:
+          value(handler, NUMBER, tokenizer.getNumber());
+          break;
+        case JSONTokenizer.TRUE:
+          value(handler, BOOLEAN, "true");
+          break;
+        case JSONTokenizer.FALSE:
+          value(handler, BOOLEAN, "false");
+          break;
+        case JSONTokenizer.NULL:
+          startJSONElement(handler, "null", atts);
+          endJSONElement(handler, "null");
+          break;
+        default:
+          throw tokenizer.error("Expected value");
+      }
+    }
+
+    // Nothing allowed after the document
+    if (tokenizer.next() != JSONTokenizer.EOF) throw tokenizer.error("Unexpected content after the end of the document");
+
+    handler.endPrefixMapping(PREFIX);
+    handler.endDocument();
+  }
+
+  /**
+   * Reports a value element with the specified text.
+   */
+  private void value(ContentHandler handler, String element, String value) throws SAXException {
+    handler.startElement("", element, element, this.atts);
+    handler.characters(value.toCharArray(), 0, value.length());
+    handler.endElement("", element, element);
+  }
+
+  /**
+   * Reports the start of an element in the JSON namespace.
+   */
+  private static void startJSONElement(ContentHandler handler, String name, AttributesImpl atts) throws SAXException {
+    handler.startElement(JSONSerializer.NS_URI, name, PREFIX+':'+name, atts);
+  }
+
+  /**
+   * Reports the end of an element in the JSON namespace.
+   */
+  private static void endJSONElement(ContentHandler handler, String name) throws SAXException {
+    handler.endElement(JSONSerializer.NS_URI, name, PREFIX+':'+name);
+  }
+
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A byte stream writing to a file through a file channel with a large direct buffer.
+ *
+ * <p>The content is written to a temporary file in the same directory, which replaces the
+ * target file when the stream is closed, so that the target file is never seen incomplete.
+ * If the stream is discarded instead, the temporary file is deleted.
+ *
+ * <p>The temporary file is created with the default permissions of the file system (subject to
+ * the umask), or with the permissions of the target file if it already exists, so that
+ * replacing a file does not change who can read it.
+ *
+ * <p>The expected size of the file can be given as a hint: the temporary file is then extended
+ * to that length up front and truncated to the actual size when the stream is closed. This
+ * only sets the length of the file: most file systems create a sparse file and do not reserve
+ * any space, so writing may still fail when the disk is full.
+ *
+ * <p>The stream must always be either closed or discarded, otherwise the temporary file and
+ * the buffer are leaked. If writing or closing fails, the stream is discarded automatically.
+ *
+ * <p>Direct buffers are expensive to allocate, so they are pooled.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+final class AtomicFileOutputStream extends OutputStream {
+
+  /**
+   * Size of the direct buffers.
+   */
+  static final int BUFFER_SIZE = 256 * 1024;
+
+  /**
+   * The idle direct buffers.
+   */
+  private static final BlockingQueue<ByteBuffer> BUFFERS = new ArrayBlockingQueue<ByteBuffer>(SerializerPool.DEFAULT_CAPACITY);
+
+  /**
+   * The file to write.
+   */
+  private final Path target;
+
+  /**
+   * The temporary file actually written.
+   */
+  private final Path temp;
+
+  /**
+   * The channel to the temporary file.
+   */
+  private final FileChannel channel;
+
+  /**
+   * Whether the temporary file was extended to the expected size.
+   */
+  private final boolean extended;
+
+  /**
+   * The buffer (<code>null</code> once the stream is closed or discarded).
+   */
+  private ByteBuffer buffer;
+
+  /**
+   * Creates a new stream to the specified file.
+   *
+   * <p>The caller must either close the stream to replace the file or discard it to leave the
+   * file unchanged, typically by calling {@link #discard()} when the output fails before
+   * closing. Failures while writing or closing discard the stream automatically.
+   *
+   * @param file     The file to write
+   * @param sizeHint The expected size of the file in bytes (0 if not known)
+   *
+   * @throws IOException If the temporary file could not be created
+   */
+  public AtomicFileOutputStream(File file, long sizeHint) throws IOException {
+    this.target = file.getAbsoluteFile().toPath();
+    this.temp = createTemp(this.target);
+    RandomAccessFile raf = null;
+    try {
+      copyPermissions(this.target, this.temp);
+      raf = new RandomAccessFile(this.temp.toFile(), "rw");
+      if (sizeHint > 0) raf.setLength(sizeHint);
+    } catch (IOException ex) {
+      if (raf != null) raf.close();
+      Files.deleteIfExists(this.temp);
+      throw ex;
+    }
+    this.channel = raf.getChannel();
+    this.extended = sizeHint > 0;
+    ByteBuffer b = BUFFERS.poll();
+    this.buffer = b != null? b : ByteBuffer.allocateDirect(BUFFER_SIZE);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    ByteBuffer buf = buffer();
+    if (!buf.hasRemaining()) drain();
+    buf.put((byte)b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    ByteBuffer buf = buffer();
+    while (len > 0) {
+      if (!buf.hasRemaining()) drain();
+      int n = Math.min(len, buf.remaining());
+      buf.put(b, off, n);
+      off += n;
+      len -= n;
+    }
+  }
+
+  /**
+   * Writes the content of the buffer to the temporary file.
+   */
+  @Override
+  public void flush() throws IOException {
+    buffer();
+    drain();
+  }
+
+  /**
+   * Writes the content of the buffer and replaces the target file by the temporary file.
+   *
+   * <p>If the file system does not support atomic moves, the target file is replaced
+   * non-atomically.
+   */
+  @Override
+  public void close() throws IOException {
+    if (this.buffer == null) return;
+    try {
+      drain();
+      if (this.extended) {
+        this.channel.truncate(this.channel.position());
+      }
+      this.channel.close();
+      try {
+        Files.move(this.temp, this.target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException ex) {
+        Files.move(this.temp, this.target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException ex) {
+      discard();
+      throw ex;
+    }
+    release();
+  }
+
+  /**
+   * Discards the content written so far, the target file is left unchanged.
+   *
+   * <p>Has no effect if the stream is already closed or discarded.
+   */
+  public void discard() {
+    if (this.buffer == null) return;
+    try {
+      this.channel.close();
+    } catch (IOException ex) {
+      // Deleting the file is all that matters
+    }
+    try {
+      Files.deleteIfExists(this.temp);
+    } catch (IOException ex) {
+      // Left to the file system
+    }
+    release();
+  }
+
+  // Private helpers
+  // ---------------------------------------------------------------------------------------------
+
+  /**
+   * Creates a temporary file with a random name next to the target file.
+   *
+   * <p>Unlike <code>Files.createTempFile</code>, which restricts the file to its owner, the
+   * file is created with the default permissions.
+   *
+   * @return the temporary file
+   */
+  private static Path createTemp(Path target) throws IOException {
+    Path dir = target.getParent();
+    String prefix = "."+target.getFileName()+".";
+    while (true) {
+      String random = Long.toHexString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE);
+      try {
+        return Files.createFile(dir.resolve(prefix+random+".tmp"));
+      } catch (FileAlreadyExistsException ex) {
+        // Try another name
+      }
+    }
+  }
+
+  /**
+   * Copies the POSIX permissions of the target file, if it exists, onto the temporary file.
+   *
+   * <p>Has no effect on file systems which do not support POSIX permissions.
+   */
+  private static void copyPermissions(Path target, Path temp) throws IOException {
+    try {
+      Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+    } catch (NoSuchFileException ex) {
+      // No target file yet, keep the default permissions
+    } catch (UnsupportedOperationException ex) {
+      // Not a POSIX file system
+    }
+  }
+
+  /**
+   * @return the buffer if the stream is still open.
+   *
+   * @throws IOException If the stream is closed or discarded
+   */
+  private ByteBuffer buffer() throws IOException {
+    if (this.buffer == null) throw new IOException("Stream closed");
+    return this.buffer;
+  }
+
+  /**
+   * Writes the content of the buffer to the channel.
+   */
+  private void drain() throws IOException {
+    ByteBuffer buf = this.buffer;
+    buf.flip();
+    try {
+      while (buf.hasRemaining()) {
+        this.channel.write(buf);
+      }
+    } catch (IOException ex) {
+      // The output is incomplete, so the stream cannot be closed
+      discard();
+      throw ex;
+    }
+    buf.clear();
+  }
+
+  /**
+   * Returns the buffer to the pool.
+   */
+  private void release() {
+    ByteBuffer buf = this.buffer;
+    this.buffer = null;
+    buf.clear();
+    BUFFERS.offer(buf);
+  }
+
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.math.BigInteger;
+
+/**
+ * Base class for sinks encoding the JSON data model in a binary format.
+ *
+ * <p>Provides the byte buffer and the UTF-8 encoding of strings; how the buffer is made room
+ * for is left to implementations.
+ *
+ * <p>Unpaired surrogates are replaced by '?' as in the JSON text output.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+abstract class BinaryWriter implements JSONSink {
+
+  /**
+   * Default size of the internal buffer.
+   */
+  static final int DEFAULT_BUFFER_SIZE = 16384;
+
+  /**
+   * Byte to use in place of unpaired surrogates.
+   */
+  private static final byte REPLACEMENT = '?';
+
+  /**
+   * The byte stream to write to.
+   */
+  OutputStream out;
+
+  /**
+   * The internal buffer.
+   */
+  byte[] buf = new byte[DEFAULT_BUFFER_SIZE];
+
+  /**
+   * Number of bytes currently in the buffer.
+   */
+  int pos = 0;
+
+  /**
+   * Number of bytes written to the underlying stream.
+   */
+  long written = 0;
+
+  /**
+   * Current nesting depth of objects and arrays.
+   */
+  int depth = 0;
+
+  /**
+   * A high surrogate at the end of the last chunk of a streamed string (or 0).
+   */
+  char high = 0;
+
+  /**
+   * Creates a new binary writer using the specified byte stream.
+   *
+   * @param out A valid OutputStream.
+   */
+  BinaryWriter(OutputStream out) {
+    this.out = out;
+  }
+
+  @Override
+  public void reset(OutputStream out) {
+    this.out = out;
+    this.pos = 0;
+    this.written = 0;
+    this.depth = 0;
+    this.high = 0;
+  }
+
+  @Override
+  public void reset(Writer writer) {
+    throw new UnsupportedOperationException("Binary output requires a byte stream");
+  }
+
+  @Override
+  public long getBytesWritten() {
+    return this.written;
+  }
+
+  @Override
+  public long getOutputSize() {
+    return this.written + this.pos;
+  }
+
+  @Override
+  public void setLineDelimited(boolean lines) {
+    if (lines) throw new UnsupportedOperationException("Binary output cannot be line-delimited");
+  }
+
+  /**
+   * Writes integers as integers, whatever their size, and other numbers as double-precision
+   * floats.
+   */
+  @Override
+  public void writeNumber(String name, String value) throws IOException {
+    if (value.indexOf('.') == -1 && value.indexOf('e') == -1 && value.indexOf('E') == -1) {
+      try {
+        writeNumber(name, Long.parseLong(value));
+      } catch (NumberFormatException ex) {
+        // Too large for a long
+        writeNumber(name, new BigInteger(value));
+      }
+      return;
+    }
+    writeNumber(name, Double.parseDouble(value));
+  }
+
+  /**
+   * Writes an integer which is too large for a <code>long</code>.
+   *
+   * @param name  The name of the property (may be <code>null</code>)
+   * @param value The integer, either above <code>Long.MAX_VALUE</code> or below <code>Long.MIN_VALUE</code>
+   *
+   * @throws IOException If thrown by the underlying stream
+   * @throws NumberFormatException If the format cannot represent the integer
+   */
+  abstract void writeNumber(String name, BigInteger value) throws IOException;
+
+  /**
+   * Ensures that the buffer can accept the specified number of bytes.
+   *
+   * @param length The number of bytes about to be written.
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  abstract void ensure(int length) throws IOException;
+
+  /**
+   * Checks that the specified decimal number can be represented in JSON.
+   *
+   * @param value The value to check
+   *
+   * @throws NumberFormatException If the value is infinite or not a number
+   */
+  static void checkFinite(double value) {
+    if (Double.isInfinite(value) || Double.isNaN(value))
+      throw new NumberFormatException("JSON does not allow non-finite numbers: "+value);
+  }
+
+  /**
+   * Returns the number of bytes required to encode the specified string in UTF-8.
+   *
+   * @param s The string
+   * @return the length of the UTF-8 encoding.
+   */
+  static int utf8Length(String s) {
+    final int length = s.length();
+    int bytes = length;
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      if (c >= 0x80) {
+        if (c < 0x800) {
+          bytes += 1;
+        } else if (Character.isHighSurrogate(c) && i+1 < length && Character.isLowSurrogate(s.charAt(i+1))) {
+          bytes += 2;
+          i++;
+        } else if (!Character.isSurrogate(c)) {
+          bytes += 2;
+        }
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Writes the specified string encoded as UTF-8.
+   *
+   * @param s The string to write.
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  final void utf8(String s) throws IOException {
+    final int length = s.length();
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      if (this.pos + 4 > this.buf.length) ensure(4);
+      if (c < 0x80) {
+        this.buf[this.pos++] = (byte)c;
+      } else if (Character.isHighSurrogate(c) && i+1 < length && Character.isLowSurrogate(s.charAt(i+1))) {
+        codePoint(Character.toCodePoint(c, s.charAt(++i)));
+      } else {
+        bmp(c);
+      }
+    }
+  }
+
+  /**
+   * Writes the specified characters encoded as UTF-8, a high surrogate at the end is retained
+   * until the next call.
+   *
+   * @param ch    The characters to write
+   * @param start The start position in the array
+   * @param end   The end position in the array
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  final void utf8(char[] ch, int start, int end) throws IOException {
+    for (int i = start; i < end; i++) {
+      char c = ch[i];
+      if (this.pos + 4 > this.buf.length) ensure(4);
+      if (this.high != 0) {
+        if (Character.isLowSurrogate(c)) {
+          codePoint(Character.toCodePoint(this.high, c));
+          this.high = 0;
+          continue;
+        }
+        this.buf[this.pos++] = REPLACEMENT;
+        this.high = 0;
+        if (this.pos + 4 > this.buf.length) ensure(4);
+      }
+      if (c < 0x80) {
+        this.buf[this.pos++] = (byte)c;
+      } else if (Character.isHighSurrogate(c)) {
+        this.high = c;
+      } else {
+        bmp(c);
+      }
+    }
+  }
+
+  /**
+   * Writes the high surrogate left at the end of a streamed string if any.
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  final void endUTF8() throws IOException {
+    if (this.high != 0) {
+      ensure(1);
+      this.buf[this.pos++] = REPLACEMENT;
+      this.high = 0;
+    }
+  }
+
+  /**
+   * Writes a non-ASCII character from the Basic Multilingual Plane.
+   */
+  private void bmp(char c) {
+    final byte[] b = this.buf;
+    if (c < 0x800) {
+      b[this.pos++] = (byte)(0xC0 | (c >> 6));
+      b[this.pos++] = (byte)(0x80 | (c & 0x3F));
+    } else if (Character.isSurrogate(c)) {
+      b[this.pos++] = REPLACEMENT;
+    } else {
+      b[this.pos++] = (byte)(0xE0 | (c >> 12));
+      b[this.pos++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+      b[this.pos++] = (byte)(0x80 | (c & 0x3F));
+    }
+  }
+
+  /**
+   * Writes a supplementary code point as a four-byte UTF-8 sequence.
+   */
+  private void codePoint(int cp) {
+    final byte[] b = this.buf;
+    b[this.pos++] = (byte)(0xF0 | (cp >> 18));
+    b[this.pos++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+    b[this.pos++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+    b[this.pos++] = (byte)(0x80 | (cp & 0x3F));
+  }
+
+  /**
+   * Writes the specified number of bytes of a big-endian value.
+   *
+   * @param value  The value
+   * @param length The number of bytes
+   */
+  final void bigEndian(long value, int length) {
+    for (int shift = (length - 1) * 8; shift >= 0; shift -= 8) {
+      this.buf[this.pos++] = (byte)(value >>> shift);
+    }
+  }
+
+}
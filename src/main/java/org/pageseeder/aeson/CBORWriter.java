@@ -0,0 +1,325 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+
+/**
+ * A streaming CBOR writer (RFC 8949).
+ *
+ * <p>Objects and arrays are written as indefinite-length maps and arrays, and strings supplied
+ * in chunks as indefinite-length text strings, so that nothing needs to be held in memory
+ * beyond the buffer. Everything else uses the preferred serialization: integers use the
+ * shortest encoding and decimal numbers are written as single-precision floats when there is
+ * no loss of precision. Integers beyond 64 bits are written as bignums.
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc8949">Concise Binary Object Representation (CBOR)</a>
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+final class CBORWriter extends BinaryWriter {
+
+  /** Major types */
+  private static final int UNSIGNED = 0, NEGATIVE = 1, BYTES = 2, TEXT = 3;
+
+  /** Tags for bignums */
+  private static final int POSITIVE_BIGNUM = 0xC2, NEGATIVE_BIGNUM = 0xC3;
+
+  /** Initial bytes */
+  private static final int INDEFINITE_TEXT = 0x7F, INDEFINITE_ARRAY = 0x9F, INDEFINITE_MAP = 0xBF,
+      FALSE = 0xF4, TRUE = 0xF5, NULL = 0xF6, FLOAT = 0xFA, DOUBLE = 0xFB, BREAK = 0xFF;
+
+  /**
+   * Position of the header of the current chunk of a streamed string (or -1).
+   */
+  private int chunk = -1;
+
+  /**
+   * Creates a new CBOR writer using the specified byte stream.
+   *
+   * @param out A valid OutputStream.
+   */
+  public CBORWriter(OutputStream out) {
+    super(out);
+  }
+
+  // Structure
+  // =============================================================================================
+
+  @Override
+  public void writeStartObject(String name) throws IOException {
+    name(name);
+    ensure(1);
+    this.buf[this.pos++] = (byte)INDEFINITE_MAP;
+    this.depth++;
+  }
+
+  @Override
+  public void writeStartArray(String name) throws IOException {
+    name(name);
+    ensure(1);
+    this.buf[this.pos++] = (byte)INDEFINITE_ARRAY;
+    this.depth++;
+  }
+
+  @Override
+  public void writeEnd(boolean object) throws IOException {
+    if (this.depth == 0) throw new IllegalStateException("No object or array to end");
+    ensure(1);
+    this.buf[this.pos++] = (byte)BREAK;
+    this.depth--;
+  }
+
+  // Values
+  // =============================================================================================
+
+  @Override
+  public void writeString(String name, String value) throws IOException {
+    name(name);
+    text(value);
+  }
+
+  @Override
+  public void writeStartString(String name) throws IOException {
+    name(name);
+    ensure(1);
+    this.buf[this.pos++] = (byte)INDEFINITE_TEXT;
+  }
+
+  @Override
+  public void writeStringChars(char[] ch, int start, int length) throws IOException {
+    final int end = start + length;
+    int i = start;
+    while (i < end) {
+      if (this.chunk < 0) {
+        // Reserve the largest header for a new chunk
+        ensure(3 + 16);
+        this.chunk = this.pos;
+        this.pos += 3;
+      }
+      // Number of characters which certainly fit in the rest of the buffer
+      int n = Math.min(end - i, (this.buf.length - this.pos - 4) / 3);
+      if (n <= 0) {
+        endChunk();
+      } else {
+        utf8(ch, i, i + n);
+        i += n;
+      }
+    }
+  }
+
+  @Override
+  public void writeEndString() throws IOException {
+    if (this.chunk >= 0) endChunk();
+    ensure(3);
+    if (this.high != 0) {
+      // Unpaired surrogate as a last chunk
+      this.buf[this.pos++] = (byte)((TEXT << 5) | 1);
+      this.buf[this.pos++] = '?';
+      this.high = 0;
+    }
+    this.buf[this.pos++] = (byte)BREAK;
+  }
+
+  @Override
+  public void writeNumber(String name, long value) throws IOException {
+    name(name);
+    if (value >= 0) {
+      header(UNSIGNED, value);
+    } else {
+      header(NEGATIVE, ~value);
+    }
+  }
+
+  /**
+   * Writes integers up to 64 bits as integers, and larger integers as bignums (tags 2 and 3)
+   * with the bytes of their magnitude.
+   */
+  @Override
+  void writeNumber(String name, BigInteger value) throws IOException {
+    final boolean negative = value.signum() < 0;
+    // Negative integers are encoded as -1 minus the value
+    final BigInteger n = negative? value.not() : value;
+    name(name);
+    ensure(9);
+    if (n.bitLength() <= 64) {
+      this.buf[this.pos++] = (byte)(((negative? NEGATIVE : UNSIGNED) << 5) | 27);
+      bigEndian(n.longValue(), 8);
+    } else {
+      byte[] bytes = n.toByteArray();
+      // No sign byte
+      int off = bytes[0] == 0? 1 : 0;
+      int length = bytes.length - off;
+      this.buf[this.pos++] = (byte)(negative? NEGATIVE_BIGNUM : POSITIVE_BIGNUM);
+      header(BYTES, length);
+      if (length > this.buf.length - this.pos) {
+        drain();
+        this.out.write(bytes, off, length);
+        this.written += length;
+      } else {
+        System.arraycopy(bytes, off, this.buf, this.pos, length);
+        this.pos += length;
+      }
+    }
+  }
+
+  @Override
+  public void writeNumber(String name, double value) throws IOException {
+    checkFinite(value);
+    name(name);
+    ensure(9);
+    float f = (float)value;
+    if (f == value) {
+      this.buf[this.pos++] = (byte)FLOAT;
+      bigEndian(Float.floatToIntBits(f), 4);
+    } else {
+      this.buf[this.pos++] = (byte)DOUBLE;
+      bigEndian(Double.doubleToLongBits(value), 8);
+    }
+  }
+
+  @Override
+  public void writeBoolean(String name, boolean value) throws IOException {
+    name(name);
+    ensure(1);
+    this.buf[this.pos++] = (byte)(value? TRUE : FALSE);
+  }
+
+  @Override
+  public void writeNull(String name) throws IOException {
+    name(name);
+    ensure(1);
+    this.buf[this.pos++] = (byte)NULL;
+  }
+
+  // Lifecycle
+  // =============================================================================================
+
+  @Override
+  public void flush() throws IOException {
+    if (this.chunk >= 0) endChunk();
+    drain();
+    this.out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (this.chunk >= 0) endChunk();
+    drain();
+    this.out.close();
+  }
+
+  @Override
+  public void reset(OutputStream out) {
+    super.reset(out);
+    this.chunk = -1;
+  }
+
+  // Private helpers
+  // =============================================================================================
+
+  /**
+   * Completes the header of the current chunk of a streamed string using the shortest form.
+   *
+   * <p>Chunks are limited by the size of the buffer and never split a UTF-8 sequence.
+   */
+  private void endChunk() {
+    final int at = this.chunk;
+    final int size = this.pos - at - 3;
+    if (size == 0) {
+      this.pos = at;
+    } else if (size < 24) {
+      this.buf[at] = (byte)((TEXT << 5) | size);
+      System.arraycopy(this.buf, at + 3, this.buf, at + 1, size);
+      this.pos -= 2;
+    } else if (size < 0x100) {
+      this.buf[at] = (byte)((TEXT << 5) | 24);
+      this.buf[at + 1] = (byte)size;
+      System.arraycopy(this.buf, at + 3, this.buf, at + 2, size);
+      this.pos -= 1;
+    } else {
+      this.buf[at] = (byte)((TEXT << 5) | 25);
+      this.buf[at + 1] = (byte)(size >> 8);
+      this.buf[at + 2] = (byte)size;
+    }
+    this.chunk = -1;
+  }
+
+  @Override
+  void ensure(int length) throws IOException {
+    if (this.pos + length > this.buf.length) drain();
+  }
+
+  /**
+   * Writes the name of the property as a text string if specified.
+   *
+   * @param name The name of the property (may be <code>null</code>)
+   */
+  private void name(String name) throws IOException {
+    if (name != null) text(name);
+  }
+
+  /**
+   * Writes the specified string as a definite-length text string.
+   *
+   * @param s The string to write.
+   */
+  private void text(String s) throws IOException {
+    header(TEXT, utf8Length(s));
+    utf8(s);
+  }
+
+  /**
+   * Writes the initial byte and argument for the specified major type using the shortest form.
+   *
+   * @param major The major type
+   * @param value The unsigned argument
+   */
+  private void header(int major, long value) throws IOException {
+    ensure(9);
+    final int type = major << 5;
+    if (value < 24) {
+      this.buf[this.pos++] = (byte)(type | (int)value);
+    } else if (value < 0x100) {
+      this.buf[this.pos++] = (byte)(type | 24);
+      bigEndian(value, 1);
+    } else if (value < 0x10000) {
+      this.buf[this.pos++] = (byte)(type | 25);
+      bigEndian(value, 2);
+    } else if (value < 0x100000000L) {
+      this.buf[this.pos++] = (byte)(type | 26);
+      bigEndian(value, 4);
+    } else {
+      this.buf[this.pos++] = (byte)(type | 27);
+      bigEndian(value, 8);
+    }
+  }
+
+  /**
+   * Writes the content of the buffer to the underlying stream.
+   */
+  private void drain() throws IOException {
+    if (this.pos > 0) {
+      this.out.write(this.buf, 0, this.pos);
+      this.written += this.pos;
+      this.pos = 0;
+    }
+  }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A byte stream compressing its content in the gzip (RFC 1952) or deflate (zlib, RFC 1950)
+ * format.
+ *
+ * <p>Unlike <code>GZIPOutputStream</code>, the deflaters and output buffers are pooled: each
+ * deflater holds a large amount of native memory, which is costly to allocate for every
+ * document. The bytes written are passed to the deflater as is, so the buffer of the writer
+ * feeds the deflater directly.
+ *
+ * <p>The stream must be closed to complete the compressed output, or discarded so that the
+ * deflater can be reused.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+final class CompressedOutputStream extends OutputStream {
+
+  /**
+   * The content coding for gzip.
+   */
+  static final String GZIP = "gzip";
+
+  /**
+   * The content coding for deflate.
+   */
+  static final String DEFLATE = "deflate";
+
+  /**
+   * Size of the output buffers.
+   */
+  static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * The idle deflaters without zlib wrapper, for gzip.
+   */
+  private static final BlockingQueue<Deflater> RAW = new ArrayBlockingQueue<Deflater>(SerializerPool.DEFAULT_CAPACITY);
+
+  /**
+   * The idle deflaters with zlib wrapper, for deflate.
+   */
+  private static final BlockingQueue<Deflater> ZLIB = new ArrayBlockingQueue<Deflater>(SerializerPool.DEFAULT_CAPACITY);
+
+  /**
+   * The idle output buffers.
+   */
+  private static final BlockingQueue<byte[]> BUFFERS = new ArrayBlockingQueue<byte[]>(SerializerPool.DEFAULT_CAPACITY);
+
+  /**
+   * The header of gzip streams (no file name, modification time or flags).
+   */
+  private static final byte[] GZIP_HEADER = {
+    0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte)0xff
+  };
+
+  /**
+   * The underlying stream.
+   */
+  private final OutputStream out;
+
+  /**
+   * The checksum of the uncompressed content for gzip (<code>null</code> for deflate).
+   */
+  private final CRC32 crc;
+
+  /**
+   * The pool the deflater returns to.
+   */
+  private final BlockingQueue<Deflater> pool;
+
+  /**
+   * The deflater (<code>null</code> once the stream is closed or discarded).
+   */
+  private Deflater deflater;
+
+  /**
+   * The output buffer.
+   */
+  private byte[] buf;
+
+  /**
+   * Number of bytes currently in the output buffer.
+   */
+  private int count = 0;
+
+  /**
+   * Creates a new compressed stream.
+   *
+   * @param out      The underlying stream receiving the compressed content
+   * @param encoding The content coding, "gzip" or "deflate"
+   * @param level    The compression level from 0 to 9, or -1 for the default level
+   *
+   * @throws IllegalArgumentException If the coding or level is not supported
+   */
+  CompressedOutputStream(OutputStream out, String encoding, int level) {
+    check(encoding, level);
+    boolean gzip = GZIP.equals(encoding);
+    this.out = out;
+    this.crc = gzip? new CRC32() : null;
+    this.pool = gzip? RAW : ZLIB;
+    Deflater d = this.pool.poll();
+    if (d != null) {
+      d.setLevel(level);
+    } else {
+      d = new Deflater(level, gzip);
+    }
+    this.deflater = d;
+    byte[] b = BUFFERS.poll();
+    this.buf = b != null? b : new byte[BUFFER_SIZE];
+    if (gzip) {
+      System.arraycopy(GZIP_HEADER, 0, this.buf, 0, GZIP_HEADER.length);
+      this.count = GZIP_HEADER.length;
+    }
+  }
+
+  /**
+   * Checks that the content coding and level are supported.
+   *
+   * @param encoding The content coding, "gzip" or "deflate"
+   * @param level    The compression level from 0 to 9, or -1 for the default level
+   *
+   * @throws IllegalArgumentException If the coding or level is not supported
+   */
+  static void check(String encoding, int level) {
+    if (!GZIP.equals(encoding) && !DEFLATE.equals(encoding))
+      throw new IllegalArgumentException("Unsupported content coding: "+encoding);
+    if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+      throw new IllegalArgumentException("Invalid compression level: "+level);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] { (byte)b }, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    Deflater d = deflater();
+    if (len == 0) return;
+    if (this.crc != null) this.crc.update(b, off, len);
+    d.setInput(b, off, len);
+    while (!d.needsInput()) {
+      deflate(d);
+    }
+  }
+
+  /**
+   * Writes the compressed content so far to the underlying stream and flushes it.
+   *
+   * <p>The content still held by the deflater is not flushed, so that the compression ratio
+   * is not affected.
+   */
+  @Override
+  public void flush() throws IOException {
+    deflater();
+    drain();
+    this.out.flush();
+  }
+
+  /**
+   * Completes the compressed content and closes the underlying stream.
+   */
+  @Override
+  public void close() throws IOException {
+    Deflater d = this.deflater;
+    if (d == null) return;
+    try {
+      d.finish();
+      while (!d.finished()) {
+        deflate(d);
+      }
+      if (this.crc != null) {
+        trailer((int)this.crc.getValue());
+        trailer((int)d.getBytesRead());
+      }
+      drain();
+    } finally {
+      release();
+    }
+    this.out.close();
+  }
+
+  /**
+   * Discards the compressed content and returns the deflater to the pool, the underlying
+   * stream is left open.
+   *
+   * <p>Has no effect if the stream is already closed or discarded.
+   */
+  public void discard() {
+    if (this.deflater != null) release();
+  }
+
+  // Private helpers
+  // ---------------------------------------------------------------------------------------------
+
+  /**
+   * @return the deflater if the stream is still open.
+   *
+   * @throws IOException If the stream is closed or discarded
+   */
+  private Deflater deflater() throws IOException {
+    if (this.deflater == null) throw new IOException("Stream closed");
+    return this.deflater;
+  }
+
+  /**
+   * Compresses into the output buffer, draining it first if it is full.
+   */
+  private void deflate(Deflater d) throws IOException {
+    if (this.count == this.buf.length) drain();
+    this.count += d.deflate(this.buf, this.count, this.buf.length - this.count);
+  }
+
+  /**
+   * Appends a little-endian integer to the gzip trailer.
+   */
+  private void trailer(int value) throws IOException {
+    if (this.count + 4 > this.buf.length) drain();
+    this.buf[this.count++] = (byte)value;
+    this.buf[this.count++] = (byte)(value >> 8);
+    this.buf[this.count++] = (byte)(value >> 16);
+    this.buf[this.count++] = (byte)(value >> 24);
+  }
+
+  /**
+   * Writes the content of the output buffer to the underlying stream.
+   */
+  private void drain() throws IOException {
+    if (this.count > 0) {
+      this.out.write(this.buf, 0, this.count);
+      this.count = 0;
+    }
+  }
+
+  /**
+   * Returns the deflater and the buffer to their pools.
+   */
+  private void release() {
+    Deflater d = this.deflater;
+    this.deflater = null;
+    d.reset();
+    if (!this.pool.offer(d)) d.end();
+    BUFFERS.offer(this.buf);
+    this.buf = null;
+  }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+/**
+ * Emits Java Flight Recorder events for the conversions of a serializer.
+ *
+ * <p>This implementation does nothing: Flight Recorder events require Java 11, the version of
+ * this class in <code>src/main/java11</code> replaces it in the multi-release JAR when
+ * running on Java 11 or later.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+final class ConversionEvents {
+
+  /**
+   * Invoked when a document starts.
+   *
+   * @param systemId The system identifier of the document (may be <code>null</code>)
+   */
+  void startDocument(String systemId) {
+  }
+
+  /**
+   * Invoked when a document ends.
+   *
+   * @param bytes    The number of bytes written for the document
+   * @param elements The number of elements in the document
+   * @param warnings The number of warnings for the document
+   */
+  void endDocument(long bytes, long elements, int warnings) {
+  }
+
+  /**
+   * Invoked when the value of a property starts.
+   */
+  void startValue() {
+  }
+
+  /**
+   * Invoked when the value of a property ends.
+   *
+   * @param name   The name of the property
+   * @param length The number of characters in the value
+   */
+  void endValue(String name, long length) {
+  }
+
+  /**
+   * Indicates whether warnings are recorded, so that their message must be supplied.
+   *
+   * @return <code>true</code> if warnings are recorded; <code>false</code> otherwise.
+   */
+  boolean isWarningEnabled() {
+    return false;
+  }
+
+  /**
+   * Invoked when the serializer reports a warning.
+   *
+   * @param kind    The kind of warning
+   * @param message The warning message
+   */
+  void warning(String kind, String message) {
+  }
+
+}
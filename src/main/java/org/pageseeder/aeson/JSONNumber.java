@@ -0,0 +1,143 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+/**
+ * Checks the lexical form of numbers against the JSON grammar so that they can be written
+ * without being converted.
+ *
+ * <pre>
+ * number = [ minus ] int [ frac ] [ exp ]
+ * int    = zero / ( digit1-9 *DIGIT )
+ * frac   = decimal-point 1*DIGIT
+ * exp    = e [ minus / plus ] 1*DIGIT
+ * </pre>
+ *
+ * @see <a href="https://tools.ietf.org/html/rfc8259#section-6">RFC 8259 - Numbers</a>
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+final class JSONNumber {
+
+  /** Utility class. */
+  private JSONNumber() {
+  }
+
+  /**
+   * Indicates whether the specified string is a valid JSON number.
+   *
+   * @param s The string to check
+   *
+   * @return <code>true</code> if the string matches the JSON number grammar exactly;
+   *         <code>false</code> otherwise.
+   */
+  static boolean isValid(String s) {
+    final int n = s.length();
+    int i = 0;
+    if (i < n && s.charAt(i) == '-') i++;
+    // Integer part
+    if (i == n) return false;
+    char c = s.charAt(i);
+    if (c == '0') {
+      i++;
+    } else if (c >= '1' && c <= '9') {
+      i = digits(s, i+1);
+    } else {
+      return false;
+    }
+    // Fraction
+    if (i < n && s.charAt(i) == '.') {
+      int from = i+1;
+      i = digits(s, from);
+      if (i == from) return false;
+    }
+    // Exponent
+    if (i < n && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+      i++;
+      if (i < n && (s.charAt(i) == '+' || s.charAt(i) == '-')) i++;
+      int from = i;
+      i = digits(s, from);
+      if (i == from) return false;
+    }
+    return i == n;
+  }
+
+  /**
+   * Returns the specified number as a valid JSON number.
+   *
+   * <p>Valid JSON numbers are returned unchanged, other common notations of decimal numbers
+   * are rewritten: surrounding whitespace, plus signs and leading zeros are removed, and a
+   * zero is added to a fraction without an integer part (".5" becomes "0.5") while a decimal
+   * point without fraction is removed ("5." becomes "5").
+   *
+   * @param s The number to normalize
+   *
+   * @return the corresponding JSON number or <code>null</code> if the string is not a number
+   */
+  static String normalize(String s) {
+    if (isValid(s)) return s;
+    final String t = s.trim();
+    final int n = t.length();
+    StringBuilder json = new StringBuilder(n + 1);
+    int i = 0;
+    // Sign
+    if (i < n && (t.charAt(i) == '-' || t.charAt(i) == '+')) {
+      if (t.charAt(i) == '-') json.append('-');
+      i++;
+    }
+    // Integer part without leading zeros
+    int from = i;
+    i = digits(t, from);
+    int intDigits = i - from;
+    while (from < i-1 && t.charAt(from) == '0') from++;
+    json.append(intDigits > 0? t.substring(from, i) : "0");
+    // Fraction
+    int fracDigits = 0;
+    if (i < n && t.charAt(i) == '.') {
+      from = i+1;
+      i = digits(t, from);
+      fracDigits = i - from;
+      if (fracDigits > 0) json.append('.').append(t, from, i);
+    }
+    if (intDigits == 0 && fracDigits == 0) return null;
+    // Exponent without plus sign or leading zeros
+    if (i < n && (t.charAt(i) == 'e' || t.charAt(i) == 'E')) {
+      json.append('e');
+      i++;
+      if (i < n && (t.charAt(i) == '+' || t.charAt(i) == '-')) {
+        if (t.charAt(i) == '-') json.append('-');
+        i++;
+      }
+      from = i;
+      i = digits(t, from);
+      if (i == from) return null;
+      while (from < i-1 && t.charAt(from) == '0') from++;
+      json.append(t, from, i);
+    }
+    return i == n? json.toString() : null;
+  }
+
+  /**
+   * Returns the position after the digits starting at the specified position.
+   */
+  private static int digits(String s, int i) {
+    final int n = s.length();
+    while (i < n && s.charAt(i) >= '0' && s.charAt(i) <= '9') i++;
+    return i;
+  }
+
+}
@@ -1,160 +1,643 @@
-/*
- * Copyright 2010-2015 Allette Systems (Australia)
- * http://www.allette.com.au
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *    http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package org.pageseeder.aeson;
-
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.OutputStream;
-import java.io.Writer;
-import java.net.URI;
-
-import javax.xml.transform.Result;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.sax.SAXResult;
-import javax.xml.transform.stream.StreamResult;
-
-/**
- * A Result implementation automatically writing out JSON.
- *
- *
- * @see <a href="http://tools.ietf.org/html/rfc4627">The application/json Media Type for
- *  JavaScript Object Notation (JSON)</a>
- *
- * @author Christophe Lauret
- * @version 17 November 2013
- */
-public class JSONResult extends SAXResult implements Result {
-
-  /**
-   * Zero-argument default constructor.
-   *
-   * <p>transformation results will go to <code>System.out</code>.
-   */
-  public JSONResult() {
-    super(new JSONSerializer());
-  }
-
-  /**
-   * Construct a JSONResult from a File.
-   *
-   * @param f Must a non-null File reference.
-   */
-//  public JSONResult(File f) {
-//    super(new JSONSerializer(new FileWriter(f)));
-//  }
-
-  /**
-   * Construct a JSONResult from a byte stream.
-   *
-   * @param out A valid OutputStream.
-   */
-  public JSONResult(OutputStream out) {
-    super(new JSONSerializer(out));
-  }
-
-  /**
-   * Construct a JSONResult from a URL.
-   *
-   * @param systemId Must conforms to the URI syntax.
-   */
-//  public JSONResult(String systemId) {
-//
-//  }
-
-  /**
-   * Construct a JSONResult from a character stream.
-   *
-   * <p>It is generally preferable to use a byte stream so that the encoding can controlled by the xsl:output
-   * declaration; but can be convenient when using StringWriter
-   *
-   * @param writer A valid character stream.
-   */
-  public JSONResult(Writer writer) {
-    super(new JSONSerializer(writer));
-  }
-
-  // Static helpers
-  // ---------------------------------------------------------------------------------------------
-
-  /**
-   * Returns a new instance of the
-   *
-   * @param t
-   *
-   *
-   * @return
-   */
-  public static Result newInstanceIfSupported(Transformer t, StreamResult result) {
-    return supports(t)? newInstance(result) : result;
-  }
-
-  /**
-   * Returns a new instance from the specified stream result.
-   *
-   * @param result a non-null stream result instance.
-   *
-   * @return a new <code>JSONResult</code> instance using the same properties as the stream result.
-   */
-  public static JSONResult newInstance(StreamResult result) {
-    // try to set the JSON result using the byte stream from the stream result
-    OutputStream out = result.getOutputStream();
-    JSONResult json = null;
-    if (out != null) {
-      json = new JSONResult(out);
-    } else {
-      // try to set the JSON result using the character stream from the stream result
-      Writer writer = result.getWriter();
-      if (writer != null) {
-        json = new JSONResult(writer);
-      } else {
-        String systemId = result.getSystemId();
-        if (systemId != null) {
-          try {
-            File f = new File(URI.create(systemId));
-            FileOutputStream o = new FileOutputStream(f);
-            json = new JSONResult(o);
-          } catch (IOException ex) {
-            // TODO: Handle this proper
-            ex.printStackTrace();
-          }
-        } else {
-          json = new JSONResult();
-        }
-      }
-    }
-    json.setSystemId(result.getSystemId());
-    return json;
-  }
-
-  /**
-   * Indicates whether the specified transformer based on its output properties.
-   *
-   * <p>the transformer is considered to support this Result type if it uses the "xml" method and
-   * specifies the media type as "application/json".
-   *
-   * @param t the XSLT transformer implementation
-   *
-   * @return <code>true</code> if it matches the conditions above;
-   *         <code>false</code> otherwise.
-   */
-  public static boolean supports(Transformer t) {
-    String method = t.getOutputProperty("method");
-    String media = t.getOutputProperty("media-type");
-    return "xml".equals(method) && "application/json".equals(media);
-  }
-
-}
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.URI;
+import java.util.zip.Deflater;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamResult;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.ErrorHandler;
+
+/**
+ * A Result implementation automatically writing out JSON.
+ *
+ * <p>The JSON data model can also be written in a binary format by specifying its media type:
+ * CBOR with <code>application/cbor</code> and MessagePack with <code>application/msgpack</code>
+ * (or <code>application/x-msgpack</code> and <code>application/vnd.msgpack</code>). Binary
+ * formats must be written to a byte stream.
+ *
+ * <p>The output written to a byte stream or file can be compressed with gzip or deflate.
+ *
+ * @see <a href="http://tools.ietf.org/html/rfc4627">The application/json Media Type for
+ *  JavaScript Object Notation (JSON)</a>
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public class JSONResult extends SAXResult implements Result {
+
+  /**
+   * Media type for JSON.
+   */
+  public static final String JSON_MEDIA_TYPE = "application/json";
+
+  /**
+   * Media type for CBOR.
+   */
+  public static final String CBOR_MEDIA_TYPE = "application/cbor";
+
+  /**
+   * Media type for MessagePack.
+   */
+  public static final String MSGPACK_MEDIA_TYPE = "application/msgpack";
+
+  /**
+   * Content coding for gzip compression.
+   */
+  public static final String GZIP_ENCODING = CompressedOutputStream.GZIP;
+
+  /**
+   * Content coding for deflate (zlib) compression.
+   */
+  public static final String DEFLATE_ENCODING = CompressedOutputStream.DEFLATE;
+
+  /**
+   * Pool of serializers shared by results obtained with <code>acquire</code>.
+   */
+  private static final SerializerPool POOL = SerializerPool.SHARED;
+
+  /**
+   * Whether the serializer was obtained from the pool.
+   */
+  private final boolean pooled;
+
+  /**
+   * The stream to the file being written (may be <code>null</code>).
+   */
+  private final AtomicFileOutputStream file;
+
+  /**
+   * The stream compressing the output (may be <code>null</code>).
+   */
+  private final CompressedOutputStream compressed;
+
+  /**
+   * Zero-argument default constructor.
+   *
+   * <p>transformation results will go to <code>System.out</code>.
+   */
+  public JSONResult() {
+    super(new JSONSerializer());
+    this.pooled = false;
+    this.file = null;
+    this.compressed = null;
+  }
+
+  /**
+   * Construct a JSONResult from a File.
+   *
+   * @param f Must a non-null File reference.
+   *
+   * @throws TransformerException If the file cannot be written
+   */
+  public JSONResult(File f) throws TransformerException {
+    this(f, JSON_MEDIA_TYPE, 0);
+  }
+
+  /**
+   * Construct a JSONResult from a File using the format for the specified media type.
+   *
+   * <p>The output is written to a temporary file through a large buffer and replaces the
+   * file at the end of the document. If the transformation fails, use {@link #discard()} to
+   * delete the temporary file.
+   *
+   * @param f         Must a non-null File reference.
+   * @param mediaType The media type of the format to write
+   * @param sizeHint  The expected size of the file in bytes (0 if not known)
+   *
+   * @throws IllegalArgumentException If the media type is not supported
+   * @throws TransformerException If the file cannot be written
+   */
+  public JSONResult(File f, String mediaType, long sizeHint) throws TransformerException {
+    this(open(f, mediaType, sizeHint), null, Deflater.DEFAULT_COMPRESSION, mediaType);
+    setSystemId(f.toURI().toString());
+  }
+
+  /**
+   * Construct a JSONResult from a File using the format for the specified media type and
+   * compressing the output.
+   *
+   * <p>The output is written to a temporary file which replaces the file at the end of the
+   * document. If the transformation fails, use {@link #discard()} to delete the temporary
+   * file.
+   *
+   * @param f         Must a non-null File reference.
+   * @param mediaType The media type of the format to write
+   * @param encoding  The content coding, {@link #GZIP_ENCODING} or {@link #DEFLATE_ENCODING}
+   *                  (may be <code>null</code> for no compression)
+   * @param level     The compression level from 0 to 9, or -1 for the default level
+   *
+   * @throws IllegalArgumentException If the media type, coding or level is not supported
+   * @throws TransformerException If the file cannot be written
+   */
+  public JSONResult(File f, String mediaType, String encoding, int level) throws TransformerException {
+    this(open(f, mediaType, encoding, level), encoding, level, mediaType);
+    setSystemId(f.toURI().toString());
+  }
+
+  /**
+   * Construct a JSONResult from a byte stream.
+   *
+   * @param out A valid OutputStream.
+   */
+  public JSONResult(OutputStream out) {
+    super(new JSONSerializer(out));
+    this.pooled = false;
+    this.file = null;
+    this.compressed = null;
+  }
+
+  /**
+   * Construct a JSONResult from a byte stream using the format for the specified media type.
+   *
+   * @param out       A valid OutputStream.
+   * @param mediaType The media type of the format to write
+   *
+   * @throws IllegalArgumentException If the media type is not supported
+   */
+  public JSONResult(OutputStream out, String mediaType) {
+    super(newSerializer(out, mediaType));
+    this.pooled = false;
+    this.file = null;
+    this.compressed = null;
+  }
+
+  /**
+   * Construct a JSONResult from a byte stream using the format for the specified media type
+   * and compressing the output.
+   *
+   * <p>The compressed output is complete once the document ends. If the transformation fails,
+   * use {@link #discard()} so that the deflater can be reused.
+   *
+   * @param out       A valid OutputStream.
+   * @param mediaType The media type of the format to write
+   * @param encoding  The content coding, {@link #GZIP_ENCODING} or {@link #DEFLATE_ENCODING}
+   *                  (may be <code>null</code> for no compression)
+   * @param level     The compression level from 0 to 9, or -1 for the default level
+   *
+   * @throws IllegalArgumentException If the media type, coding or level is not supported
+   */
+  public JSONResult(OutputStream out, String mediaType, String encoding, int level) {
+    this(out, null, encoding != null? compress(out, mediaType, encoding, level) : null, mediaType);
+  }
+
+  /**
+   * Construct a JSONResult from a URL.
+   *
+   * @param systemId Must conforms to the URI syntax.
+   */
+//  public JSONResult(String systemId) {
+//
+//  }
+
+  /**
+   * Construct a JSONResult from a character stream.
+   *
+   * <p>It is generally preferable to use a byte stream so that the encoding can controlled by the xsl:output
+   * declaration; but can be convenient when using StringWriter
+   *
+   * @param writer A valid character stream.
+   */
+  public JSONResult(Writer writer) {
+    super(new JSONSerializer(writer));
+    this.pooled = false;
+    this.file = null;
+    this.compressed = null;
+  }
+
+  /**
+   * Construct a JSONResult from a pooled serializer.
+   *
+   * @param serializer The serializer obtained from the pool.
+   */
+  private JSONResult(JSONSerializer serializer) {
+    super(serializer);
+    this.pooled = true;
+    this.file = null;
+    this.compressed = null;
+  }
+
+  /**
+   * Construct a JSONResult writing to a file, compressing the output if a coding is specified.
+   *
+   * @param file      The stream to the file.
+   * @param encoding  The content coding (may be <code>null</code>)
+   * @param level     The compression level
+   * @param mediaType The media type of the format to write
+   */
+  private JSONResult(AtomicFileOutputStream file, String encoding, int level, String mediaType) {
+    this(file, file, encoding != null? new CompressedOutputStream(file, encoding, level) : null, mediaType);
+  }
+
+  /**
+   * Construct a JSONResult writing to the compressed stream if specified, to the stream
+   * otherwise.
+   *
+   * @param out        The stream to write to
+   * @param file       The stream to the file (may be <code>null</code>)
+   * @param compressed The compressed stream to write to (may be <code>null</code>)
+   * @param mediaType  The media type of the format to write
+   */
+  private JSONResult(OutputStream out, AtomicFileOutputStream file, CompressedOutputStream compressed, String mediaType) {
+    super(newSerializer(compressed != null? compressed : out, mediaType));
+    this.pooled = false;
+    this.file = file;
+    this.compressed = compressed;
+  }
+
+  /**
+   * Sets the error handler receiving the warnings reported by the serializer.
+   *
+   * <p>By default, warnings are printed on the console with limits.
+   *
+   * @param handler The error handler receiving the warnings (may be <code>null</code>)
+   */
+  public void setErrorHandler(ErrorHandler handler) {
+    ContentHandler serializer = getHandler();
+    if (serializer instanceof JSONSerializer) {
+      ((JSONSerializer)serializer).setErrorHandler(handler);
+    }
+  }
+
+  /**
+   * Sets the mapping declaring the types of properties by path.
+   *
+   * @param mapping The mapping (may be <code>null</code>)
+   */
+  public void setMapping(AesonMapping mapping) {
+    ContentHandler serializer = getHandler();
+    if (serializer instanceof JSONSerializer) {
+      ((JSONSerializer)serializer).setMapping(mapping);
+    }
+  }
+
+  /**
+   * Sets the projection selecting the values to serialize.
+   *
+   * @param projection The projection (may be <code>null</code> to serialize everything)
+   */
+  public void setProjection(AesonProjection projection) {
+    ContentHandler serializer = getHandler();
+    if (serializer instanceof JSONSerializer) {
+      ((JSONSerializer)serializer).setProjection(projection);
+    }
+  }
+
+  /**
+   * Sets the limits on what the serializer accepts for each document.
+   *
+   * @param limits The limits (may be <code>null</code> for no limits)
+   */
+  public void setLimits(SerializerLimits limits) {
+    ContentHandler serializer = getHandler();
+    if (serializer instanceof JSONSerializer) {
+      ((JSONSerializer)serializer).setLimits(limits);
+    }
+  }
+
+  /**
+   * Sets whether to normalize the values of properties typed as numbers.
+   *
+   * @param normalize <code>true</code> to normalize numbers (default);
+   *                  <code>false</code> to only accept valid JSON numbers.
+   *
+   * @see JSONSerializer#setNormalizeNumbers(boolean)
+   */
+  public void setNormalizeNumbers(boolean normalize) {
+    ContentHandler serializer = getHandler();
+    if (serializer instanceof JSONSerializer) {
+      ((JSONSerializer)serializer).setNormalizeNumbers(normalize);
+    }
+  }
+
+  /**
+   * Sets the statistics updated by the serializer at the end of each document.
+   *
+   * @param stats The statistics to update (may be <code>null</code>)
+   */
+  public void setStats(SerializerStats stats) {
+    ContentHandler serializer = getHandler();
+    if (serializer instanceof JSONSerializer) {
+      ((JSONSerializer)serializer).setStats(stats);
+    }
+  }
+
+  /**
+   * Discards the output if this result writes to a file, the file is left unchanged.
+   *
+   * <p>This method should be called when the transformation fails; it has no effect once the
+   * document is complete. If the output is compressed, the deflater is returned to the pool.
+   */
+  public void discard() {
+    if (this.compressed != null) {
+      this.compressed.discard();
+    }
+    if (this.file != null) {
+      this.file.discard();
+    }
+  }
+
+  /**
+   * Returns the serializer of this result to the pool if it was obtained using one of the
+   * <code>acquire</code> methods.
+   *
+   * <p>This method must only be called once the transformation is complete; the result must
+   * not be used afterwards. Calling this method more than once has no effect.
+   */
+  public void release() {
+    if (this.pooled) {
+      ContentHandler handler = getHandler();
+      if (handler instanceof JSONSerializer) {
+        setHandler(null);
+        POOL.release((JSONSerializer)handler);
+      }
+    }
+  }
+
+  // Static helpers
+  // ---------------------------------------------------------------------------------------------
+
+  /**
+   * Returns a JSONResult writing to the specified byte stream using a pooled serializer.
+   *
+   * <p>Use this method when serializing many documents, and invoke {@link #release()} after
+   * each transformation so that the serializer can be reused.
+   *
+   * @param out A valid OutputStream.
+   *
+   * @return a JSONResult using a pooled serializer.
+   */
+  public static JSONResult acquire(OutputStream out) {
+    return new JSONResult(POOL.acquire(out));
+  }
+
+  /**
+   * Returns a JSONResult writing to the specified character stream using a pooled serializer.
+   *
+   * <p>Use this method when serializing many documents, and invoke {@link #release()} after
+   * each transformation so that the serializer can be reused.
+   *
+   * @param writer A valid character stream.
+   *
+   * @return a JSONResult using a pooled serializer.
+   */
+  public static JSONResult acquire(Writer writer) {
+    return new JSONResult(POOL.acquire(writer));
+  }
+
+  /**
+   * Returns a new instance of the
+   *
+   * @param t
+   *
+   *
+   * @return
+   *
+   * @throws TransformerException If the file of the stream result cannot be written
+   */
+  public static Result newInstanceIfSupported(Transformer t, StreamResult result) throws TransformerException {
+    return supports(t)? newInstance(result, t.getOutputProperty("media-type")) : result;
+  }
+
+  /**
+   * Returns a new instance compressing the output if the transformer is supported, otherwise
+   * the stream result.
+   *
+   * @param t        The transformer
+   * @param result   a non-null stream result instance.
+   * @param encoding The content coding, {@link #GZIP_ENCODING} or {@link #DEFLATE_ENCODING}
+   *                 (may be <code>null</code> for no compression)
+   * @param level    The compression level from 0 to 9, or -1 for the default level
+   *
+   * @return a new <code>JSONResult</code> if supported; the stream result otherwise.
+   *
+   * @throws IllegalArgumentException If the coding or level is not supported, or the stream
+   *                                  result only has a character stream
+   * @throws TransformerException If the file of the stream result cannot be written
+   */
+  public static Result newInstanceIfSupported(Transformer t, StreamResult result, String encoding, int level)
+      throws TransformerException {
+    return supports(t)? newInstance(result, t.getOutputProperty("media-type"), encoding, level) : result;
+  }
+
+  /**
+   * Returns a new instance from the specified stream result.
+   *
+   * @param result a non-null stream result instance.
+   *
+   * @return a new <code>JSONResult</code> instance using the same properties as the stream result.
+   *
+   * @throws TransformerException If the file of the stream result cannot be written
+   */
+  public static JSONResult newInstance(StreamResult result) throws TransformerException {
+    return newInstance(result, JSON_MEDIA_TYPE);
+  }
+
+  /**
+   * Returns a new instance from the specified stream result using the format for the specified
+   * media type.
+   *
+   * @param result    a non-null stream result instance.
+   * @param mediaType The media type of the format to write
+   *
+   * @return a new <code>JSONResult</code> instance using the same properties as the stream result.
+   *
+   * @throws IllegalArgumentException If the media type is not supported or is a binary format
+   *                                  and the stream result only has a character stream
+   * @throws TransformerException If the file of the stream result cannot be written
+   */
+  public static JSONResult newInstance(StreamResult result, String mediaType) throws TransformerException {
+    return newInstance(result, mediaType, null, Deflater.DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * Returns a new instance from the specified stream result using the format for the specified
+   * media type and compressing the output.
+   *
+   * @param result    a non-null stream result instance.
+   * @param mediaType The media type of the format to write
+   * @param encoding  The content coding, {@link #GZIP_ENCODING} or {@link #DEFLATE_ENCODING}
+   *                  (may be <code>null</code> for no compression)
+   * @param level     The compression level from 0 to 9, or -1 for the default level
+   *
+   * @return a new <code>JSONResult</code> instance using the same properties as the stream result.
+   *
+   * @throws IllegalArgumentException If the media type, coding or level is not supported, or
+   *                                  the output is binary or compressed and the stream result
+   *                                  only has a character stream
+   * @throws TransformerException If the file of the stream result cannot be written
+   */
+  public static JSONResult newInstance(StreamResult result, String mediaType, String encoding, int level)
+      throws TransformerException {
+    // try to set the JSON result using the byte stream from the stream result
+    OutputStream out = result.getOutputStream();
+    JSONResult json = null;
+    if (out != null) {
+      json = new JSONResult(out, mediaType, encoding, level);
+    } else {
+      // try to set the JSON result using the character stream from the stream result
+      Writer writer = result.getWriter();
+      if (writer != null) {
+        if (!JSON_MEDIA_TYPE.equals(mediaType))
+          throw new IllegalArgumentException("Binary output requires a byte stream: "+mediaType);
+        if (encoding != null)
+          throw new IllegalArgumentException("Compressed output requires a byte stream: "+encoding);
+        json = new JSONResult(writer);
+      } else {
+        String systemId = result.getSystemId();
+        if (systemId != null) {
+          File f;
+          try {
+            f = new File(URI.create(systemId));
+          } catch (IllegalArgumentException ex) {
+            throw new TransformerException("Unable to write to "+systemId, ex);
+          }
+          json = new JSONResult(f, mediaType, encoding, level);
+        } else {
+          json = new JSONResult(System.out, mediaType, encoding, level);
+        }
+      }
+    }
+    json.setSystemId(result.getSystemId());
+    return json;
+  }
+
+  /**
+   * Indicates whether the specified transformer based on its output properties.
+   *
+   * <p>the transformer is considered to support this Result type if it uses the "xml" method and
+   * specifies the media type as "application/json" or the media type of one of the supported
+   * binary formats.
+   *
+   * @param t the XSLT transformer implementation
+   *
+   * @return <code>true</code> if it matches the conditions above;
+   *         <code>false</code> otherwise.
+   */
+  public static boolean supports(Transformer t) {
+    String method = t.getOutputProperty("method");
+    String media = t.getOutputProperty("media-type");
+    return "xml".equals(method) && isSupported(media);
+  }
+
+  /**
+   * Indicates whether the specified media type is supported.
+   *
+   * @param mediaType The media type
+   *
+   * @return <code>true</code> for JSON, CBOR or MessagePack; <code>false</code> otherwise.
+   */
+  public static boolean isSupported(String mediaType) {
+    return JSON_MEDIA_TYPE.equals(mediaType)
+        || CBOR_MEDIA_TYPE.equals(mediaType)
+        || isMessagePack(mediaType);
+  }
+
+  /**
+   * Indicates whether the media type is one of the media types used for MessagePack.
+   */
+  private static boolean isMessagePack(String mediaType) {
+    return MSGPACK_MEDIA_TYPE.equals(mediaType)
+        || "application/x-msgpack".equals(mediaType)
+        || "application/vnd.msgpack".equals(mediaType);
+  }
+
+  /**
+   * Opens a stream to the specified file after checking the media type.
+   *
+   * @param f         The file to write
+   * @param mediaType The media type of the format to write
+   * @param sizeHint  The expected size of the file in bytes (0 if not known)
+   *
+   * @return the stream to the file
+   *
+   * @throws IllegalArgumentException If the media type is not supported
+   * @throws TransformerException If the file cannot be written
+   */
+  private static AtomicFileOutputStream open(File f, String mediaType, long sizeHint) throws TransformerException {
+    if (!isSupported(mediaType)) throw new IllegalArgumentException("Unsupported media type: "+mediaType);
+    try {
+      return new AtomicFileOutputStream(f, sizeHint);
+    } catch (IOException ex) {
+      throw new TransformerException("Unable to write to "+f, ex);
+    }
+  }
+
+  /**
+   * Opens a stream to the specified file after checking the media type and compression.
+   *
+   * <p>No size hint is given for compressed files since their size is not known.
+   *
+   * @param f         The file to write
+   * @param mediaType The media type of the format to write
+   * @param encoding  The content coding (may be <code>null</code>)
+   * @param level     The compression level
+   *
+   * @return the stream to the file
+   *
+   * @throws IllegalArgumentException If the media type, coding or level is not supported
+   * @throws TransformerException If the file cannot be written
+   */
+  private static AtomicFileOutputStream open(File f, String mediaType, String encoding, int level) throws TransformerException {
+    if (encoding != null) CompressedOutputStream.check(encoding, level);
+    return open(f, mediaType, 0);
+  }
+
+  /**
+   * Returns a stream compressing the output after checking the media type.
+   *
+   * @param out       The stream receiving the compressed output
+   * @param mediaType The media type of the format to write
+   * @param encoding  The content coding
+   * @param level     The compression level
+   *
+   * @return the compressed stream
+   *
+   * @throws IllegalArgumentException If the media type, coding or level is not supported
+   */
+  private static CompressedOutputStream compress(OutputStream out, String mediaType, String encoding, int level) {
+    if (!isSupported(mediaType)) throw new IllegalArgumentException("Unsupported media type: "+mediaType);
+    return new CompressedOutputStream(out, encoding, level);
+  }
+
+  /**
+   * Returns a new serializer writing the format for the specified media type.
+   *
+   * @param out       A valid OutputStream.
+   * @param mediaType The media type of the format to write
+   *
+   * @return the corresponding serializer
+   *
+   * @throws IllegalArgumentException If the media type is not supported
+   */
+  private static JSONSerializer newSerializer(OutputStream out, String mediaType) {
+    if (JSON_MEDIA_TYPE.equals(mediaType)) return new JSONSerializer(out);
+    if (CBOR_MEDIA_TYPE.equals(mediaType)) return new JSONSerializer(new CBORWriter(out));
+    if (isMessagePack(mediaType)) return new JSONSerializer(new MessagePackWriter(out));
+    throw new IllegalArgumentException("Unsupported media type: "+mediaType);
+  }
+
+}
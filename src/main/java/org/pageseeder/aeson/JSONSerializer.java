@@ -1,453 +1,1054 @@
-/*
- * Copyright 2010-2015 Allette Systems (Australia)
- * http://www.allette.com.au
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *    http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package org.pageseeder.aeson;
-
-import java.io.OutputStream;
-import java.io.Writer;
-
-import javax.json.Json;
-import javax.json.JsonValue;
-import javax.json.stream.JsonGenerator;
-
-import org.pageseeder.aeson.JSONState.JSONContext;
-import org.pageseeder.aeson.JSONState.JSONType;
-import org.xml.sax.Attributes;
-import org.xml.sax.ContentHandler;
-import org.xml.sax.Locator;
-import org.xml.sax.SAXException;
-import org.xml.sax.SAXParseException;
-import org.xml.sax.helpers.DefaultHandler;
-
-/**
- * This serializer is a content handler implementation so that it can be used directly against an
- * XML instance or wrapped inside a SAXResult implementation.
- *
- * <p>When used as part of a <code>SAXResult</code>, it is preferable to use the dedicated
- * <code>JSONResult</code> class.
- *
- * @author Christophe Lauret
- * @version 23 November 2013
- */
-public final class JSONSerializer extends DefaultHandler implements ContentHandler {
-
-  /**
-   * Namespace used for instructions understood by this serializer.
-   */
-  public static final String NS_URI = "http://pageseeder.org/JSON";
-
-  /**
-   * JSON Generator from JSON Processing API.
-   */
-  private final JsonGenerator json;
-
-  /**
-   * Maintains the state of the serialization.
-   */
-  private final JSONState state = new JSONState();
-
-  /**
-   * The buffer for property values.
-   */
-  private final StringBuilder buffer = new StringBuilder();
-
-  /**
-   * The document locator used when reporting warnings.
-   */
-  private Locator locator = null;
-
-  // Constructors
-  // =============================================================================================
-
-  /**
-   * Zero-argument default constructor.
-   *
-   * <p>Parsed output will go to <code>System.out</code>.
-   */
-  public JSONSerializer() {
-    this.json = Json.createGenerator(System.out);
-  }
-
-  /**
-   * Construct a JSONSerializer from a byte stream.
-   *
-   * @param out A valid OutputStream.
-   */
-  public JSONSerializer(OutputStream out) {
-    this.json = Json.createGenerator(out);
-  }
-
-  /**
-   * Construct a JSONSerializer from a character stream.
-   *
-   * @param writer A valid character stream.
-   */
-  public JSONSerializer(Writer w) {
-    this.json = Json.createGenerator(w);
-  }
-
-  // Content Handler implementations
-  // =============================================================================================
-
-  @Override
-  public void startDocument() throws SAXException {
-    this.state.pushState();
-  }
-
-  @Override
-  public void endDocument() throws SAXException {
-    this.state.popState();
-    this.json.close();
-  }
-
-  @Override
-  public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
-    try {
-      if (!this.state.isContext(JSONContext.NULL)) {
-        if (NS_URI.equals(uri)) {
-          handleJSONElement(localName, atts);
-        } else {
-          handleElement(localName, atts);
-        }
-      } else {
-        this.state.pushState(JSONContext.NULL, atts, "");
-        warning(new SAXParseException("Ignoring element "+qName+" in null context", this.locator));
-      }
-    } catch (Exception ex) {
-      throw new SAXException(ex);
-    }
-  }
-
-  @Override
-  public void endElement(String uri, String localName, String qName) throws SAXException {
-    try {
-      // Preserve what we need of previous context
-      JSONContext wasContext = this.state.currentContext();
-      String wasName = this.state.currentName();
-
-      // Then return to parent
-      this.state.popState();
-
-      if (wasContext != JSONContext.NULL) {
-        if (NS_URI.equals(uri)) {
-
-          // One of the json elements
-          if ("array".equals(localName) || "object".equals(localName)) {
-            this.json.writeEnd();
-          }
-
-        } else if (wasContext == JSONContext.VALUE) {
-
-          // A property
-          String name = this.state.isContext(JSONContext.OBJECT)? wasName : null;
-          String value = this.buffer.toString();
-          JSONType type = this.state.getType(localName);
-          writeProperty(name, value, type);
-          this.buffer.setLength(0);
-
-        } else {
-          // A regular element
-          this.json.writeEnd();
-        }
-      }
-    } catch (Exception ex) {
-      throw new SAXException(ex);
-    }
-  }
-
-  @Override
-  public void warning(SAXParseException ex) {
-    // Construct a message for the warning
-    StringBuilder message = new StringBuilder();
-    String systemId = ex.getSystemId();
-    if (systemId != null) {
-      int sol = systemId.lastIndexOf('/');
-      message.append('[').append(sol != -1? systemId.substring(sol+1) : systemId).append("] ");
-    }
-    message.append(ex.getMessage());
-    if (ex.getLineNumber() != -1)
-      message.append(" at line ").append(ex.getLineNumber());
-    if (ex.getColumnNumber() != -1)
-      message.append(" column ").append(ex.getColumnNumber());
-    if (ex.getException() != null) {
-      message.append("; caused by ").append(ex.getException().getClass().getSimpleName());
-      message.append(": ").append(ex.getException().getMessage());
-    }
-    // And print on the console by default
-    System.err.println(message);
-  }
-
-  @Override
-  public void characters(char[] ch, int start, int len) throws SAXException {
-    if (this.state.isContext(JSONContext.VALUE)) {
-      this.buffer.append(ch, start, len);
-    }
-  }
-
-  @Override
-  public void setDocumentLocator(Locator locator) {
-    this.locator = locator;
-  }
-
-  // Helper methods
-  // =============================================================================================
-
-  /**
-   * Filter out namespace declarations (xmlns:*), XML attributes like (xml:*) and JSON
-   * serialization attributes (json:*).
-   *
-   * @param uri the namespace URI
-   * @return whether the attribute belonging to that namespace should be considered.
-   */
-  private static boolean filterNamespace(String uri) {
-    return !(NS_URI.equals(uri)
-         || "http://www.w3.org/2000/xmlns/".equals(uri)
-         || "http://www.w3.org/XML/1998/namespace".equals(uri));
-  }
-
-  /**
-   * Indicates whether the specified attributes include at least one attribute
-   * that should be serialized as a property.
-   *
-   * @param atts the attributes to loop through
-   * @return <code>true</code> if at least one attribute matched;
-   *         <code>false</code> otherwise.
-   */
-  private static boolean hasProperty(Attributes atts) {
-    final int upto = atts.getLength();
-    for (int i = 0; i < upto; i++) {
-      if (filterNamespace(atts.getURI(i))) return true;
-    }
-    return false;
-  }
-
-  /**
-   * Handles <code>json:*</code> elements and indicates whether the handler should continue.
-   *
-   * @param localName
-   * @param atts
-   *
-   * @throws SAXException
-   */
-  private void handleJSONElement(String localName, Attributes atts) {
-    String name = atts.getValue(NS_URI, "name");
-    if (name == null && this.state.isContext(JSONContext.OBJECT)) {
-      warning(new SAXParseException("Attribute json:name must be used to specify array/object name", this.locator));
-      name = localName;
-    }
-    if ("array".equals(localName)) {
-
-      // A JavaScript array explicitly
-      if (this.state.isContext(JSONContext.OBJECT))
-        this.json.writeStartArray(name);
-      else
-        this.json.writeStartArray();
-
-      this.state.pushState(JSONContext.ARRAY, atts, name);
-
-    } else if ("object".equals(localName)) {
-
-      // A JavaScript object explicitly
-      if (this.state.isContext(JSONContext.OBJECT))
-        this.json.writeStartObject(name);
-      else
-        this.json.writeStartObject();
-
-      this.state.pushState(JSONContext.OBJECT, atts, name);
-
-      // Serialize the attributes as value pairs
-      handleValuePairs(atts);
-
-    } else if ("null".equals(localName)) {
-
-      // A JavaScript null explicitly
-      if (this.state.isContext(JSONContext.ROOT)) {
-        // Illegal in root context!
-        warning(new SAXParseException("Illegal null as root, substituting for empty object", this.locator));
-        this.json.writeStartObject();
-        this.json.writeEnd();
-      } else if (this.state.isContext(JSONContext.OBJECT))
-        this.json.writeNull(name);
-      else
-        this.json.writeNull();
-
-      this.state.pushState(JSONContext.NULL, atts, name);
-
-    } else {
-      this.state.pushState(JSONContext.OBJECT, atts, name);
-      // An element we don't understand
-      warning(new SAXParseException("Unknown JSON element:"+localName, this.locator));
-    }
-  }
-
-  /**
-   * Handles <code>json:*</code> elements and indicates whether the handler should continue.
-   *
-   * @param localName
-   * @param atts
-   *
-   * @throws SAXException
-   */
-  private void handleElement(String localName, Attributes atts) {
-    String name = atts.getValue(NS_URI, "name");
-
-    // If the element name matches of the types, it's a property
-    if (this.state.getType(localName) != JSONType.DEFAULT) {
-      if (hasProperty(atts)) {
-        warning(new SAXParseException("Element "+localName+" is mapped to a property, also has properties!", this.locator));
-      }
-      if (name == null) name = localName;
-      this.state.pushState(JSONContext.VALUE, atts, name);
-
-    } else {
-      // Start object
-      if (this.state.isContext(JSONContext.OBJECT)) {
-        if (name == null) name = localName;
-        this.json.writeStartObject(name);
-      } else {
-        if (atts.getValue(NS_URI, "name") != null) {
-          warning(new SAXParseException("Attribute json:name is ignored in array/document context", this.locator));
-        }
-        this.json.writeStartObject();
-      }
-      this.state.pushState(JSONContext.OBJECT, atts, name);
-
-      // Serialize the attributes as value pairs
-      handleValuePairs(atts);
-    }
-  }
-
-  /**
-   * Serialize the attributes as value pairs within the context object.
-   *
-   * @param atts The attributes on the current element
-   */
-  private void handleValuePairs(Attributes atts) {
-    // Serialize the name value pairs from the attributes
-    final int upto = atts.getLength();
-    for (int i=0; i < upto; i++) {
-      if (filterNamespace(atts.getURI(i))) {
-        String name = atts.getLocalName(i);
-        String value = atts.getValue(i);
-        JSONType type = this.state.getType(name);
-        writeProperty(name, value, type);
-      }
-    }
-  }
-
-  /**
-   * Write the property
-   *
-   * @param name  The name of the property (may be <code>null</code>)
-   * @param value The value of the property
-   * @param type  The type of property
-   */
-  private void writeProperty(String name, String value, JSONType type) {
-    switch (type) {
-      case NUMBER:
-        asNumber(name, value);
-        break;
-      case BOOLEAN:
-        asBoolean(name, value);
-        break;
-      case NULL:
-        asNull(name);
-        break;
-      default:
-        asString(name, value);
-    }
-  }
-
-  /**
-   * Attempts to write the specified name/value pair as a number.
-   *
-   * <p>Will fallback on a string and report a warning if unable to convert to a number.
-   *
-   * @param name  The JSON name to write.
-   * @param value The JSON value to write.
-   */
-  private void asNumber(String name, String value) {
-    try {
-      if (value.indexOf('.') != -1) {
-        double number = Double.parseDouble(value);
-        if (name != null)
-          this.json.write(name, number);
-        else
-          this.json.write(number);
-      } else {
-        long number = Long.parseLong(value);
-        if (name != null)
-          this.json.write(name, number);
-        else
-          this.json.write(number);
-      }
-    } catch (NumberFormatException ex) {
-      asString(name, value);
-      warning(new SAXParseException("Unable to convert attribute '"+name+"' to a number", this.locator, ex));
-    }
-  }
-
-  /**
-   * Attempts to write the specified name/value pair as a boolean.
-   *
-   * <p>Will fallback on a string and report a warning if unable to convert to a boolean.
-   *
-   * @param name  The JSON name to write (may be <code>null</code>)
-   * @param value The JSON value to write.
-   */
-  private void asBoolean(String name, String value) {
-    if ("true".equals(value)) {
-      if (name != null)
-        this.json.write(name, true);
-      else
-        this.json.write(true);
-    } else if ("false".equals(value)) {
-      if (name != null)
-        this.json.write(name, false);
-      else
-        this.json.write(false);
-    } else {
-      asString(name, value);
-      warning(new SAXParseException("Unable to convert attribute '"+name+"' to a boolean", this.locator));
-    }
-  }
-
-  /**
-   * Attempts to write the specified name/value pair as a <code>null</code>.
-   *
-   * @param name  The JSON name to write (may be <code>null</code>)
-   * @param value The JSON value to write.
-   */
-  private void asNull(String name) {
-    if (name != null)
-      this.json.write(name, JsonValue.NULL);
-    else
-      this.json.write(JsonValue.NULL);
-  }
-
-  /**
-   * Writes the specified string property as a string.
-   *
-   * @param name  The JSON name to write (may be <code>null</code>)
-   * @param value The JSON value to write.
-   */
-  private void asString(String name, String value) {
-    if (name != null)
-      this.json.write(name, value);
-    else
-      this.json.write(value);
-  }
-
-}
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.pageseeder.aeson.JSONState.JSONContext;
+import org.pageseeder.aeson.JSONState.JSONType;
+import org.pageseeder.aeson.SerializerLimits.Limit;
+import org.pageseeder.aeson.SerializerStats.Warning;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * This serializer is a content handler implementation so that it can be used directly against an
+ * XML instance or wrapped inside a SAXResult implementation.
+ *
+ * <p>When used as part of a <code>SAXResult</code>, it is preferable to use the dedicated
+ * <code>JSONResult</code> class.
+ *
+ * <p>Warnings are reported to the error handler if one is specified. Otherwise, they are
+ * counted and printed on <code>System.err</code> up to a limit for each document and a
+ * limit per second shared by all serializers, so that invalid input cannot turn the console
+ * into a bottleneck.
+ *
+ * <p>Limits can be set on the depth, output size, length of values and number of attributes,
+ * so that a document exceeding them is rejected with a {@link LimitExceededException} as
+ * soon as it does.
+ *
+ * <p>What the serializer does can be measured by specifying statistics to update at the end
+ * of each document.
+ *
+ * <p>On Java 11 or later, the serializer also emits Flight Recorder events for each document,
+ * for property values which are slow to serialize and for warnings. They cost nothing unless
+ * a recording is running and has these events enabled.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class JSONSerializer extends DefaultHandler implements ContentHandler {
+
+  /**
+   * Namespace used for instructions understood by this serializer.
+   */
+  public static final String NS_URI = "http://pageseeder.org/JSON";
+
+  /**
+   * Above this capacity, the value buffer is trimmed when the serializer is reset.
+   */
+  private static final int MAX_RETAINED_BUFFER = 8192;
+
+  /**
+   * Maximum number of warnings printed for each document when there is no error handler.
+   */
+  private static final int MAX_PRINTED_PER_DOCUMENT = 10;
+
+  /**
+   * Maximum number of warnings printed per second by all serializers.
+   */
+  private static final int MAX_PRINTED_PER_SECOND = 100;
+
+  /**
+   * The second in which warnings are currently printed.
+   */
+  private static final AtomicLong PRINT_SECOND = new AtomicLong();
+
+  /**
+   * The number of warnings printed during that second.
+   */
+  private static final AtomicInteger PRINTED = new AtomicInteger();
+
+  /**
+   * Writes the output, JSON text as UTF-8 unless another format is specified.
+   */
+  private final JSONSink json;
+
+  /**
+   * Maintains the state of the serialization.
+   */
+  private final JSONState state = new JSONState();
+
+  /**
+   * The buffer for property values which must be parsed (numbers and booleans).
+   */
+  private final StringBuilder buffer = new StringBuilder();
+
+  /**
+   * Whether the current property value is a string streamed directly to the output.
+   */
+  private boolean streaming = false;
+
+  /**
+   * The number of characters of the current string value streamed so far.
+   */
+  private long streamed = 0;
+
+  /**
+   * The document locator used when reporting warnings.
+   */
+  private Locator locator = null;
+
+  /**
+   * Whether to close the underlying stream at the end of the document (or only flush it).
+   */
+  private boolean closeStream = true;
+
+  /**
+   * Whether to rewrite numbers which are not valid JSON numbers.
+   */
+  private boolean normalizeNumbers = true;
+
+  /**
+   * Receives the warnings (may be <code>null</code>).
+   */
+  private ErrorHandler errorHandler = null;
+
+  /**
+   * Number of warnings for the current document.
+   */
+  private int warnings = 0;
+
+  /**
+   * Number of warnings for the current document which were not printed.
+   */
+  private int suppressed = 0;
+
+  /**
+   * System identifier of the current document for the warnings which were not printed.
+   */
+  private String systemId = null;
+
+  /**
+   * The counts for the current document.
+   */
+  private final SerializerStats counts = new SerializerStats();
+
+  /**
+   * The statistics receiving the counts at the end of each document (may be <code>null</code>).
+   */
+  private SerializerStats stats = null;
+
+  /**
+   * The time the current document started if statistics are collected.
+   */
+  private long startTime = 0;
+
+  /**
+   * The number of bytes written by the sink when the current document started.
+   */
+  private long startBytes = 0;
+
+  /**
+   * Evaluates the projection selecting the values to serialize (may be <code>null</code>).
+   */
+  private AesonProjection.Matcher projection = null;
+
+  /**
+   * The depth within an element skipped by the projection (0 if not skipping).
+   */
+  private int skipped = 0;
+
+  /**
+   * The maximum nesting depth of elements.
+   */
+  private int maxDepth = Integer.MAX_VALUE;
+
+  /**
+   * The maximum number of bytes of output for a document.
+   */
+  private long maxOutputSize = Long.MAX_VALUE;
+
+  /**
+   * The maximum number of characters of a value.
+   */
+  private int maxValueLength = Integer.MAX_VALUE;
+
+  /**
+   * The maximum number of attributes of an element.
+   */
+  private int maxAttributes = Integer.MAX_VALUE;
+
+  /**
+   * Emits Flight Recorder events.
+   */
+  private final ConversionEvents events = new ConversionEvents();
+
+  // Constructors
+  // =============================================================================================
+
+  /**
+   * Zero-argument default constructor.
+   *
+   * <p>Parsed output will go to <code>System.out</code>.
+   */
+  public JSONSerializer() {
+    this.json = new JSONWriter(System.out);
+  }
+
+  /**
+   * Construct a JSONSerializer from a byte stream.
+   *
+   * @param out A valid OutputStream.
+   */
+  public JSONSerializer(OutputStream out) {
+    this.json = new JSONWriter(out);
+  }
+
+  /**
+   * Construct a JSONSerializer from a character stream.
+   *
+   * @param writer A valid character stream.
+   */
+  public JSONSerializer(Writer w) {
+    this.json = new JSONWriter(w);
+  }
+
+  /**
+   * Construct a JSONSerializer writing the JSON data model to the specified sink.
+   *
+   * @param sink The sink receiving the output.
+   */
+  JSONSerializer(JSONSink sink) {
+    this.json = sink;
+  }
+
+  // Lifecycle
+  // =============================================================================================
+
+  /**
+   * Resets this serializer so that it can be reused to serialize another document to the
+   * specified byte stream.
+   *
+   * <p>Any state left from a previous document is discarded, but the buffers are retained.
+   *
+   * @param out A valid OutputStream.
+   */
+  public void reset(OutputStream out) {
+    this.json.reset(out);
+    clear();
+  }
+
+  /**
+   * Resets this serializer so that it can be reused to serialize another document to the
+   * specified character stream.
+   *
+   * <p>Any state left from a previous document is discarded, but the buffers are retained.
+   *
+   * @param writer A valid character stream.
+   *
+   * @throws UnsupportedOperationException If the serializer produces a binary format
+   */
+  public void reset(Writer writer) {
+    this.json.reset(writer);
+    clear();
+  }
+
+  /**
+   * Detaches this serializer from its stream and discards the state and options of the last
+   * document, so that an idle serializer does not retain the objects supplied by the caller.
+   *
+   * <p>The serializer must be reset before it is used again.
+   */
+  void release() {
+    this.json.reset((OutputStream)null);
+    clear();
+  }
+
+  /**
+   * Clears the state, buffer and locator left from a previous document.
+   */
+  private void clear() {
+    this.state.clear();
+    this.buffer.setLength(0);
+    if (this.buffer.capacity() > MAX_RETAINED_BUFFER) {
+      this.buffer.trimToSize();
+    }
+    this.streaming = false;
+    this.locator = null;
+    this.closeStream = true;
+    this.normalizeNumbers = true;
+    this.errorHandler = null;
+    this.warnings = 0;
+    this.suppressed = 0;
+    this.systemId = null;
+    this.counts.clear();
+    this.stats = null;
+    this.state.setMapping(null);
+    this.projection = null;
+    this.skipped = 0;
+    setLimits(null);
+  }
+
+  /**
+   * Writes any buffered output and flushes the underlying stream.
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  void flush() throws IOException {
+    this.json.flush();
+  }
+
+  /**
+   * Sets whether the underlying stream should be closed at the end of the document.
+   *
+   * <p>By default, the stream is closed; otherwise it is only flushed.
+   *
+   * @param close <code>true</code> to close the stream; <code>false</code> to flush it only.
+   */
+  void setCloseStream(boolean close) {
+    this.closeStream = close;
+  }
+
+  /**
+   * Sets whether to produce line-delimited JSON (also known as JSON Lines or NDJSON).
+   *
+   * <p>When enabled, the document is written on a single line terminated by a line feed; if the
+   * document element is a <code>json:array</code>, each of its children is written on its own
+   * line instead of an array.
+   *
+   * <p>This option must be set before the document starts and is cleared when the serializer
+   * is reset.
+   *
+   * @param lines <code>true</code> for line-delimited output; <code>false</code> otherwise.
+   *
+   * @throws UnsupportedOperationException If the serializer produces a binary format
+   */
+  public void setLineDelimited(boolean lines) {
+    this.json.setLineDelimited(lines);
+  }
+
+  /**
+   * Sets whether to normalize the values of properties typed as numbers.
+   *
+   * <p>By default, numbers are normalized: values matching the JSON number grammar are written
+   * as is, and other common notations such as "+1", "007", ".5" or " 5 " are rewritten as
+   * valid JSON numbers. When numbers are not normalized, only values matching the grammar
+   * exactly are written as numbers; others are written as strings and a warning is reported.
+   *
+   * <p>This option is restored to its default when the serializer is reset.
+   *
+   * @param normalize <code>true</code> to normalize numbers (default);
+   *                  <code>false</code> to only accept valid JSON numbers.
+   */
+  public void setNormalizeNumbers(boolean normalize) {
+    this.normalizeNumbers = normalize;
+  }
+
+  /**
+   * Sets the error handler receiving the warnings.
+   *
+   * <p>If the error handler is <code>null</code>, warnings are printed on the console with
+   * limits. The error handler is cleared when the serializer is reset.
+   *
+   * @param handler The error handler receiving the warnings (may be <code>null</code>)
+   */
+  public void setErrorHandler(ErrorHandler handler) {
+    this.errorHandler = handler;
+  }
+
+  /**
+   * Sets the mapping declaring the types of properties by path.
+   *
+   * <p>Types declared in the document take precedence over the mapping. This option must be
+   * set before the document starts and is cleared when the serializer is reset.
+   *
+   * @param mapping The mapping (may be <code>null</code>)
+   */
+  public void setMapping(AesonMapping mapping) {
+    this.state.setMapping(mapping);
+  }
+
+  /**
+   * Sets the projection selecting the values to serialize.
+   *
+   * <p>Elements for values which are not selected are skipped with their descendants as they
+   * start, so they cost almost nothing. This option must be set before the document starts
+   * and is cleared when the serializer is reset.
+   *
+   * @param projection The projection (may be <code>null</code> to serialize everything)
+   */
+  public void setProjection(AesonProjection projection) {
+    this.projection = projection != null? projection.newMatcher() : null;
+  }
+
+  /**
+   * Sets the limits on what the serializer accepts for each document.
+   *
+   * <p>The limits are copied, so later changes to the limits have no effect on this
+   * serializer. This option must be set before the document starts and is cleared when the
+   * serializer is reset.
+   *
+   * @param limits The limits (may be <code>null</code> for no limits)
+   */
+  public void setLimits(SerializerLimits limits) {
+    this.maxDepth = limits != null? limits.getMaxDepth() : Integer.MAX_VALUE;
+    this.maxOutputSize = limits != null? limits.getMaxOutputSize() : Long.MAX_VALUE;
+    this.maxValueLength = limits != null? limits.getMaxValueLength() : Integer.MAX_VALUE;
+    this.maxAttributes = limits != null? limits.getMaxAttributes() : Integer.MAX_VALUE;
+  }
+
+  /**
+   * Sets the statistics to update at the end of each document.
+   *
+   * <p>The same statistics can be shared by several serializers. The time spent in the
+   * serializer is only measured when statistics are specified. They are cleared when the
+   * serializer is reset.
+   *
+   * @param stats The statistics to update (may be <code>null</code>)
+   */
+  public void setStats(SerializerStats stats) {
+    this.stats = stats;
+  }
+
+  /**
+   * Returns the number of warnings reported for the current or last document.
+   *
+   * @return the number of warnings including those which were not printed.
+   */
+  public int getWarningCount() {
+    return this.warnings;
+  }
+
+  // Content Handler implementations
+  // =============================================================================================
+
+  @Override
+  public void startDocument() throws SAXException {
+    this.startTime = enter();
+    this.state.pushState();
+    if (this.projection != null) this.projection.reset();
+    this.skipped = 0;
+    this.warnings = 0;
+    this.suppressed = 0;
+    this.systemId = this.locator != null? this.locator.getSystemId() : null;
+    this.counts.clear();
+    this.startBytes = this.json.getBytesWritten();
+    this.events.startDocument(this.systemId);
+    exit(this.startTime);
+  }
+
+  @Override
+  public void endDocument() throws SAXException {
+    final long t = enter();
+    this.state.popState();
+    if (this.suppressed > 0 && isPrintable()) {
+      print(new SAXParseException(this.suppressed+" more warning(s)", null, this.systemId, -1, -1));
+    }
+    try {
+      if (this.closeStream) this.json.close();
+      else this.json.flush();
+    } catch (IOException ex) {
+      throw new SAXException(ex);
+    }
+    this.events.endDocument(this.json.getBytesWritten() - this.startBytes, this.counts.elements, this.warnings);
+    if (this.stats != null) {
+      exit(t);
+      this.counts.documents = 1;
+      this.counts.bytes = this.json.getBytesWritten() - this.startBytes;
+      this.counts.totalNanos = System.nanoTime() - this.startTime;
+      this.stats.add(this.counts);
+    }
+  }
+
+  @Override
+  public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+    if (this.skipped > 0 || (this.projection != null && !project(localName, atts))) {
+      this.skipped++;
+      return;
+    }
+    final long t = enter();
+    this.counts.elements++;
+    if (this.state.depth() >= this.maxDepth)
+      throw exceeded(Limit.DEPTH, this.maxDepth);
+    if (atts.getLength() > this.maxAttributes)
+      throw exceeded(Limit.ATTRIBUTES, this.maxAttributes);
+    if (this.json.getOutputSize() - this.startBytes > this.maxOutputSize)
+      throw exceeded(Limit.OUTPUT_SIZE, this.maxOutputSize);
+    try {
+      if (this.state.isContext(JSONContext.NULL)) {
+        this.state.pushState(JSONContext.NULL, localName, atts, "");
+        warning(Warning.IGNORED_ELEMENT, "Ignoring element ", qName, " in null context", null);
+      } else if (this.state.isContext(JSONContext.VALUE)) {
+        this.state.pushState(JSONContext.NULL, localName, atts, "");
+        warning(Warning.IGNORED_ELEMENT, "Ignoring element ", qName, " in property value", null);
+      } else if (NS_URI.equals(uri)) {
+        handleJSONElement(localName, atts);
+      } else {
+        handleElement(localName, atts);
+      }
+    } catch (SAXException ex) {
+      throw ex;
+    } catch (Exception ex) {
+      throw new SAXException(ex);
+    }
+    if (this.state.depth() > this.counts.maxDepth) {
+      this.counts.maxDepth = this.state.depth();
+    }
+    exit(t);
+  }
+
+  @Override
+  public void endElement(String uri, String localName, String qName) throws SAXException {
+    if (this.skipped > 0) {
+      this.skipped--;
+      return;
+    }
+    final long t = enter();
+    try {
+      // Preserve what we need of previous context
+      JSONContext wasContext = this.state.currentContext();
+      String wasName = this.state.currentName();
+
+      // Then return to parent
+      this.state.popState();
+      if (this.projection != null) this.projection.pop();
+
+      if (wasContext != JSONContext.NULL) {
+        if (NS_URI.equals(uri)) {
+
+          // One of the json elements
+          if ("array".equals(localName)) {
+            this.json.writeEnd(false);
+          } else if ("object".equals(localName)) {
+            this.json.writeEnd(true);
+          }
+
+        } else if (wasContext == JSONContext.VALUE && this.streaming) {
+
+          // A string property already written
+          this.json.writeEndString();
+          this.streaming = false;
+          this.events.endValue(wasName, this.streamed);
+
+        } else if (wasContext == JSONContext.VALUE) {
+
+          // A property
+          String name = this.state.isContext(JSONContext.OBJECT)? wasName : null;
+          String value = this.buffer.toString();
+          JSONType type = this.state.getType(localName);
+          writeProperty(name, value, type);
+          this.buffer.setLength(0);
+          this.events.endValue(wasName, value.length());
+
+        } else {
+          // A regular element
+          this.json.writeEnd(true);
+        }
+      }
+    } catch (SAXException ex) {
+      throw ex;
+    } catch (Exception ex) {
+      throw new SAXException(ex);
+    }
+    exit(t);
+  }
+
+  @Override
+  public void warning(SAXParseException ex) throws SAXException {
+    this.warnings++;
+    this.counts.warnings[Warning.PARSER.ordinal()]++;
+    this.events.warning(Warning.PARSER.name(), ex.getMessage());
+    if (this.errorHandler != null) {
+      this.errorHandler.warning(ex);
+    } else if (isPrintable()) {
+      print(ex);
+    }
+  }
+
+  @Override
+  public void error(SAXParseException ex) throws SAXException {
+    if (this.errorHandler != null) {
+      this.errorHandler.error(ex);
+    }
+  }
+
+  @Override
+  public void fatalError(SAXParseException ex) throws SAXException {
+    if (this.errorHandler != null) {
+      this.errorHandler.fatalError(ex);
+    }
+    throw ex;
+  }
+
+  @Override
+  public void characters(char[] ch, int start, int len) throws SAXException {
+    if (this.skipped == 0 && this.state.isContext(JSONContext.VALUE)) {
+      final long t = enter();
+      if (this.streaming) {
+        if (this.streamed + len > this.maxValueLength)
+          throw exceeded(Limit.VALUE_LENGTH, this.maxValueLength);
+        try {
+          this.json.writeStringChars(ch, start, len);
+          this.streamed += len;
+        } catch (IOException ex) {
+          throw new SAXException(ex);
+        }
+        if (this.json.getOutputSize() - this.startBytes > this.maxOutputSize)
+          throw exceeded(Limit.OUTPUT_SIZE, this.maxOutputSize);
+      } else {
+        if (this.buffer.length() + len > this.maxValueLength)
+          throw exceeded(Limit.VALUE_LENGTH, this.maxValueLength);
+        this.buffer.append(ch, start, len);
+      }
+      exit(t);
+    }
+  }
+
+  @Override
+  public void setDocumentLocator(Locator locator) {
+    this.locator = locator;
+  }
+
+  // Helper methods
+  // =============================================================================================
+
+  /**
+   * Returns the current time if statistics are collected.
+   *
+   * @return the current time in nanoseconds or 0.
+   */
+  private long enter() {
+    return this.stats != null? System.nanoTime() : 0;
+  }
+
+  /**
+   * Counts the time since the specified time as spent in the serializer.
+   *
+   * @param t The time returned by {@link #enter()}
+   */
+  private void exit(long t) {
+    if (t != 0) this.counts.serializerNanos += System.nanoTime() - t;
+  }
+
+  /**
+   * Returns the exception to throw when a limit is exceeded at the current location.
+   *
+   * @param limit The limit which was exceeded
+   * @param max   The maximum allowed
+   *
+   * @return the exception to throw
+   */
+  private LimitExceededException exceeded(Limit limit, long max) {
+    return new LimitExceededException(limit, max, this.locator);
+  }
+
+  /**
+   * Reports a warning at the current location.
+   *
+   * <p>The message is assembled from its parts and the exception created only if the warning
+   * is reported to the error handler, printed or recorded as an event.
+   *
+   * @param kind   The kind of warning
+   * @param prefix The start of the warning message
+   * @param name   The name of the node the warning is about (may be <code>null</code>)
+   * @param suffix The end of the warning message (may be <code>null</code>)
+   * @param cause  The cause of the warning (may be <code>null</code>)
+   *
+   * @throws SAXException If thrown by the error handler
+   */
+  private void warning(Warning kind, String prefix, String name, String suffix, Exception cause) throws SAXException {
+    this.warnings++;
+    this.counts.warnings[kind.ordinal()]++;
+    boolean recorded = this.events.isWarningEnabled();
+    boolean printed = this.errorHandler == null && isPrintable();
+    if (!recorded && !printed && this.errorHandler == null) return;
+    String message = name != null || suffix != null? message(prefix, name, suffix) : prefix;
+    if (recorded) {
+      this.events.warning(kind.name(), message);
+    }
+    if (this.errorHandler != null) {
+      this.errorHandler.warning(new SAXParseException(message, this.locator, cause));
+    } else if (printed) {
+      print(new SAXParseException(message, this.locator, cause));
+    }
+  }
+
+  /**
+   * Assembles a warning message from its parts.
+   *
+   * @param prefix The start of the warning message
+   * @param name   The name of the node the warning is about (may be <code>null</code>)
+   * @param suffix The end of the warning message (may be <code>null</code>)
+   *
+   * @return the warning message
+   */
+  private static String message(String prefix, String name, String suffix) {
+    StringBuilder message = new StringBuilder(prefix);
+    message.append(name);
+    if (suffix != null) message.append(suffix);
+    return message.toString();
+  }
+
+  /**
+   * Indicates whether a warning can be printed on the console within the limits, and counts
+   * it as suppressed otherwise.
+   *
+   * @return <code>true</code> if the warning should be printed; <code>false</code> otherwise.
+   */
+  private boolean isPrintable() {
+    if (this.warnings - this.suppressed <= MAX_PRINTED_PER_DOCUMENT) {
+      long now = System.currentTimeMillis() / 1000;
+      long second = PRINT_SECOND.get();
+      if (second != now && PRINT_SECOND.compareAndSet(second, now)) {
+        PRINTED.set(0);
+      }
+      if (PRINTED.incrementAndGet() <= MAX_PRINTED_PER_SECOND) return true;
+    }
+    this.suppressed++;
+    return false;
+  }
+
+  /**
+   * Prints the specified warning on the console.
+   *
+   * @param ex The warning to print
+   */
+  private static void print(SAXParseException ex) {
+    // Construct a message for the warning
+    StringBuilder message = new StringBuilder();
+    String systemId = ex.getSystemId();
+    if (systemId != null) {
+      int sol = systemId.lastIndexOf('/');
+      message.append('[').append(sol != -1? systemId.substring(sol+1) : systemId).append("] ");
+    }
+    message.append(ex.getMessage());
+    if (ex.getLineNumber() != -1)
+      message.append(" at line ").append(ex.getLineNumber());
+    if (ex.getColumnNumber() != -1)
+      message.append(" column ").append(ex.getColumnNumber());
+    if (ex.getException() != null) {
+      message.append("; caused by ").append(ex.getException().getClass().getSimpleName());
+      message.append(": ").append(ex.getException().getMessage());
+    }
+    System.err.println(message);
+  }
+
+  /**
+   * Evaluates the projection for the specified element.
+   *
+   * <p>In an object, elements are identified by the name of their property, otherwise by
+   * their index.
+   *
+   * @param localName The local name of the element
+   * @param atts      The attributes of the element
+   *
+   * @return <code>true</code> if the element must be serialized;
+   *         <code>false</code> if it must be skipped.
+   */
+  private boolean project(String localName, Attributes atts) {
+    if (this.state.isContext(JSONContext.OBJECT)) {
+      String name = atts.getValue(NS_URI, "name");
+      return this.projection.push(name != null? name : localName, false);
+    }
+    return this.projection.push(null, true);
+  }
+
+  /**
+   * Filter out namespace declarations (xmlns:*), XML attributes like (xml:*) and JSON
+   * serialization attributes (json:*).
+   *
+   * @param uri the namespace URI
+   * @return whether the attribute belonging to that namespace should be considered.
+   */
+  private static boolean filterNamespace(String uri) {
+    return !(NS_URI.equals(uri)
+         || "http://www.w3.org/2000/xmlns/".equals(uri)
+         || "http://www.w3.org/XML/1998/namespace".equals(uri));
+  }
+
+  /**
+   * Indicates whether the specified attributes include at least one attribute
+   * that should be serialized as a property.
+   *
+   * @param atts the attributes to loop through
+   * @return <code>true</code> if at least one attribute matched;
+   *         <code>false</code> otherwise.
+   */
+  private static boolean hasProperty(Attributes atts) {
+    final int upto = atts.getLength();
+    for (int i = 0; i < upto; i++) {
+      if (filterNamespace(atts.getURI(i))) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Handles <code>json:*</code> elements and indicates whether the handler should continue.
+   *
+   * @param localName
+   * @param atts
+   *
+   * @throws IOException If thrown while writing the JSON
+   * @throws SAXException If thrown by the error handler
+   */
+  private void handleJSONElement(String localName, Attributes atts) throws IOException, SAXException {
+    String name = atts.getValue(NS_URI, "name");
+    if (name == null && this.state.isContext(JSONContext.OBJECT)) {
+      warning(Warning.MISSING_NAME, "Attribute json:name must be used to specify array/object name", null, null, null);
+      name = localName;
+    }
+    if ("array".equals(localName)) {
+
+      // A JavaScript array explicitly
+      this.counts.arrays++;
+      if (this.state.isContext(JSONContext.OBJECT))
+        this.json.writeStartArray(name);
+      else
+        this.json.writeStartArray(null);
+
+      this.state.pushState(JSONContext.ARRAY, "json:array", atts, name);
+
+    } else if ("object".equals(localName)) {
+
+      // A JavaScript object explicitly
+      this.counts.objects++;
+      if (this.state.isContext(JSONContext.OBJECT))
+        this.json.writeStartObject(name);
+      else
+        this.json.writeStartObject(null);
+
+      this.state.pushState(JSONContext.OBJECT, "json:object", atts, name);
+
+      // Serialize the attributes as value pairs
+      handleValuePairs(atts);
+
+    } else if ("null".equals(localName)) {
+
+      // A JavaScript null explicitly
+      if (this.state.isContext(JSONContext.ROOT)) {
+        // Illegal in root context!
+        warning(Warning.ILLEGAL_NULL, "Illegal null as root, substituting for empty object", null, null, null);
+        this.counts.objects++;
+        this.json.writeStartObject(null);
+        this.json.writeEnd(true);
+      } else {
+        this.counts.nulls++;
+        if (this.state.isContext(JSONContext.OBJECT))
+          this.json.writeNull(name);
+        else
+          this.json.writeNull(null);
+      }
+
+      this.state.pushState(JSONContext.NULL, "json:null", atts, name);
+
+    } else {
+      this.state.pushState(JSONContext.OBJECT, "json:"+localName, atts, name);
+      // An element we don't understand
+      warning(Warning.UNKNOWN_ELEMENT, "Unknown JSON element:", localName, null, null);
+    }
+  }
+
+  /**
+   * Handles <code>json:*</code> elements and indicates whether the handler should continue.
+   *
+   * @param localName
+   * @param atts
+   *
+   * @throws IOException If thrown while writing the JSON
+   * @throws SAXException If thrown by the error handler
+   */
+  private void handleElement(String localName, Attributes atts) throws IOException, SAXException {
+    String name = atts.getValue(NS_URI, "name");
+
+    // If the element name matches of the types, it's a property
+    JSONType type = this.state.getType(localName);
+    if (type != JSONType.DEFAULT) {
+      if (hasProperty(atts)) {
+        warning(Warning.MIXED_PROPERTY, "Element ", localName, " is mapped to a property, also has properties!", null);
+      }
+      if (name == null) name = localName;
+
+      // Strings can be written as we go, other types need the whole value
+      if (type == JSONType.STRING) {
+        this.counts.strings++;
+        this.json.writeStartString(this.state.isContext(JSONContext.OBJECT)? name : null);
+        this.streaming = true;
+        this.streamed = 0;
+      }
+      this.state.pushState(JSONContext.VALUE, localName, atts, name);
+      this.events.startValue();
+
+    } else {
+      // Start object
+      this.counts.objects++;
+      if (this.state.isContext(JSONContext.OBJECT)) {
+        if (name == null) name = localName;
+        this.json.writeStartObject(name);
+      } else {
+        if (atts.getValue(NS_URI, "name") != null) {
+          warning(Warning.IGNORED_NAME, "Attribute json:name is ignored in array/document context", null, null, null);
+        }
+        this.json.writeStartObject(null);
+      }
+      this.state.pushState(JSONContext.OBJECT, localName, atts, name);
+
+      // Serialize the attributes as value pairs
+      handleValuePairs(atts);
+    }
+  }
+
+  /**
+   * Serialize the attributes as value pairs within the context object.
+   *
+   * @param atts The attributes on the current element
+   *
+   * @throws IOException If thrown while writing the JSON
+   * @throws SAXException If thrown by the error handler
+   */
+  private void handleValuePairs(Attributes atts) throws IOException, SAXException {
+    // Serialize the name value pairs from the attributes
+    final int upto = atts.getLength();
+    for (int i=0; i < upto; i++) {
+      if (filterNamespace(atts.getURI(i))) {
+        String name = atts.getLocalName(i);
+        if (this.projection != null && !this.projection.accepts(name)) continue;
+        String value = atts.getValue(i);
+        if (value.length() > this.maxValueLength)
+          throw exceeded(Limit.VALUE_LENGTH, this.maxValueLength);
+        JSONType type = this.state.getAttributeType(name);
+        writeProperty(name, value, type);
+        this.counts.attributes++;
+      }
+    }
+  }
+
+  /**
+   * Write the property
+   *
+   * @param name  The name of the property (may be <code>null</code>)
+   * @param value The value of the property
+   * @param type  The type of property
+   *
+   * @throws IOException If thrown while writing the JSON
+   * @throws SAXException If thrown by the error handler
+   */
+  private void writeProperty(String name, String value, JSONType type) throws IOException, SAXException {
+    switch (type) {
+      case NUMBER:
+        asNumber(name, value);
+        break;
+      case BOOLEAN:
+        asBoolean(name, value);
+        break;
+      case NULL:
+        asNull(name);
+        break;
+      default:
+        asString(name, value);
+    }
+  }
+
+  /**
+   * Attempts to write the specified name/value pair as a number.
+   *
+   * <p>The lexical form of the number is written as is, so that there is no loss of precision.
+   *
+   * <p>Will fallback on a string and report a warning if the value is not a valid number.
+   *
+   * @param name  The JSON name to write.
+   * @param value The JSON value to write.
+   *
+   * @throws IOException If thrown while writing the JSON
+   * @throws SAXException If thrown by the error handler
+   */
+  private void asNumber(String name, String value) throws IOException, SAXException {
+    String number = this.normalizeNumbers? JSONNumber.normalize(value) : JSONNumber.isValid(value)? value : null;
+    if (number != null) {
+      try {
+        this.json.writeNumber(name, number);
+        this.counts.numbers++;
+        return;
+      } catch (NumberFormatException ex) {
+        // Out of range for a binary format
+        asString(name, value);
+        warning(Warning.INVALID_NUMBER, "Unable to convert attribute '", name, "' to a number", ex);
+        return;
+      }
+    }
+    asString(name, value);
+    warning(Warning.INVALID_NUMBER, "Unable to convert attribute '", name, "' to a number", null);
+  }
+
+  /**
+   * Attempts to write the specified name/value pair as a boolean.
+   *
+   * <p>Will fallback on a string and report a warning if unable to convert to a boolean.
+   *
+   * @param name  The JSON name to write (may be <code>null</code>)
+   * @param value The JSON value to write.
+   *
+   * @throws IOException If thrown while writing the JSON
+   * @throws SAXException If thrown by the error handler
+   */
+  private void asBoolean(String name, String value) throws IOException, SAXException {
+    if ("true".equals(value)) {
+      this.json.writeBoolean(name, true);
+      this.counts.booleans++;
+    } else if ("false".equals(value)) {
+      this.json.writeBoolean(name, false);
+      this.counts.booleans++;
+    } else {
+      asString(name, value);
+      warning(Warning.INVALID_BOOLEAN, "Unable to convert attribute '", name, "' to a boolean", null);
+    }
+  }
+
+  /**
+   * Attempts to write the specified name/value pair as a <code>null</code>.
+   *
+   * @param name  The JSON name to write (may be <code>null</code>)
+   *
+   * @throws IOException If thrown while writing the JSON
+   */
+  private void asNull(String name) throws IOException {
+    this.json.writeNull(name);
+    this.counts.nulls++;
+  }
+
+  /**
+   * Writes the specified string property as a string.
+   *
+   * @param name  The JSON name to write (may be <code>null</code>)
+   * @param value The JSON value to write.
+   *
+   * @throws IOException If thrown while writing the JSON
+   */
+  private void asString(String name, String value) throws IOException {
+    this.json.writeString(name, value);
+    this.counts.strings++;
+  }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Receives the events of the JSON data model produced by the serializer.
+ *
+ * <p>The default implementation writes JSON text, other implementations encode the same data
+ * model in a binary format.
+ *
+ * <p>Names are optional: methods taking a <code>name</code> argument write a value only when
+ * the name is <code>null</code>.
+ *
+ * <p>Note: there is no reason to expose this interface as public since it is
+ * primarily used by the serializer.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+interface JSONSink {
+
+  /**
+   * Resets this sink so that it can be reused to write to the specified byte stream.
+   *
+   * @param out A valid OutputStream.
+   */
+  void reset(OutputStream out);
+
+  /**
+   * Resets this sink so that it can be reused to write to the specified character stream.
+   *
+   * @param writer A valid character stream.
+   *
+   * @throws UnsupportedOperationException If the format is binary
+   */
+  void reset(Writer writer);
+
+  /**
+   * Sets whether the output is line-delimited.
+   *
+   * @param lines <code>true</code> for line-delimited output; <code>false</code> otherwise.
+   *
+   * @throws UnsupportedOperationException If not supported by the format
+   */
+  void setLineDelimited(boolean lines);
+
+  /**
+   * Writes the start of an object.
+   *
+   * @param name The name of the object (may be <code>null</code>)
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  void writeStartObject(String name) throws IOException;
+
+  /**
+   * Writes the start of an array.
+   *
+   * @param name The name of the array (may be <code>null</code>)
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  void writeStartArray(String name) throws IOException;
+
+  /**
+   * Writes the end of the current object or array.
+   *
+   * @param object <code>true</code> to end an object; <code>false</code> to end an array.
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  void writeEnd(boolean object) throws IOException;
+
+  /**
+   * Writes a string value.
+   *
+   * @param name  The name of the property (may be <code>null</code>)
+   * @param value The value to write.
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  void writeString(String name, String value) throws IOException;
+
+  /**
+   * Starts a string value which content is supplied in chunks.
+   *
+   * @param name The name of the property (may be <code>null</code>)
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  void writeStartString(String name) throws IOException;
+
+  /**
+   * Writes a chunk of the current string value; surrogate pairs may be split across chunks.
+   *
+   * @param ch     The characters to write
+   * @param start  The start position in the array
+   * @param length The number of characters to write
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  void writeStringChars(char[] ch, int start, int length) throws IOException;
+
+  /**
+   * Ends the current string value.
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  void writeEndString() throws IOException;
+
+  /**
+   * Writes an integral number value.
+   *
+   * @param name  The name of the property (may be <code>null</code>)
+   * @param value The value to write.
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  void writeNumber(String name, long value) throws IOException;
+
+  /**
+   * Writes a decimal number value.
+   *
+   * @param name  The name of the property (may be <code>null</code>)
+   * @param value The value to write.
+   *
+   * @throws NumberFormatException If the value is infinite or not a number
+   * @throws IOException If thrown by the underlying stream
+   */
+  void writeNumber(String name, double value) throws IOException;
+
+  /**
+   * Writes a number value from its lexical form.
+   *
+   * @param name  The name of the property (may be <code>null</code>)
+   * @param value The value to write, must be a valid JSON number.
+   *
+   * @throws NumberFormatException If the value cannot be represented in the output format
+   * @throws IOException If thrown by the underlying stream
+   */
+  void writeNumber(String name, String value) throws IOException;
+
+  /**
+   * Writes a boolean value.
+   *
+   * @param name  The name of the property (may be <code>null</code>)
+   * @param value The value to write.
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  void writeBoolean(String name, boolean value) throws IOException;
+
+  /**
+   * Writes a <code>null</code> value.
+   *
+   * @param name The name of the property (may be <code>null</code>)
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  void writeNull(String name) throws IOException;
+
+  /**
+   * Returns the number of bytes written to the underlying stream since the sink was reset.
+   *
+   * <p>For character streams, this is the number of bytes of the UTF-8 encoded output.
+   *
+   * @return the number of bytes written.
+   */
+  long getBytesWritten();
+
+  /**
+   * Returns the number of bytes of output since the sink was reset, including the bytes which
+   * are still buffered.
+   *
+   * <p>For formats which reserve space for headers until they are known, this may slightly
+   * overestimate the output.
+   *
+   * @return the number of bytes of output.
+   */
+  long getOutputSize();
+
+  /**
+   * Writes any buffered output and flushes the underlying stream.
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  void flush() throws IOException;
+
+  /**
+   * Writes any buffered output and closes the underlying stream.
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  void close() throws IOException;
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.OutputStream;
+import java.io.Writer;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.stax.StAXResult;
+
+/**
+ * A StAX Result implementation automatically writing out JSON.
+ *
+ * <p>Unlike the {@link JSONResult}, the underlying stream is not closed at the end of the
+ * transformation.
+ *
+ * @see AesonStreamWriter
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public class JSONStAXResult extends StAXResult implements Result {
+
+  /**
+   * Construct a JSONStAXResult from a byte stream.
+   *
+   * @param out A valid OutputStream.
+   */
+  public JSONStAXResult(OutputStream out) {
+    super(new AesonStreamWriter(out));
+  }
+
+  /**
+   * Construct a JSONStAXResult from a character stream.
+   *
+   * @param writer A valid character stream.
+   */
+  public JSONStAXResult(Writer writer) {
+    super(new AesonStreamWriter(writer));
+  }
+
+}
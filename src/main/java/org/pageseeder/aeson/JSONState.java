@@ -15,10 +15,10 @@
  */
 package org.pageseeder.aeson;
 
-import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.xml.sax.Attributes;
@@ -26,11 +26,16 @@ import org.xml.sax.Attributes;
 /**
  * Maintains the state of the serialization.
  *
+ * <p>The state is a stack indexed by depth: the context is stored as a byte and the types and
+ * names in parallel arrays, so that pushing and popping states does not allocate.
+ *
+ * <p>If a mapping is specified, the state of its automaton is also kept for each element.
+ *
  * <p>Note: there is no reason to expose this class as public since it is
  * primarily used by the serializer.
  *
  * @author Christophe Lauret
- * @version 23 November 2013
+ * @version 16 October 2026
  */
 final class JSONState {
 
@@ -45,57 +50,114 @@ final class JSONState {
   public enum JSONContext {ROOT, OBJECT, ARRAY, NULL, VALUE};
 
   /**
-   * Keeps track of the context.
+   * Initial capacity of the stack.
+   */
+  private static final int INITIAL_CAPACITY = 32;
+
+  /**
+   * The contexts by ordinal.
    */
-  private final Deque<JSONContext> context = new ArrayDeque<JSONContext>();
+  private static final JSONContext[] CONTEXTS = JSONContext.values();
+
+  /**
+   * Keeps track of the context (as ordinals).
+   */
+  private byte[] context = new byte[INITIAL_CAPACITY];
 
   /**
    * Maintains instructions for the JSON serialization at each level of the structure.
    */
-  private final Deque<JSONTypeMap> types = new ArrayDeque<JSONTypeMap>();
+  private JSONTypeMap[] types = new JSONTypeMap[INITIAL_CAPACITY];
 
   /**
    * Keeps track of the name of the current context.
    */
-  private final Deque<String> names = new ArrayDeque<String>();
+  private String[] names = new String[INITIAL_CAPACITY];
+
+  /**
+   * Keeps track of the state of the mapping (only if there is a mapping).
+   */
+  private AesonMapping.State[] paths = new AesonMapping.State[INITIAL_CAPACITY];
+
+  /**
+   * The mapping declaring types by path (may be <code>null</code>).
+   */
+  private AesonMapping mapping = null;
+
+  /**
+   * Index of the current state (-1 when empty).
+   */
+  private int top = -1;
+
+  /**
+   * Type maps made from declarations, kept across documents.
+   */
+  private final JSONTypeMapCache cache = new JSONTypeMapCache();
 
   /**
    * Initialise the state with the ROOT context.
    */
   public final void pushState() {
-    this.context.push(JSONContext.ROOT);
-    this.types.push(JSONTypeMap.EMPTY);
-    this.names.push("");
+    push(JSONContext.ROOT, JSONTypeMap.EMPTY, "");
+    this.paths[this.top] = this.mapping != null? this.mapping.start() : null;
   }
 
   /**
    * Push the state
    *
    * @param context The new context.
+   * @param element The name of the element matched by the mapping.
    * @param atts    The attributes (may affect types)
    * @param name    The name of the context.
    */
-  public final void pushState(JSONContext context, Attributes atts, String name) {
-    this.context.push(context);
-    JSONTypeMap map = JSONTypeMap.make(this.types.peek(), atts);
-    this.types.push(map);
-    this.names.push(name != null? name : "");
+  public final void pushState(JSONContext context, String element, Attributes atts, String name) {
+    JSONTypeMap map = JSONTypeMap.make(this.types[this.top], atts, this.cache);
+    AesonMapping.State path = this.paths[this.top];
+    push(context, map, name != null? name : "");
+    if (path != null) this.paths[this.top] = path.next(element);
   }
 
   /**
    * Remove all objects from state.
    */
   public final void popState() {
-    this.context.pop();
-    this.types.pop();
-    this.names.pop();
+    this.types[this.top] = null;
+    this.names[this.top] = null;
+    this.paths[this.top] = null;
+    this.top--;
+  }
+
+  /**
+   * Clears the state so that it can be reused for another document.
+   */
+  public final void clear() {
+    Arrays.fill(this.types, 0, this.top+1, null);
+    Arrays.fill(this.names, 0, this.top+1, null);
+    Arrays.fill(this.paths, 0, this.top+1, null);
+    this.top = -1;
+  }
+
+  /**
+   * Sets the mapping declaring types by path, it must be set before the document starts.
+   *
+   * @param mapping The mapping (may be <code>null</code>)
+   */
+  public final void setMapping(AesonMapping mapping) {
+    this.mapping = mapping;
+  }
+
+  /**
+   * @return the depth of the current state (0 for the root).
+   */
+  public int depth() {
+    return this.top;
   }
 
   /**
    * @return the current context.
    */
   public JSONContext currentContext() {
-    return this.context.peek();
+    return this.top >= 0? CONTEXTS[this.context[this.top]] : null;
   }
 
   /**
@@ -106,24 +168,44 @@ final class JSONState {
    *         <code>false</code> otherwise.
    */
   public boolean isContext(JSONContext context) {
-    return this.context.peek() == context;
+    return this.top >= 0 && this.context[this.top] == context.ordinal();
   }
 
   /**
    * @return the name of the current context.
    */
   public String currentName() {
-    return this.names.peek();
+    return this.top >= 0? this.names[this.top] : null;
   }
 
   /**
    * Return the JSON type for the property name
    *
+   * <p>Types declared in the document take precedence over the mapping, which declares the
+   * types of child elements.
+   *
    * @param name the name of the property
    * @return The corresponding type (never <code>null</code>)
    */
   public JSONType getType(String name) {
-    return this.types.peek().getType(name);
+    JSONType type = this.types[this.top].getType(name);
+    AesonMapping.State path = this.paths[this.top];
+    return type == JSONType.DEFAULT && path != null? path.getElementType(name) : type;
+  }
+
+  /**
+   * Return the JSON type for the property name of an attribute of the current element.
+   *
+   * <p>Types declared in the document take precedence over the mapping, which declares the
+   * types of attributes.
+   *
+   * @param name the name of the attribute
+   * @return The corresponding type (never <code>null</code>)
+   */
+  public JSONType getAttributeType(String name) {
+    JSONType type = this.types[this.top].getType(name);
+    AesonMapping.State path = this.paths[this.top];
+    return type == JSONType.DEFAULT && path != null? path.getAttributeType(name) : type;
   }
 
   /**
@@ -131,7 +213,28 @@ final class JSONState {
    */
   @Override
   public String toString() {
-    return this.currentContext()+"|"+this.types.peek()+'|'+this.currentName();
+    return this.currentContext()+"|"+(this.top >= 0? this.types[this.top] : null)+'|'+this.currentName();
+  }
+
+  /**
+   * Pushes a new state on the stack, growing it if necessary.
+   *
+   * @param context The new context.
+   * @param map     The type map for the new state.
+   * @param name    The name of the context.
+   */
+  private void push(JSONContext context, JSONTypeMap map, String name) {
+    int i = ++this.top;
+    if (i == this.context.length) {
+      int capacity = i * 2;
+      this.context = Arrays.copyOf(this.context, capacity);
+      this.types = Arrays.copyOf(this.types, capacity);
+      this.names = Arrays.copyOf(this.names, capacity);
+      this.paths = Arrays.copyOf(this.paths, capacity);
+    }
+    this.context[i] = (byte)context.ordinal();
+    this.types[i] = map;
+    this.names[i] = name;
   }
 
   // Helper inner classes
@@ -139,6 +242,10 @@ final class JSONState {
 
   /**
    * Stores instructions about the type of JSON values to be stored by name.
+   *
+   * <p>Maps are immutable and layered: a map only holds the types declared on its element and
+   * refers to the inherited map for the others. When there are too many layers, the map is
+   * flattened so that lookups remain short.
    */
   private final static class JSONTypeMap {
 
@@ -148,24 +255,44 @@ final class JSONState {
     public final static JSONTypeMap EMPTY = new JSONTypeMap();
 
     /**
-     * Names of elements to be converted to JavaScript types other than string.
+     * Maximum number of layers before a map is flattened.
+     */
+    private static final int MAX_LAYERS = 8;
+
+    /**
+     * The inherited map (may be <code>null</code>).
+     */
+    private final JSONTypeMap parent;
+
+    /**
+     * Names of elements to be converted to JavaScript types other than string at this level.
      */
     private final Map<String, JSONType> map;
 
+    /**
+     * Number of maps in the chain including this one.
+     */
+    private final int layers;
+
     /**
      * Keep private - only to create an empty set of instructions.
      */
     private JSONTypeMap() {
+      this.parent = null;
       this.map = Collections.emptyMap();
+      this.layers = 0;
     }
 
     /**
      * Keep private - use factory method.
      *
-     * @param map the internal mapping to use.
+     * @param parent the inherited map (may be <code>null</code>)
+     * @param map    the internal mapping to use.
      */
-    private JSONTypeMap(Map<String, JSONType> map) {
+    private JSONTypeMap(JSONTypeMap parent, Map<String, JSONType> map) {
+      this.parent = parent;
       this.map = map;
+      this.layers = parent != null? parent.layers + 1 : 1;
     }
 
     /**
@@ -175,8 +302,11 @@ final class JSONState {
      * @return The type this name is mapped to.
      */
     public JSONType getType(String name) {
-      JSONType type = this.map.get(name);
-      return type != null? type : JSONType.DEFAULT;
+      for (JSONTypeMap m = this; m != null; m = m.parent) {
+        JSONType type = m.map.get(name);
+        if (type != null) return type;
+      }
+      return JSONType.DEFAULT;
     }
 
     /**
@@ -186,48 +316,213 @@ final class JSONState {
      *
      * @param inherited The property type map to inherit (may be <code>null</code>)
      * @param atts      The attributes to scan.
+     * @param cache     The cache of maps previously made.
      *
      * @return the updated map or the inherited one if no attributes changed the types.
      */
-    public static JSONTypeMap make(JSONTypeMap inherited, Attributes atts) {
-      JSONTypeMap current = inherited;
-      String toBoolean = atts.getValue(JSONSerializer.NS_URI, "boolean");
-      String toNumber = atts.getValue(JSONSerializer.NS_URI, "number");
-      String toString = atts.getValue(JSONSerializer.NS_URI, "string");
-      String toNull = atts.getValue(JSONSerializer.NS_URI, "null");
+    public static JSONTypeMap make(JSONTypeMap inherited, Attributes atts, JSONTypeMapCache cache) {
+      String toBoolean = null;
+      String toNumber = null;
+      String toString = null;
+      String toNull = null;
+      // Single pass over the attributes
+      final int upto = atts.getLength();
+      for (int i = 0; i < upto; i++) {
+        if (JSONSerializer.NS_URI.equals(atts.getURI(i))) {
+          String name = atts.getLocalName(i);
+          if ("boolean".equals(name)) toBoolean = atts.getValue(i);
+          else if ("number".equals(name)) toNumber = atts.getValue(i);
+          else if ("string".equals(name)) toString = atts.getValue(i);
+          else if ("null".equals(name)) toNull = atts.getValue(i);
+        }
+      }
       if (toBoolean == null && toNumber == null && toString == null && toNull == null) {
         // Return the current if no new type mappings defined
-        return current;
+        return inherited;
       } else {
-        // Update the mapping
-        Map<String, JSONType> updated = new HashMap<String, JSONType>(current.map);
-        if (toBoolean != null) {
-          for (String name : toBoolean.split(" ")) {
-            updated.put(name, JSONType.BOOLEAN);
-          }
-        }
-        if (toNumber != null) {
-          for (String name : toNumber.split(" ")) {
-            updated.put(name, JSONType.NUMBER);
-          }
-        }
-        if (toString != null) {
-          for (String name : toString.split(" ")) {
-            updated.put(name, JSONType.STRING);
-          }
-        }
-        if (toNull != null) {
-          for (String name : toNull.split(" ")) {
-            updated.put(name, JSONType.NULL);
-          }
+        return cache.get(inherited, toBoolean, toNumber, toString, toNull);
+      }
+    }
+
+    /**
+     * Makes a new map inheriting this one with the specified declarations.
+     *
+     * @param toBoolean Space separated list of names to map to booleans (may be <code>null</code>)
+     * @param toNumber  Space separated list of names to map to numbers (may be <code>null</code>)
+     * @param toString  Space separated list of names to map to strings (may be <code>null</code>)
+     * @param toNull    Space separated list of names to map to null (may be <code>null</code>)
+     *
+     * @return the new map
+     */
+    private JSONTypeMap extend(String toBoolean, String toNumber, String toString, String toNull) {
+      Map<String, JSONType> updated = new HashMap<String, JSONType>();
+      if (this.layers >= MAX_LAYERS) {
+        this.copyTo(updated);
+      }
+      putAll(updated, toBoolean, JSONType.BOOLEAN);
+      putAll(updated, toNumber, JSONType.NUMBER);
+      putAll(updated, toString, JSONType.STRING);
+      putAll(updated, toNull, JSONType.NULL);
+      JSONTypeMap parent = this.layers == 0 || this.layers >= MAX_LAYERS? null : this;
+      return new JSONTypeMap(parent, updated);
+    }
+
+    /**
+     * Copies all the mappings in this chain to the specified map.
+     *
+     * @param target The map receiving the mappings.
+     */
+    private void copyTo(Map<String, JSONType> target) {
+      if (this.parent != null) this.parent.copyTo(target);
+      target.putAll(this.map);
+    }
+
+    /**
+     * Maps each name in the specified list to the given type.
+     *
+     * @param map   The map to update
+     * @param names Whitespace separated list of names (may be <code>null</code>)
+     * @param type  The type to map the names to
+     */
+    private static void putAll(Map<String, JSONType> map, String names, JSONType type) {
+      if (names == null) return;
+      final int length = names.length();
+      int from = -1;
+      for (int i = 0; i <= length; i++) {
+        boolean space = i == length || names.charAt(i) <= ' ';
+        if (space && from >= 0) {
+          map.put(names.substring(from, i), type);
+          from = -1;
+        } else if (!space && from < 0) {
+          from = i;
         }
-        return new JSONTypeMap(updated);
       }
     }
 
     @Override
     public String toString() {
-      return this.map.toString();
+      Map<String, JSONType> all = new HashMap<String, JSONType>();
+      copyTo(all);
+      return all.toString();
+    }
+  }
+
+  /**
+   * A bounded cache of type maps keyed by inherited map and declarations.
+   *
+   * <p>Documents typically repeat the same declarations on many elements, so the same map can
+   * be reused instead of being made each time. The cache is owned by a single state and is not
+   * thread-safe.
+   */
+  private final static class JSONTypeMapCache extends LinkedHashMap<JSONTypeMapKey, JSONTypeMap> {
+
+    /** As per requirement for serializable classes. */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Maximum number of maps to keep.
+     */
+    private static final int MAX_SIZE = 256;
+
+    /**
+     * Reusable key for lookups.
+     */
+    private final transient JSONTypeMapKey probe = new JSONTypeMapKey();
+
+    /**
+     * Create a new cache using access order.
+     */
+    public JSONTypeMapCache() {
+      super(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the map inheriting the specified map with the specified declarations.
+     *
+     * @param inherited The property type map to inherit
+     * @param toBoolean Names to map to booleans (may be <code>null</code>)
+     * @param toNumber  Names to map to numbers (may be <code>null</code>)
+     * @param toString  Names to map to strings (may be <code>null</code>)
+     * @param toNull    Names to map to null (may be <code>null</code>)
+     *
+     * @return the cached map or a new one.
+     */
+    public JSONTypeMap get(JSONTypeMap inherited, String toBoolean, String toNumber, String toString, String toNull) {
+      this.probe.set(inherited, toBoolean, toNumber, toString, toNull);
+      JSONTypeMap map = get(this.probe);
+      if (map == null) {
+        map = inherited.extend(toBoolean, toNumber, toString, toNull);
+        JSONTypeMapKey key = new JSONTypeMapKey();
+        key.set(inherited, toBoolean, toNumber, toString, toNull);
+        put(key, map);
+      }
+      return map;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<JSONTypeMapKey, JSONTypeMap> eldest) {
+      return size() > MAX_SIZE;
+    }
+  }
+
+  /**
+   * Key for the type map cache, the inherited map is compared by identity.
+   */
+  private final static class JSONTypeMapKey {
+
+    /** The inherited map. */
+    private JSONTypeMap inherited;
+
+    /** The declarations. */
+    private String toBoolean, toNumber, toString, toNull;
+
+    /** Precomputed hash code. */
+    private int hash;
+
+    /**
+     * Sets the values of this key.
+     *
+     * @param inherited The property type map to inherit
+     * @param toBoolean Names to map to booleans (may be <code>null</code>)
+     * @param toNumber  Names to map to numbers (may be <code>null</code>)
+     * @param toString  Names to map to strings (may be <code>null</code>)
+     * @param toNull    Names to map to null (may be <code>null</code>)
+     */
+    void set(JSONTypeMap inherited, String toBoolean, String toNumber, String toString, String toNull) {
+      this.inherited = inherited;
+      this.toBoolean = toBoolean;
+      this.toNumber = toNumber;
+      this.toString = toString;
+      this.toNull = toNull;
+      int h = System.identityHashCode(inherited);
+      h = 31*h + (toBoolean != null? toBoolean.hashCode() : 0);
+      h = 31*h + (toNumber != null? toNumber.hashCode() : 0);
+      h = 31*h + (toString != null? toString.hashCode() : 0);
+      h = 31*h + (toNull != null? toNull.hashCode() : 0);
+      this.hash = h;
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof JSONTypeMapKey)) return false;
+      JSONTypeMapKey k = (JSONTypeMapKey)o;
+      return this.inherited == k.inherited
+          && equals(this.toBoolean, k.toBoolean)
+          && equals(this.toNumber, k.toNumber)
+          && equals(this.toString, k.toString)
+          && equals(this.toNull, k.toNull);
+    }
+
+    /**
+     * @return <code>true</code> if both strings are <code>null</code> or equal.
+     */
+    private static boolean equals(String a, String b) {
+      return a == null? b == null : a.equals(b);
     }
   }
 
@@ -0,0 +1,401 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * A streaming tokenizer for JSON text as defined by RFC 8259.
+ *
+ * <p>After a {@link #STRING} token, the content of the string must be consumed using one of
+ * the <code>readString</code> methods before requesting the next token. String values can be
+ * streamed in chunks to a content handler so that long strings are never held in memory.
+ *
+ * <p>The tokenizer is also the locator for syntax errors.
+ *
+ * <p>Note: there is no reason to expose this class as public since it is
+ * primarily used by the XML reader.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+final class JSONTokenizer implements Locator {
+
+  /** Token types */
+  static final int EOF = 0, BEGIN_OBJECT = 1, END_OBJECT = 2, BEGIN_ARRAY = 3, END_ARRAY = 4,
+      COLON = 5, COMMA = 6, STRING = 7, NUMBER = 8, TRUE = 9, FALSE = 10, NULL = 11;
+
+  /**
+   * Size of the chunks of string values sent to the content handler.
+   */
+  private static final int CHUNK_SIZE = 4096;
+
+  /**
+   * The JSON to read.
+   */
+  private final Reader reader;
+
+  /**
+   * Input buffer.
+   */
+  private final char[] buf = new char[8192];
+
+  /**
+   * Position of the next character in the input buffer.
+   */
+  private int pos = 0;
+
+  /**
+   * Number of characters in the input buffer.
+   */
+  private int limit = 0;
+
+  /**
+   * Buffer for names and numbers.
+   */
+  private final StringBuilder text = new StringBuilder();
+
+  /**
+   * Buffer for chunks of string values.
+   */
+  private char[] chunk;
+
+  /**
+   * Public identifier of the input (may be <code>null</code>).
+   */
+  private final String publicId;
+
+  /**
+   * System identifier of the input (may be <code>null</code>).
+   */
+  private final String systemId;
+
+  /**
+   * Current line number.
+   */
+  private int line = 1;
+
+  /**
+   * Position in the input of the start of the current line.
+   */
+  private long lineStart = 0;
+
+  /**
+   * Number of characters consumed before the input buffer.
+   */
+  private long offset = 0;
+
+  /**
+   * Creates a new tokenizer.
+   *
+   * @param reader   The JSON to read
+   * @param publicId Public identifier of the input (may be <code>null</code>)
+   * @param systemId System identifier of the input (may be <code>null</code>)
+   */
+  JSONTokenizer(Reader reader, String publicId, String systemId) {
+    this.reader = reader;
+    this.publicId = publicId;
+    this.systemId = systemId;
+  }
+
+  // Locator
+  // =============================================================================================
+
+  @Override
+  public String getPublicId() {
+    return this.publicId;
+  }
+
+  @Override
+  public String getSystemId() {
+    return this.systemId;
+  }
+
+  @Override
+  public int getLineNumber() {
+    return this.line;
+  }
+
+  @Override
+  public int getColumnNumber() {
+    return (int)(this.offset + this.pos - this.lineStart) + 1;
+  }
+
+  // Tokens
+  // =============================================================================================
+
+  /**
+   * Returns the next token.
+   *
+   * <p>For numbers, the lexical value is available from {@link #getNumber()}.
+   *
+   * @return the type of token
+   *
+   * @throws IOException       If thrown by the reader
+   * @throws SAXParseException If the JSON is malformed
+   */
+  public int next() throws IOException, SAXParseException {
+    int c = skipWhitespace();
+    switch (c) {
+      case -1:  return EOF;
+      case '{': this.pos++; return BEGIN_OBJECT;
+      case '}': this.pos++; return END_OBJECT;
+      case '[': this.pos++; return BEGIN_ARRAY;
+      case ']': this.pos++; return END_ARRAY;
+      case ':': this.pos++; return COLON;
+      case ',': this.pos++; return COMMA;
+      case '"': this.pos++; return STRING;
+      case 't': literal("true");  return TRUE;
+      case 'f': literal("false"); return FALSE;
+      case 'n': literal("null");  return NULL;
+      default:
+        if (c == '-' || (c >= '0' && c <= '9')) {
+          number();
+          return NUMBER;
+        }
+        throw error("Unexpected character '"+(char)c+"'");
+    }
+  }
+
+  /**
+   * Skips the byte order mark if the input starts with one.
+   *
+   * @throws IOException If thrown by the reader
+   */
+  public void skipByteOrderMark() throws IOException {
+    if (this.offset == 0 && this.pos == 0 && peek() == '\uFEFF') {
+      this.pos++;
+    }
+  }
+
+  /**
+   * @return the lexical value of the last number token.
+   */
+  public String getNumber() {
+    return this.text.toString();
+  }
+
+  /**
+   * Reads the content of the current string token.
+   *
+   * @return the decoded string
+   *
+   * @throws IOException       If thrown by the reader
+   * @throws SAXParseException If the JSON is malformed
+   */
+  public String readString() throws IOException, SAXParseException {
+    this.text.setLength(0);
+    int c;
+    while ((c = stringChar()) != -1) {
+      this.text.append((char)c);
+    }
+    return this.text.toString();
+  }
+
+  /**
+   * Reads the content of the current string token sending it in chunks to the handler.
+   *
+   * @param handler The handler receiving the characters
+   *
+   * @throws IOException  If thrown by the reader
+   * @throws SAXException If the JSON is malformed or thrown by the handler
+   */
+  public void readString(ContentHandler handler) throws IOException, SAXException {
+    if (this.chunk == null) this.chunk = new char[CHUNK_SIZE];
+    final char[] ch = this.chunk;
+    int length = 0;
+    int c;
+    while ((c = stringChar()) != -1) {
+      ch[length++] = (char)c;
+      if (length == ch.length) {
+        handler.characters(ch, 0, length);
+        length = 0;
+      }
+    }
+    if (length > 0) handler.characters(ch, 0, length);
+  }
+
+  /**
+   * Creates a new parse exception at the current location.
+   *
+   * @param message The error message
+   * @return the corresponding exception
+   */
+  public SAXParseException error(String message) {
+    return new SAXParseException(message, this);
+  }
+
+  // Private helpers
+  // =============================================================================================
+
+  /**
+   * Returns the next character of the current string after decoding escape sequences.
+   *
+   * @return the next character or -1 at the end of the string
+   */
+  private int stringChar() throws IOException, SAXParseException {
+    int c = read();
+    if (c == '"') return -1;
+    if (c == '\\') {
+      c = read();
+      switch (c) {
+        case '"':
+        case '\\':
+        case '/': return c;
+        case 'b': return '\b';
+        case 'f': return '\f';
+        case 'n': return '\n';
+        case 'r': return '\r';
+        case 't': return '\t';
+        case 'u':
+          int u = 0;
+          for (int i = 0; i < 4; i++) {
+            int h = Character.digit(read(), 16);
+            if (h < 0) throw error("Invalid unicode escape sequence");
+            u = (u << 4) | h;
+          }
+          return u;
+        default:
+          throw error("Invalid escape sequence");
+      }
+    }
+    if (c == -1) throw error("Unterminated string");
+    if (c < 0x20) throw error("Control characters must be escaped in strings");
+    return c;
+  }
+
+  /**
+   * Reads a number into the text buffer validating its syntax.
+   */
+  private void number() throws IOException, SAXParseException {
+    this.text.setLength(0);
+    int c = peek();
+    if (c == '-') c = append();
+    // Integer part
+    if (c == '0') {
+      c = append();
+    } else if (c >= '1' && c <= '9') {
+      c = digits();
+    } else {
+      throw error("Invalid number");
+    }
+    // Fraction
+    if (c == '.') {
+      c = append();
+      if (c < '0' || c > '9') throw error("Invalid number");
+      c = digits();
+    }
+    // Exponent
+    if (c == 'e' || c == 'E') {
+      c = append();
+      if (c == '+' || c == '-') c = append();
+      if (c < '0' || c > '9') throw error("Invalid number");
+      digits();
+    }
+  }
+
+  /**
+   * Appends the digits to the text buffer.
+   *
+   * @return the character following the digits
+   */
+  private int digits() throws IOException {
+    int c = peek();
+    while (c >= '0' && c <= '9') c = append();
+    return c;
+  }
+
+  /**
+   * Appends the current character to the text buffer.
+   *
+   * @return the next character
+   */
+  private int append() throws IOException {
+    this.text.append(this.buf[this.pos++]);
+    return peek();
+  }
+
+  /**
+   * Consumes the specified literal.
+   */
+  private void literal(String literal) throws IOException, SAXParseException {
+    for (int i = 0; i < literal.length(); i++) {
+      if (read() != literal.charAt(i)) throw error("Invalid literal, expected '"+literal+"'");
+    }
+  }
+
+  /**
+   * Skips whitespace and returns the next character without consuming it.
+   */
+  private int skipWhitespace() throws IOException {
+    int c = peek();
+    while (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+      this.pos++;
+      if (c == '\n') newLine();
+      c = peek();
+    }
+    return c;
+  }
+
+  /**
+   * Reads the next character.
+   *
+   * @return the next character or -1 at the end of the input
+   */
+  private int read() throws IOException {
+    int c = peek();
+    if (c != -1) {
+      this.pos++;
+      if (c == '\n') newLine();
+    }
+    return c;
+  }
+
+  /**
+   * Returns the next character without consuming it.
+   *
+   * @return the next character or -1 at the end of the input
+   */
+  private int peek() throws IOException {
+    if (this.pos == this.limit) {
+      this.offset += this.limit;
+      this.pos = 0;
+      this.limit = 0;
+      int n;
+      do {
+        n = this.reader.read(this.buf, 0, this.buf.length);
+      } while (n == 0);
+      if (n < 0) return -1;
+      this.limit = n;
+    }
+    return this.buf[this.pos];
+  }
+
+  /**
+   * Records the start of a new line after a line feed was consumed.
+   */
+  private void newLine() {
+    this.line++;
+    this.lineStart = this.offset + this.pos;
+  }
+
+}
@@ -0,0 +1,648 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A minimal streaming JSON writer encoding its output as UTF-8 bytes.
+ *
+ * <p>All output is escaped and encoded directly into an internal byte buffer which is only
+ * written to the underlying stream when full, flushed or closed.
+ *
+ * <p>When writing to a character stream, the buffer is decoded back into characters on flush;
+ * the buffer never ends with a partial UTF-8 sequence so this is always safe.
+ *
+ * <p>Names are optional: methods taking a <code>name</code> argument write a value only when
+ * the name is <code>null</code>.
+ *
+ * <p>Since documents tend to repeat the same property names, the quoted and encoded form of
+ * names is kept in a small cache so that writing a known name is a single array copy. The
+ * cache is direct-mapped: each name can only occupy one slot determined by its hash code and
+ * replaces any other name in that slot. Because the XML parser usually interns names, the
+ * cached name is compared by identity before using <code>equals</code>.
+ *
+ * <p>Note: there is no reason to expose this class as public since it is
+ * primarily used by the serializer.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+final class JSONWriter implements JSONSink {
+
+  /**
+   * Default size of the internal buffer.
+   */
+  static final int DEFAULT_BUFFER_SIZE = 16384;
+
+  /**
+   * Hexadecimal digits for unicode escapes.
+   */
+  private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+  /**
+   * Byte to use in place of unpaired surrogates.
+   */
+  private static final byte REPLACEMENT = '?';
+
+  /**
+   * Number of slots in the cache of names (a power of two).
+   */
+  private static final int NAME_CACHE_SIZE = 256;
+
+  /**
+   * Names longer than this are not cached.
+   */
+  private static final int MAX_CACHED_NAME = 64;
+
+  /**
+   * The byte stream to write to (may be <code>null</code> if a writer is used).
+   */
+  private OutputStream out;
+
+  /**
+   * The character stream to write to (may be <code>null</code> if an output stream is used).
+   */
+  private Writer writer;
+
+  /**
+   * The internal buffer.
+   */
+  private final byte[] buf;
+
+  /**
+   * Number of bytes currently in the buffer.
+   */
+  private int pos = 0;
+
+  /**
+   * Number of bytes written to the underlying stream.
+   */
+  private long written = 0;
+
+  /**
+   * Whether a comma must be written before the next name or value.
+   */
+  private boolean comma = false;
+
+  /**
+   * Current nesting depth of objects and arrays.
+   */
+  private int depth = 0;
+
+  /**
+   * A high surrogate at the end of the last chunk of a streamed string (or 0).
+   */
+  private char high = 0;
+
+  /**
+   * Whether the output is line-delimited.
+   */
+  private boolean lines = false;
+
+  /**
+   * Depth at which each value is terminated by a line feed instead of separated by a comma
+   * (-1 when the output is not line-delimited).
+   */
+  private int lineDepth = -1;
+
+  /**
+   * The names in the cache.
+   */
+  private final String[] names = new String[NAME_CACHE_SIZE];
+
+  /**
+   * The quoted and UTF-8 encoded names followed by a colon for each name in the cache.
+   */
+  private final byte[][] encodedNames = new byte[NAME_CACHE_SIZE][];
+
+  /**
+   * Creates a new JSON writer using the specified byte stream.
+   *
+   * @param out A valid OutputStream.
+   */
+  public JSONWriter(OutputStream out) {
+    this.out = out;
+    this.writer = null;
+    this.buf = new byte[DEFAULT_BUFFER_SIZE];
+  }
+
+  /**
+   * Creates a new JSON writer using the specified character stream.
+   *
+   * @param writer A valid character stream.
+   */
+  public JSONWriter(Writer writer) {
+    this.out = null;
+    this.writer = writer;
+    this.buf = new byte[DEFAULT_BUFFER_SIZE];
+  }
+
+  /**
+   * Resets this writer so that it can be reused to write to the specified byte stream.
+   *
+   * <p>Any buffered content is discarded.
+   *
+   * @param out A valid OutputStream.
+   */
+  public void reset(OutputStream out) {
+    this.out = out;
+    this.writer = null;
+    clear();
+  }
+
+  /**
+   * Resets this writer so that it can be reused to write to the specified character stream.
+   *
+   * <p>Any buffered content is discarded.
+   *
+   * @param writer A valid character stream.
+   */
+  public void reset(Writer writer) {
+    this.out = null;
+    this.writer = writer;
+    clear();
+  }
+
+  /**
+   * Sets whether the output is line-delimited (JSON Lines).
+   *
+   * <p>When line-delimited, the document is terminated by a line feed; if the document is an
+   * array, its brackets are omitted and each of its items is written on its own line instead.
+   *
+   * <p>This must be set before anything is written.
+   *
+   * @param lines <code>true</code> for line-delimited output; <code>false</code> otherwise.
+   */
+  public void setLineDelimited(boolean lines) {
+    this.lines = lines;
+    this.lineDepth = lines? 0 : -1;
+  }
+
+  // Structure
+  // =============================================================================================
+
+  /**
+   * Writes the start of an object.
+   *
+   * @param name The name of the object (may be <code>null</code>)
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  public void writeStartObject(String name) throws IOException {
+    prefix(name);
+    ensure(1);
+    this.buf[this.pos++] = '{';
+    this.comma = false;
+    this.depth++;
+  }
+
+  /**
+   * Writes the start of an array.
+   *
+   * @param name The name of the array (may be <code>null</code>)
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  public void writeStartArray(String name) throws IOException {
+    if (this.lines && this.depth == 0) {
+      // Items of the document array go on separate lines
+      this.lineDepth = 1;
+      this.comma = false;
+      this.depth++;
+      return;
+    }
+    prefix(name);
+    ensure(1);
+    this.buf[this.pos++] = '[';
+    this.comma = false;
+    this.depth++;
+  }
+
+  /**
+   * Writes the end of the current object or array.
+   *
+   * @param object <code>true</code> to end an object; <code>false</code> to end an array.
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  public void writeEnd(boolean object) throws IOException {
+    if (this.depth == 0) throw new IllegalStateException("No object or array to end");
+    if (this.lineDepth == 1 && this.depth == 1) {
+      // End of the document array, each item already ends with a line feed
+      this.lineDepth = 0;
+      this.comma = false;
+      this.depth--;
+      return;
+    }
+    ensure(1);
+    this.buf[this.pos++] = object? (byte)'}' : (byte)']';
+    this.depth--;
+    endValue();
+  }
+
+  // Values
+  // =============================================================================================
+
+  /**
+   * Writes a string value.
+   *
+   * @param name  The name of the property (may be <code>null</code>)
+   * @param value The value to write.
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  public void writeString(String name, String value) throws IOException {
+    prefix(name);
+    quoted(value);
+    endValue();
+  }
+
+  /**
+   * Starts a string value which content is supplied in chunks.
+   *
+   * <p>The string must be completed with {@link #writeEndString()} before writing anything else.
+   *
+   * @param name The name of the property (may be <code>null</code>)
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  public void writeStartString(String name) throws IOException {
+    prefix(name);
+    ensure(1);
+    this.buf[this.pos++] = '"';
+  }
+
+  /**
+   * Writes a chunk of the current string value.
+   *
+   * <p>Surrogate pairs may be split across chunks.
+   *
+   * @param ch     The characters to write
+   * @param start  The start position in the array
+   * @param length The number of characters to write
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  public void writeStringChars(char[] ch, int start, int length) throws IOException {
+    final int end = start + length;
+    for (int i = start; i < end; i++) {
+      char c = ch[i];
+      if (this.high != 0) {
+        if (Character.isLowSurrogate(c)) {
+          supplementary(Character.toCodePoint(this.high, c));
+          this.high = 0;
+          continue;
+        }
+        escaped(this.high);
+        this.high = 0;
+      }
+      if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+        if (this.pos == this.buf.length) drain();
+        this.buf[this.pos++] = (byte)c;
+      } else if (Character.isHighSurrogate(c)) {
+        this.high = c;
+      } else {
+        escaped(c);
+      }
+    }
+  }
+
+  /**
+   * Ends the current string value.
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  public void writeEndString() throws IOException {
+    if (this.high != 0) {
+      escaped(this.high);
+      this.high = 0;
+    }
+    ensure(1);
+    this.buf[this.pos++] = '"';
+    endValue();
+  }
+
+  /**
+   * Writes an integral number value.
+   *
+   * @param name  The name of the property (may be <code>null</code>)
+   * @param value The value to write.
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  public void writeNumber(String name, long value) throws IOException {
+    prefix(name);
+    ascii(Long.toString(value));
+    endValue();
+  }
+
+  /**
+   * Writes a decimal number value.
+   *
+   * @param name  The name of the property (may be <code>null</code>)
+   * @param value The value to write.
+   *
+   * @throws NumberFormatException If the value is infinite or not a number
+   * @throws IOException If thrown by the underlying stream
+   */
+  public void writeNumber(String name, double value) throws IOException {
+    if (Double.isInfinite(value) || Double.isNaN(value))
+      throw new NumberFormatException("JSON does not allow non-finite numbers: "+value);
+    prefix(name);
+    ascii(Double.toString(value));
+    endValue();
+  }
+
+  /**
+   * Writes a number value from its lexical form.
+   *
+   * <p>The number is written as is, so it must have been checked against the JSON grammar.
+   *
+   * @param name  The name of the property (may be <code>null</code>)
+   * @param value The value to write, must be a valid JSON number.
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  public void writeNumber(String name, String value) throws IOException {
+    prefix(name);
+    ascii(value);
+    endValue();
+  }
+
+  /**
+   * Writes a boolean value.
+   *
+   * @param name  The name of the property (may be <code>null</code>)
+   * @param value The value to write.
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  public void writeBoolean(String name, boolean value) throws IOException {
+    prefix(name);
+    ascii(value? "true" : "false");
+    endValue();
+  }
+
+  /**
+   * Writes a <code>null</code> value.
+   *
+   * @param name The name of the property (may be <code>null</code>)
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  public void writeNull(String name) throws IOException {
+    prefix(name);
+    ascii("null");
+    endValue();
+  }
+
+  // Lifecycle
+  // =============================================================================================
+
+  /**
+   * @return the number of bytes written to the underlying stream since the writer was reset.
+   */
+  public long getBytesWritten() {
+    return this.written;
+  }
+
+  /**
+   * @return the number of bytes written or buffered since the writer was reset.
+   */
+  public long getOutputSize() {
+    return this.written + this.pos;
+  }
+
+  /**
+   * Writes the content of the buffer and flushes the underlying stream.
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  public void flush() throws IOException {
+    drain();
+    if (this.out != null) this.out.flush();
+    else this.writer.flush();
+  }
+
+  /**
+   * Writes the content of the buffer and closes the underlying stream.
+   *
+   * @throws IOException If thrown by the underlying stream
+   */
+  public void close() throws IOException {
+    drain();
+    if (this.out != null) this.out.close();
+    else this.writer.close();
+  }
+
+  // Private helpers
+  // =============================================================================================
+
+  /**
+   * Clears the buffer and the state of this writer.
+   */
+  private void clear() {
+    this.pos = 0;
+    this.written = 0;
+    this.comma = false;
+    this.depth = 0;
+    this.high = 0;
+    this.lines = false;
+    this.lineDepth = -1;
+  }
+
+  /**
+   * Completes a value: the next value must be preceded by a comma unless the value is
+   * terminated by a line feed.
+   */
+  private void endValue() throws IOException {
+    if (this.depth == this.lineDepth) {
+      ensure(1);
+      this.buf[this.pos++] = '\n';
+      this.comma = false;
+    } else {
+      this.comma = true;
+    }
+  }
+
+  /**
+   * Writes the comma separator if required followed by the quoted name and colon if specified.
+   *
+   * @param name The name of the property (may be <code>null</code>)
+   */
+  private void prefix(String name) throws IOException {
+    if (this.comma) {
+      ensure(1);
+      this.buf[this.pos++] = ',';
+    }
+    if (name != null) {
+      if (name.length() > MAX_CACHED_NAME) {
+        quoted(name);
+        ensure(1);
+        this.buf[this.pos++] = ':';
+      } else {
+        byte[] encoded = encodedName(name);
+        ensure(encoded.length);
+        System.arraycopy(encoded, 0, this.buf, this.pos, encoded.length);
+        this.pos += encoded.length;
+      }
+    }
+  }
+
+  /**
+   * Returns the quoted and encoded name followed by a colon, from the cache if possible.
+   *
+   * @param name The name of the property
+   *
+   * @return the bytes to write
+   */
+  private byte[] encodedName(String name) throws IOException {
+    int h = name.hashCode();
+    int slot = (h ^ (h >>> 16)) & (NAME_CACHE_SIZE - 1);
+    String cached = this.names[slot];
+    if (cached == name || name.equals(cached)) return this.encodedNames[slot];
+    // Encode in the buffer (an escaped character takes up to 6 bytes) then copy
+    ensure(name.length() * 6 + 3);
+    int start = this.pos;
+    quoted(name);
+    this.buf[this.pos++] = ':';
+    byte[] encoded = Arrays.copyOfRange(this.buf, start, this.pos);
+    this.pos = start;
+    this.names[slot] = name;
+    this.encodedNames[slot] = encoded;
+    return encoded;
+  }
+
+  /**
+   * Writes an ASCII string that does not require any escaping.
+   *
+   * @param s The string to write.
+   */
+  private void ascii(String s) throws IOException {
+    final int length = s.length();
+    for (int i = 0; i < length; i++) {
+      if (this.pos == this.buf.length) drain();
+      this.buf[this.pos++] = (byte)s.charAt(i);
+    }
+  }
+
+  /**
+   * Writes the specified string as a quoted and escaped JSON string.
+   *
+   * @param s The string to write.
+   */
+  private void quoted(String s) throws IOException {
+    ensure(1);
+    this.buf[this.pos++] = '"';
+    final int length = s.length();
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+        if (this.pos == this.buf.length) drain();
+        this.buf[this.pos++] = (byte)c;
+      } else if (Character.isHighSurrogate(c) && i+1 < length && Character.isLowSurrogate(s.charAt(i+1))) {
+        supplementary(Character.toCodePoint(c, s.charAt(++i)));
+      } else {
+        escaped(c);
+      }
+    }
+    ensure(1);
+    this.buf[this.pos++] = '"';
+  }
+
+  /**
+   * Writes a single character from the Basic Multilingual Plane that is either escaped or
+   * not in the ASCII range.
+   *
+   * @param c The character to write.
+   */
+  private void escaped(char c) throws IOException {
+    ensure(6);
+    final byte[] b = this.buf;
+    if (c == '"' || c == '\\') {
+      b[this.pos++] = '\\';
+      b[this.pos++] = (byte)c;
+    } else if (c < 0x20) {
+      b[this.pos++] = '\\';
+      switch (c) {
+        case '\b': b[this.pos++] = 'b'; break;
+        case '\f': b[this.pos++] = 'f'; break;
+        case '\n': b[this.pos++] = 'n'; break;
+        case '\r': b[this.pos++] = 'r'; break;
+        case '\t': b[this.pos++] = 't'; break;
+        default:
+          b[this.pos++] = 'u';
+          b[this.pos++] = '0';
+          b[this.pos++] = '0';
+          b[this.pos++] = HEX[c >> 4];
+          b[this.pos++] = HEX[c & 0xF];
+      }
+    } else if (c < 0x800) {
+      b[this.pos++] = (byte)(0xC0 | (c >> 6));
+      b[this.pos++] = (byte)(0x80 | (c & 0x3F));
+    } else if (Character.isSurrogate(c)) {
+      b[this.pos++] = REPLACEMENT;
+    } else {
+      b[this.pos++] = (byte)(0xE0 | (c >> 12));
+      b[this.pos++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+      b[this.pos++] = (byte)(0x80 | (c & 0x3F));
+    }
+  }
+
+  /**
+   * Writes a supplementary code point as a four-byte UTF-8 sequence.
+   *
+   * @param cp The code point to write.
+   */
+  private void supplementary(int cp) throws IOException {
+    ensure(4);
+    final byte[] b = this.buf;
+    b[this.pos++] = (byte)(0xF0 | (cp >> 18));
+    b[this.pos++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+    b[this.pos++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+    b[this.pos++] = (byte)(0x80 | (cp & 0x3F));
+  }
+
+  /**
+   * Ensures that the buffer can accept the specified number of bytes, draining it if necessary.
+   *
+   * @param length The number of bytes about to be written.
+   */
+  private void ensure(int length) throws IOException {
+    if (this.pos + length > this.buf.length) drain();
+  }
+
+  /**
+   * Writes the content of the buffer to the underlying stream.
+   */
+  private void drain() throws IOException {
+    if (this.pos > 0) {
+      if (this.out != null) {
+        this.out.write(this.buf, 0, this.pos);
+      } else {
+        this.writer.write(new String(this.buf, 0, this.pos, StandardCharsets.UTF_8));
+      }
+      this.written += this.pos;
+      this.pos = 0;
+    }
+  }
+
+}
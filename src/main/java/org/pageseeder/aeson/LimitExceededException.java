@@ -0,0 +1,72 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import org.pageseeder.aeson.SerializerLimits.Limit;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Thrown by the serializer when a document exceeds one of its limits.
+ *
+ * <p>The location is that of the element or text which exceeded the limit.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class LimitExceededException extends SAXParseException {
+
+  /** As per requirement for serializable classes. */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The limit which was exceeded.
+   */
+  private final Limit limit;
+
+  /**
+   * The maximum allowed.
+   */
+  private final long max;
+
+  /**
+   * Creates a new exception.
+   *
+   * @param limit   The limit which was exceeded
+   * @param max     The maximum allowed
+   * @param locator The location in the document (may be <code>null</code>)
+   */
+  LimitExceededException(Limit limit, long max, Locator locator) {
+    super("Limit exceeded: "+limit.name().toLowerCase().replace('_', ' ')+" over "+max, locator);
+    this.limit = limit;
+    this.max = max;
+  }
+
+  /**
+   * @return the limit which was exceeded.
+   */
+  public Limit getLimit() {
+    return this.limit;
+  }
+
+  /**
+   * @return the maximum allowed.
+   */
+  public long getMax() {
+    return this.max;
+  }
+
+}
@@ -1,172 +1,771 @@
-/*
- * Copyright 2010-2015 Allette Systems (Australia)
- * http://www.allette.com.au
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *    http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package org.pageseeder.aeson;
-
-import java.io.File;
-
-import javax.xml.transform.Result;
-import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
-
-/**
- * Contains logic to invoke this library on the command-line.
- *
- * @author Christophe Lauret
- * @version 22 November 2013
- */
-public class Main {
-
-  /**
-   * To invoke this library on the command line.
-   *
-   * The options are as follows:
-   * <pre>
-   * -s:[source]       File or directory containing files to process (XML)
-   * -xsl:[stylesheet] Stylesheet to process the files (XSLT)
-   * -o:[output]       File or directory receiving transformation results (optional if source is file)
-   * </pre>
-   *
-   * @param args command-line arguments
-   * @throws Exception should anything go wrong.
-   */
-  public static void main(String[] args) throws Exception {
-
-    // Grab arguments
-    File source = getFile(args, "-s:");
-    File style = getFile(args, "-xsl:");
-    File output = getFile(args, "-o:");
-
-    // Source is required
-    if (source == null || !source.exists()) {
-      System.err.println("Unable to process source: "+source);
-      System.exit(0);
-    }
-
-    // Output folder required if source is a folder
-    if (source.isDirectory()) {
-      if (output == null || output.isFile()) {
-        System.err.println("When source is a directory, the output must be specified and be a directory");
-        System.exit(0);
-      }
-    }
-
-    // Setup the transformer
-    TransformerFactory factory = TransformerFactory.newInstance();
-    Transformer transformer = null;
-    if (style != null) {
-      Source xslt = new StreamSource(style);
-      transformer = factory.newTransformer(xslt);
-    } else {
-      // This should create a identity transformer
-      // TODO: We could simply SAX parse the xml...
-      transformer = factory.newTransformer();
-      transformer.setOutputProperty("method", "xml");
-      transformer.setOutputProperty("media-type", "application/json");
-    }
-
-    // Process
-    if (source.isDirectory()) {
-
-      // Let's ensure the output dir exists
-      if (!output.exists()) output.mkdirs();
-
-      // Iterate over files in directory
-      for (File f : source.listFiles()) {
-        StreamSource s = new StreamSource(f);
-        StreamResult r = new StreamResult(new File(output, toOutputName(f.getName(), transformer)));
-        Result result = JSONResult.newInstanceIfSupported(transformer, r);
-        transformer.transform(s, result);
-      }
-
-    } else {
-
-      // Process individual file
-      StreamSource s = new StreamSource(source);
-      StreamResult r;
-      if (output != null)
-        r = new StreamResult(output);
-      else
-        r = new StreamResult(System.out);
-      Result result = JSONResult.newInstanceIfSupported(transformer, r);
-      transformer.transform(s, result);
-    }
-
-  }
-
-  /**
-   * Returns a file from a command-line argument by prefix
-   *
-   * @param args   the array of command-line arguments
-   * @param prefix the prefix to look for
-   *
-   * @return the file corresponding to a matching argument without the prefix or <code>null</code>
-   */
-  private static File getFile(String[] args, String prefix) {
-    String value = getByPrefix(args, prefix);
-    if (value != null)
-      return new File(value);
-    else
-      return null;
-  }
-
-  /**
-   * Returns a command-line argument by prefix.
-   *
-   * @param args   the array of command-line arguments
-   * @param prefix the prefix to look for
-   *
-   * @return the matching argument without the prefix or <code>null</code>
-   */
-  private static String getByPrefix(String[] args, String prefix) {
-    for (String arg : args) {
-      if (arg.startsWith(prefix))
-        return arg.substring(prefix.length());
-    }
-    return null;
-  }
-
-  /**
-   * Compute the name of the file to output based on the method and media type
-   * of the transformer.
-   *
-   * @param name        The name of the file to transform.
-   * @param transformer The transformer in use
-   *
-   * @return The corresponding output name.
-   */
-  private static String toOutputName(String name, Transformer transformer) {
-    String method = transformer.getOutputProperty("method");
-    String media = transformer.getOutputProperty("media-type");
-    int dot = name.lastIndexOf('.');
-    String withoutExt = dot >= 0? name.substring(0, dot) : name;
-    if ("xml".equals(method)) {
-      if ("application/json".equals(media)) {
-        return withoutExt+".json";
-      } else {
-        return withoutExt+".xml";
-      }
-    } else if ("html".equals(method)) {
-      return withoutExt+".html";
-    } else if ("text".equals(method)) {
-      return withoutExt+".txt";
-    } else {
-      return name;
-    }
-  }
-}
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Contains logic to invoke this library on the command-line.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public class Main {
+
+  /**
+   * Buffers for the line-delimited JSON of each thread.
+   */
+  private static final ThreadLocal<ByteArrayOutputStream> LINES = new ThreadLocal<ByteArrayOutputStream>() {
+    @Override
+    protected ByteArrayOutputStream initialValue() {
+      return new ByteArrayOutputStream(8192);
+    }
+  };
+
+  /**
+   * In watch mode, how long to wait without changes before converting the changed files.
+   */
+  private static final long DEBOUNCE_MILLIS = 500;
+
+  /**
+   * In watch mode, the maximum time to collect changes before converting the changed files.
+   */
+  private static final long MAX_BATCH_MILLIS = 10000;
+
+  /**
+   * To invoke this library on the command line.
+   *
+   * The options are as follows:
+   * <pre>
+   * -s:[source]       File or directory containing files to process (XML)
+   * -xsl:[stylesheet] Stylesheet to process the files (XSLT), if not specified files are
+   *                   parsed directly into JSON
+   * -o:[output]       File or directory receiving transformation results (optional if source is file)
+   * -threads:[n]      Number of files to convert concurrently when source is a directory
+   *                   (defaults to the number of available processors)
+   * -format:[format]  "json" to write a JSON file for each source file (default) or "ndjson" to
+   *                   write each document on its own line into a single output file
+   * -mapping:[file]   Properties file declaring the types of properties by path
+   * -compress:[type]  "gzip" or "deflate" to compress the JSON output files
+   * -level:[n]        Compression level from 1 (fastest) to 9 (smallest)
+   * -strict-numbers   Only write valid JSON numbers as numbers, other values typed as numbers
+   *                   are written as strings with a warning instead of being normalized
+   * -stats            Print a summary of the conversions on the console when done
+   * -watch            Keep running after converting the source directory and convert files
+   *                   again as they are created or modified, or all files when the stylesheet
+   *                   is modified (stylesheets it imports or includes are not watched)
+   * </pre>
+   *
+   * <p>The process exits with status 1 if any file in the source directory could not be
+   * converted.
+   *
+   * @param args command-line arguments
+   * @throws Exception should anything go wrong.
+   */
+  public static void main(String[] args) throws Exception {
+
+    // Grab arguments
+    File source = getFile(args, "-s:");
+    File style = getFile(args, "-xsl:");
+    File output = getFile(args, "-o:");
+
+    // Source is required
+    if (source == null || !source.exists()) {
+      System.err.println("Unable to process source: "+source);
+      System.exit(0);
+    }
+
+    // Output format
+    String format = getByPrefix(args, "-format:");
+    boolean lines = "ndjson".equals(format);
+    if (format != null && !lines && !"json".equals(format)) {
+      System.err.println("Unsupported output format: "+format);
+      System.exit(0);
+    }
+
+    // Output is a single file (or the console) for line-delimited output
+    if (lines && output != null && output.isDirectory()) {
+      System.err.println("When the format is ndjson, the output must be a file");
+      System.exit(0);
+    }
+
+    // Output folder required if source is a folder
+    if (source.isDirectory() && !lines) {
+      if (output == null || output.isFile()) {
+        System.err.println("When source is a directory, the output must be specified and be a directory");
+        System.exit(0);
+      }
+    }
+
+    // Watch mode requires separate source and output directories
+    boolean watch = hasOption(args, "-watch");
+    if (watch && (!source.isDirectory() || lines || output == null
+        || output.getCanonicalFile().equals(source.getCanonicalFile()))) {
+      System.err.println("When watching, the source and output must be different directories");
+      System.exit(0);
+    }
+
+    // Compression applies to output files only
+    String compression = getByPrefix(args, "-compress:");
+    if (compression != null && output == null) {
+      System.err.println("When compressing, the output must be specified");
+      System.exit(0);
+    }
+
+    // Number of threads when processing a directory
+    int threads = Runtime.getRuntime().availableProcessors();
+    String n = getByPrefix(args, "-threads:");
+    if (n != null) {
+      try {
+        threads = Integer.parseInt(n);
+      } catch (NumberFormatException ex) {
+        threads = 0;
+      }
+      if (threads < 1) {
+        System.err.println("The number of threads must be a positive integer: "+n);
+        System.exit(0);
+      }
+    }
+
+    // Compile the stylesheet once, so that each thread can get its own transformer
+    Templates templates = null;
+    if (style != null) {
+      templates = TemplatesCache.getDefault().get(style);
+    }
+
+    // Options for the serializer
+    AesonBatch.Options options = new AesonBatch.Options();
+    File mapping = getFile(args, "-mapping:");
+    if (mapping != null) {
+      options.setMapping(AesonMapping.load(mapping));
+    }
+    try {
+      options.setCompression(compression);
+      String level = getByPrefix(args, "-level:");
+      if (level != null) options.setCompressionLevel(Integer.parseInt(level));
+    } catch (IllegalArgumentException ex) {
+      System.err.println(ex.getMessage());
+      System.exit(0);
+    }
+    options.setNormalizeNumbers(!hasOption(args, "-strict-numbers"));
+    SerializerStats stats = hasOption(args, "-stats")? new SerializerStats() : null;
+    options.setStats(stats);
+    long start = System.nanoTime();
+    int errors = 0;
+
+    // Process
+    if (lines) {
+
+      // All documents are appended to the same stream
+      OutputStream out = output != null? new FileOutputStream(output) : System.out;
+      if (compression != null) {
+        out = new CompressedOutputStream(out, compression, options.getCompressionLevel());
+      }
+      out = new BufferedOutputStream(out, 65536);
+      try {
+        if (source.isDirectory()) {
+          errors = convertFiles(source.listFiles(), null, out, templates, threads, options);
+        } else {
+          Transformer transformer = templates != null? templates.newTransformer() : null;
+          convertToLine(source, transformer, options).writeTo(out);
+        }
+      } finally {
+        if (output != null) out.close();
+        else out.flush();
+      }
+
+    } else if (source.isDirectory()) {
+
+      // Let's ensure the output dir exists
+      if (!output.exists()) output.mkdirs();
+
+      if (watch) {
+        watch(source, output, style, threads, options, stats);
+      } else {
+        errors = convertFiles(source.listFiles(), output, null, templates, threads, options);
+      }
+
+    } else if (templates != null) {
+
+      // Process individual file
+      Transformer transformer = templates.newTransformer();
+      StreamSource s = new StreamSource(source);
+      StreamResult r;
+      if (output != null)
+        r = new StreamResult(output);
+      else
+        r = new StreamResult(System.out);
+      transform(transformer, s, r, options);
+
+    } else {
+
+      // No stylesheet, parse directly into JSON
+      if (output != null) {
+        Aeson.convert(source, output, options);
+      } else {
+        Aeson.convert(new InputSource(source.toURI().toString()), System.out, options);
+      }
+    }
+
+    if (stats != null) {
+      printSummary(stats, System.nanoTime() - start);
+    }
+
+    // Some files could not be converted
+    if (errors > 0) {
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Converts the files in the source directory, then watches it and converts the files
+   * again as they are created or modified, until the process is stopped.
+   *
+   * <p>Changes are collected until there are none for a moment, so that files are converted
+   * once when a batch of files is written. Only the files which changed are converted, and
+   * the stylesheet is only compiled again if it was modified. Hidden files and the stylesheet
+   * itself are ignored.
+   *
+   * <p>The directory of the stylesheet is also watched: when the stylesheet is modified, all
+   * the files are converted again. If it can no longer be compiled, the error is reported
+   * and the previous version is used until it is fixed. Changes to the stylesheets it
+   * imports or includes are not detected.
+   *
+   * <p>If the file system reports that changes were lost, all the files modified since the
+   * previous conversion started are converted.
+   *
+   * @param source    The directory containing the files to process
+   * @param output    The directory receiving transformation results
+   * @param style     The stylesheet (may be <code>null</code> to parse files directly)
+   * @param threads   The number of threads to use
+   * @param options   The options for the serializer
+   * @param stats     The statistics to print after each batch (may be <code>null</code>)
+   *
+   * @throws IOException If the directory cannot be watched
+   * @throws InterruptedException If interrupted while waiting for changes
+   * @throws TransformerConfigurationException If the stylesheet could not be compiled initially
+   */
+  private static void watch(File source, File output, File style, int threads,
+      AesonBatch.Options options, SerializerStats stats)
+      throws IOException, InterruptedException, TransformerConfigurationException {
+    Path dir = source.getAbsoluteFile().toPath().normalize();
+    Path stylesheet = style != null? style.getAbsoluteFile().toPath().normalize() : null;
+    FileFilter sources = sources(stylesheet);
+    // List the files with absolute paths, like the paths reported by the watch service
+    File directory = dir.toFile();
+    WatchService watcher = dir.getFileSystem().newWatchService();
+    try {
+      // Register before the initial conversion, so that no change is missed
+      dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+      if (stylesheet != null && !stylesheet.getParent().equals(dir)) {
+        stylesheet.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+      }
+      File[] files = directory.listFiles(sources);
+      Templates templates = null;
+      while (true) {
+        long since = System.currentTimeMillis();
+        long start = System.nanoTime();
+        if (style != null) {
+          try {
+            templates = TemplatesCache.getDefault().get(style);
+          } catch (TransformerConfigurationException ex) {
+            if (templates == null) throw ex;
+            System.err.println("Unable to compile "+style.getName()+", using the previous version: "+ex.getMessageAndLocation());
+          }
+        }
+        convertFiles(files, output, null, templates, threads, options);
+        if (stats != null) {
+          printSummary(stats, System.nanoTime() - start);
+          stats.reset();
+        } else {
+          System.err.println(String.format("Converted %d file(s) in %d ms", files.length,
+              TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        }
+
+        // Wait for changes, then until there are no more changes for a moment
+        Set<File> changed = new TreeSet<File>();
+        boolean overflow = false;
+        boolean restyled = false;
+        WatchKey key = watcher.take();
+        long first = System.currentTimeMillis();
+        while (key != null) {
+          Path watched = (Path)key.watchable();
+          for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+              overflow = true;
+              continue;
+            }
+            Path path = watched.resolve((Path)event.context());
+            if (path.equals(stylesheet)) restyled = true;
+            if (watched.equals(dir)) changed.add(path.toFile());
+          }
+          key.reset();
+          if (System.currentTimeMillis() - first > MAX_BATCH_MILLIS) break;
+          key = watcher.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        if (overflow) {
+          for (File f : directory.listFiles(sources)) {
+            if (f.lastModified() >= since) changed.add(f);
+          }
+          if (style != null && style.lastModified() >= since) restyled = true;
+        }
+
+        // All the files when the stylesheet changed, otherwise only existing files which changed
+        if (restyled) {
+          changed.addAll(Arrays.asList(directory.listFiles(sources)));
+        }
+        Set<File> existing = new TreeSet<File>();
+        for (File f : changed) {
+          if (sources.accept(f)) existing.add(f);
+        }
+        files = existing.toArray(new File[existing.size()]);
+      }
+    } finally {
+      watcher.close();
+    }
+  }
+
+  /**
+   * Returns the filter selecting the files to convert in watch mode: regular files which are
+   * neither hidden nor the stylesheet.
+   *
+   * @param stylesheet The normalized absolute path of the stylesheet (may be <code>null</code>)
+   *
+   * @return the filter for source files
+   */
+  static FileFilter sources(final Path stylesheet) {
+    return new FileFilter() {
+      @Override
+      public boolean accept(File f) {
+        if (!f.isFile() || f.isHidden()) return false;
+        return stylesheet == null || !stylesheet.equals(f.getAbsoluteFile().toPath().normalize());
+      }
+    };
+  }
+
+  /**
+   * Converts the specified files concurrently.
+   *
+   * <p>Files are queued to a fixed pool of workers with a bounded queue, so that when the
+   * workers cannot keep up the main thread converts files itself rather than queuing them
+   * all. Each worker uses its own transformer and errors are reported for each file without
+   * interrupting the other conversions.
+   *
+   * <p>Files are converted in the order of their names. Line-delimited JSON is written in
+   * that order as well, whichever order the conversions complete in.
+   *
+   * @param files     The files to process, other than regular files are ignored
+   * @param output    The directory receiving transformation results
+   * @param lines     The stream receiving line-delimited JSON instead (may be <code>null</code>)
+   * @param templates The compiled stylesheet (may be <code>null</code> to parse files directly)
+   * @param threads   The number of threads to use
+   * @param options   The options for the serializer
+   *
+   * @return the number of files which could not be converted
+   *
+   * @throws InterruptedException If interrupted while waiting for the conversions to complete
+   */
+  private static int convertFiles(File[] files, final File output, final OutputStream lines,
+      final Templates templates, int threads, final AesonBatch.Options options) throws InterruptedException {
+    final ThreadLocal<Transformer> transformers = new ThreadLocal<Transformer>() {
+      @Override
+      protected Transformer initialValue() {
+        try {
+          return templates.newTransformer();
+        } catch (TransformerConfigurationException ex) {
+          throw new IllegalStateException(ex);
+        }
+      }
+    };
+    final AtomicInteger errors = new AtomicInteger();
+    final OrderedLines ordered = lines != null? new OrderedLines(lines, threads * 4) : null;
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(threads * 4), new ThreadPoolExecutor.CallerRunsPolicy());
+
+    // Iterate over files in order
+    files = files.clone();
+    Arrays.sort(files);
+    int count = 0;
+    for (final File f : files) {
+      if (!f.isFile()) continue;
+      final int index = count++;
+      if (ordered != null) ordered.acquire();
+      pool.execute(new Runnable() {
+        @Override
+        public void run() {
+          ByteArrayOutputStream line = null;
+          try {
+            if (ordered != null) {
+              line = convertToLine(f, templates != null? transformers.get() : null, options);
+            } else {
+              convertFile(f, output, templates != null? transformers.get() : null, options);
+            }
+          } catch (Throwable ex) {
+            // Including errors such as a stack overflow on a deeply nested document
+            line = null;
+            errors.incrementAndGet();
+            System.err.println("["+f.getName()+"] Unable to convert: "+(ex instanceof Exception? ex.getMessage() : ex));
+          } finally {
+            // Always, so that the documents after this one are written
+            if (ordered != null) {
+              try {
+                ordered.write(index, line);
+              } catch (IOException ex) {
+                errors.incrementAndGet();
+                System.err.println("["+f.getName()+"] Unable to write: "+ex.getMessage());
+              }
+            }
+          }
+        }
+      });
+    }
+
+    // Wait for all the conversions to complete
+    pool.shutdown();
+    pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    if (errors.get() > 0) {
+      System.err.println(errors.get()+" file(s) could not be converted");
+    }
+    return errors.get();
+  }
+
+  /**
+   * Converts the specified file into the output directory.
+   *
+   * <p>The name of the output file is computed from the output properties of the transformer.
+   *
+   * @param source      The XML file to convert
+   * @param output      The directory receiving the converted file
+   * @param transformer The transformer to use (may be <code>null</code> to parse the file directly)
+   * @param options     The options for the serializer
+   *
+   * @return the output file
+   *
+   * @throws IOException          If an I/O error occurs while reading or writing.
+   * @throws SAXException         If the XML could not be parsed.
+   * @throws TransformerException If thrown by the transformer.
+   */
+  static File convertFile(File source, File output, Transformer transformer, AesonBatch.Options options)
+      throws IOException, SAXException, TransformerException {
+    File target;
+    if (transformer != null) {
+      target = new File(output, toOutputName(source.getName(), transformer, options.getCompression()));
+      transform(transformer, new StreamSource(source), new StreamResult(target), options);
+    } else {
+      target = new File(output, toOutputName(source.getName(), "xml", "application/json", options.getCompression()));
+      Aeson.convert(source, target, options);
+    }
+    return target;
+  }
+
+  /**
+   * Converts the specified file to line-delimited JSON into the buffer of the current thread.
+   *
+   * <p>The JSON is serialized into a buffer first, so that documents converted concurrently are
+   * appended to the shared stream as a whole.
+   *
+   * @param source      The XML file to convert
+   * @param transformer The transformer to use (may be <code>null</code> to parse the file directly)
+   * @param options     The options for the serializer
+   *
+   * @return the buffer containing the converted document, until the next conversion in this thread
+   *
+   * @throws IOException          If an I/O error occurs while reading or writing.
+   * @throws SAXException         If the XML could not be parsed.
+   * @throws TransformerException If thrown by the transformer.
+   */
+  private static ByteArrayOutputStream convertToLine(File source, Transformer transformer,
+      AesonBatch.Options options) throws IOException, SAXException, TransformerException {
+    ByteArrayOutputStream buffer = LINES.get();
+    buffer.reset();
+    JSONSerializer serializer = SerializerPool.SHARED.acquire(buffer);
+    try {
+      serializer.setLineDelimited(true);
+      options.configure(serializer);
+      if (transformer != null) {
+        transformer.transform(new StreamSource(source), new SAXResult(serializer));
+      } else {
+        Aeson.parse(new InputSource(source.toURI().toString()), serializer);
+      }
+    } finally {
+      SerializerPool.SHARED.release(serializer);
+    }
+    return buffer;
+  }
+
+  /**
+   * Transforms the source using a JSON result configured with the options if supported.
+   *
+   * <p>If the transformation fails, the output file of a JSON result is left unchanged.
+   *
+   * @param transformer The transformer to use
+   * @param source      The source to transform
+   * @param result      The stream result to write to
+   * @param options     The options for the serializer
+   *
+   * @throws TransformerException If thrown by the transformer or the output cannot be written
+   */
+  private static void transform(Transformer transformer, StreamSource source, StreamResult result,
+      AesonBatch.Options options) throws TransformerException {
+    Result r = JSONResult.newInstanceIfSupported(transformer, result, options.getCompression(), options.getCompressionLevel());
+    if (r instanceof JSONResult) {
+      JSONResult json = (JSONResult)r;
+      options.configure((JSONSerializer)json.getHandler());
+      try {
+        transformer.transform(source, json);
+      } catch (TransformerException ex) {
+        json.discard();
+        throw ex;
+      } catch (RuntimeException ex) {
+        json.discard();
+        throw ex;
+      }
+    } else {
+      transformer.transform(source, r);
+    }
+  }
+
+  /**
+   * Prints a summary of the conversions on <code>System.err</code>.
+   *
+   * @param stats   The statistics collected during the conversions
+   * @param elapsed The elapsed time in nanoseconds
+   */
+  private static void printSummary(SerializerStats stats, long elapsed) {
+    double seconds = elapsed / 1e9;
+    long documents = stats.getDocuments();
+    double megabytes = stats.getBytesWritten() / 1e6;
+    System.err.println(String.format("Converted %d document(s) in %.3f s: %.1f docs/sec, %.2f MB/sec",
+        documents, seconds, documents / seconds, megabytes / seconds));
+    System.err.println(stats);
+  }
+
+  /**
+   * Indicates whether the specified option is one of the command-line arguments.
+   *
+   * @param args   the array of command-line arguments
+   * @param option the option to look for
+   *
+   * @return <code>true</code> if one of the arguments is the option; <code>false</code> otherwise.
+   */
+  private static boolean hasOption(String[] args, String option) {
+    for (String arg : args) {
+      if (arg.equals(option)) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns a file from a command-line argument by prefix
+   *
+   * @param args   the array of command-line arguments
+   * @param prefix the prefix to look for
+   *
+   * @return the file corresponding to a matching argument without the prefix or <code>null</code>
+   */
+  private static File getFile(String[] args, String prefix) {
+    String value = getByPrefix(args, prefix);
+    if (value != null)
+      return new File(value);
+    else
+      return null;
+  }
+
+  /**
+   * Returns a command-line argument by prefix.
+   *
+   * @param args   the array of command-line arguments
+   * @param prefix the prefix to look for
+   *
+   * @return the matching argument without the prefix or <code>null</code>
+   */
+  private static String getByPrefix(String[] args, String prefix) {
+    for (String arg : args) {
+      if (arg.startsWith(prefix))
+        return arg.substring(prefix.length());
+    }
+    return null;
+  }
+
+  /**
+   * Compute the name of the file to output based on the method and media type
+   * of the transformer.
+   *
+   * @param name        The name of the file to transform.
+   * @param transformer The transformer in use
+   * @param encoding    The content coding of JSON output (may be <code>null</code>)
+   *
+   * @return The corresponding output name.
+   */
+  private static String toOutputName(String name, Transformer transformer, String encoding) {
+    String method = transformer.getOutputProperty("method");
+    String media = transformer.getOutputProperty("media-type");
+    return toOutputName(name, method, media, encoding);
+  }
+
+  /**
+   * Compute the name of the file to output based on the method and media type.
+   *
+   * <p>Compressed JSON output is named after the coding, for example <code>.json.gz</code>.
+   *
+   * @param name     The name of the file to transform.
+   * @param method   The output method
+   * @param media    The output media type
+   * @param encoding The content coding of JSON output (may be <code>null</code>)
+   *
+   * @return The corresponding output name.
+   */
+  private static String toOutputName(String name, String method, String media, String encoding) {
+    int dot = name.lastIndexOf('.');
+    String withoutExt = dot >= 0? name.substring(0, dot) : name;
+    String compressed = JSONResult.GZIP_ENCODING.equals(encoding)? ".gz"
+        : JSONResult.DEFLATE_ENCODING.equals(encoding)? ".zz" : "";
+    if ("xml".equals(method)) {
+      if ("application/json".equals(media)) {
+        return withoutExt+".json"+compressed;
+      } else if ("application/cbor".equals(media)) {
+        return withoutExt+".cbor"+compressed;
+      } else if (media != null && media.endsWith("msgpack")) {
+        return withoutExt+".msgpack"+compressed;
+      } else {
+        return withoutExt+".xml";
+      }
+    } else if ("html".equals(method)) {
+      return withoutExt+".html";
+    } else if ("text".equals(method)) {
+      return withoutExt+".txt";
+    } else {
+      return name;
+    }
+  }
+
+  // Inner classes
+  // ---------------------------------------------------------------------------------------------
+
+  /**
+   * Appends the line-delimited JSON of each file to a stream in the order of the files,
+   * whichever order the conversions complete in.
+   *
+   * <p>Documents completed before the ones preceding them are held until they can be written.
+   * To bound the number of documents held, a permit must be acquired before submitting each
+   * file and it is only released once its document is written: when a file is slow, the files
+   * after it can only be converted up to the size of the window.
+   */
+  static final class OrderedLines {
+
+    /**
+     * The stream receiving all the converted documents.
+     */
+    private final OutputStream out;
+
+    /**
+     * The permits for the files submitted but not written yet.
+     */
+    private final Semaphore window;
+
+    /**
+     * The documents waiting for the ones preceding them, by index.
+     */
+    private final Map<Integer, byte[]> pending = new HashMap<Integer, byte[]>();
+
+    /**
+     * The index of the next document to write.
+     */
+    private int next = 0;
+
+    /**
+     * @param out    The stream receiving all the converted documents
+     * @param window The maximum number of files submitted but not written yet
+     */
+    OrderedLines(OutputStream out, int window) {
+      this.out = out;
+      this.window = new Semaphore(window);
+    }
+
+    /**
+     * Waits until the next file can be submitted without exceeding the window.
+     *
+     * @throws InterruptedException If interrupted while waiting
+     */
+    void acquire() throws InterruptedException {
+      this.window.acquire();
+    }
+
+    /**
+     * Writes the document at the specified index, or holds it until the documents before it
+     * are written.
+     *
+     * <p>This method must be called once for each file submitted, even if its conversion failed,
+     * so that the documents after it can be written.
+     *
+     * @param index The index of the file
+     * @param line  The converted document (<code>null</code> if the conversion failed)
+     *
+     * @throws IOException If thrown by the underlying stream
+     */
+    synchronized void write(int index, ByteArrayOutputStream line) throws IOException {
+      if (index != this.next) {
+        this.pending.put(index, line != null? line.toByteArray() : new byte[0]);
+        return;
+      }
+      int from = this.next;
+      try {
+        this.next++;
+        if (line != null) line.writeTo(this.out);
+        for (byte[] b = this.pending.remove(this.next); b != null; b = this.pending.remove(this.next)) {
+          this.next++;
+          this.out.write(b);
+        }
+      } finally {
+        this.window.release(this.next - from);
+      }
+    }
+  }
+
+}
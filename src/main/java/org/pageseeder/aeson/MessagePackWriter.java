@@ -0,0 +1,381 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * A MessagePack writer.
+ *
+ * <p>MessagePack requires the size of maps, arrays and strings to precede their content, so
+ * each document is buffered: a placeholder is reserved for each of these headers and the
+ * document is written to the stream once complete with each header in its shortest form.
+ *
+ * <p>Integers use the shortest encoding and decimal numbers are written as single-precision
+ * floats when there is no loss of precision. Integers beyond 64 bits cannot be represented.
+ *
+ * @see <a href="https://github.com/msgpack/msgpack/blob/master/spec.md">MessagePack specification</a>
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+final class MessagePackWriter extends BinaryWriter {
+
+  /** Types of placeholders */
+  private static final byte MAP = 0, ARRAY = 1, STRING = 2;
+
+  /** Size of a placeholder (the largest header) */
+  private static final int PLACEHOLDER = 5;
+
+  /**
+   * Above this capacity, the buffer is discarded when the writer is reset.
+   */
+  private static final int MAX_RETAINED_BUFFER = DEFAULT_BUFFER_SIZE * 16;
+
+  /**
+   * Position of each placeholder in the buffer in document order.
+   */
+  private int[] positions = new int[16];
+
+  /**
+   * Number of entries (or bytes for strings) for each placeholder.
+   */
+  private int[] counts = new int[16];
+
+  /**
+   * Type of each placeholder.
+   */
+  private byte[] types = new byte[16];
+
+  /**
+   * Number of placeholders.
+   */
+  private int placeholders = 0;
+
+  /**
+   * Index of the placeholder of each open map or array.
+   */
+  private int[] open = new int[16];
+
+  /**
+   * Buffer for the headers written to the stream.
+   */
+  private final byte[] header = new byte[PLACEHOLDER];
+
+  /**
+   * Creates a new MessagePack writer using the specified byte stream.
+   *
+   * @param out A valid OutputStream.
+   */
+  public MessagePackWriter(OutputStream out) {
+    super(out);
+  }
+
+  @Override
+  public void reset(OutputStream out) {
+    super.reset(out);
+    this.placeholders = 0;
+    if (this.buf.length > MAX_RETAINED_BUFFER) {
+      this.buf = new byte[DEFAULT_BUFFER_SIZE];
+    }
+  }
+
+  // Structure
+  // =============================================================================================
+
+  @Override
+  public void writeStartObject(String name) throws IOException {
+    name(name);
+    start(MAP);
+  }
+
+  @Override
+  public void writeStartArray(String name) throws IOException {
+    name(name);
+    start(ARRAY);
+  }
+
+  @Override
+  public void writeEnd(boolean object) throws IOException {
+    if (this.depth == 0) throw new IllegalStateException("No object or array to end");
+    this.depth--;
+    complete();
+  }
+
+  // Values
+  // =============================================================================================
+
+  @Override
+  public void writeString(String name, String value) throws IOException {
+    name(name);
+    str(value);
+    complete();
+  }
+
+  @Override
+  public void writeStartString(String name) throws IOException {
+    name(name);
+    placeholder(STRING);
+  }
+
+  @Override
+  public void writeStringChars(char[] ch, int start, int length) throws IOException {
+    utf8(ch, start, start + length);
+  }
+
+  @Override
+  public void writeEndString() throws IOException {
+    endUTF8();
+    int index = this.placeholders - 1;
+    this.counts[index] = this.pos - this.positions[index] - PLACEHOLDER;
+    complete();
+  }
+
+  @Override
+  public void writeNumber(String name, long value) throws IOException {
+    name(name);
+    ensure(9);
+    if (value >= 0) {
+      if (value < 0x80) {
+        this.buf[this.pos++] = (byte)value;
+      } else if (value < 0x100) {
+        this.buf[this.pos++] = (byte)0xCC;
+        bigEndian(value, 1);
+      } else if (value < 0x10000) {
+        this.buf[this.pos++] = (byte)0xCD;
+        bigEndian(value, 2);
+      } else if (value < 0x100000000L) {
+        this.buf[this.pos++] = (byte)0xCE;
+        bigEndian(value, 4);
+      } else {
+        this.buf[this.pos++] = (byte)0xCF;
+        bigEndian(value, 8);
+      }
+    } else {
+      if (value >= -32) {
+        this.buf[this.pos++] = (byte)value;
+      } else if (value >= Byte.MIN_VALUE) {
+        this.buf[this.pos++] = (byte)0xD0;
+        bigEndian(value, 1);
+      } else if (value >= Short.MIN_VALUE) {
+        this.buf[this.pos++] = (byte)0xD1;
+        bigEndian(value, 2);
+      } else if (value >= Integer.MIN_VALUE) {
+        this.buf[this.pos++] = (byte)0xD2;
+        bigEndian(value, 4);
+      } else {
+        this.buf[this.pos++] = (byte)0xD3;
+        bigEndian(value, 8);
+      }
+    }
+    complete();
+  }
+
+  /**
+   * Writes integers up to <code>2^64-1</code> as unsigned 64-bit integers, MessagePack has no
+   * representation for larger integers.
+   *
+   * @throws NumberFormatException If the integer is beyond 64 bits
+   */
+  @Override
+  void writeNumber(String name, BigInteger value) throws IOException {
+    if (value.signum() < 0 || value.bitLength() > 64)
+      throw new NumberFormatException("MessagePack does not allow integers beyond 64 bits: "+value);
+    name(name);
+    ensure(9);
+    this.buf[this.pos++] = (byte)0xCF;
+    bigEndian(value.longValue(), 8);
+    complete();
+  }
+
+  @Override
+  public void writeNumber(String name, double value) throws IOException {
+    checkFinite(value);
+    name(name);
+    ensure(9);
+    float f = (float)value;
+    if (f == value) {
+      this.buf[this.pos++] = (byte)0xCA;
+      bigEndian(Float.floatToIntBits(f), 4);
+    } else {
+      this.buf[this.pos++] = (byte)0xCB;
+      bigEndian(Double.doubleToLongBits(value), 8);
+    }
+    complete();
+  }
+
+  @Override
+  public void writeBoolean(String name, boolean value) throws IOException {
+    name(name);
+    ensure(1);
+    this.buf[this.pos++] = value? (byte)0xC3 : (byte)0xC2;
+    complete();
+  }
+
+  @Override
+  public void writeNull(String name) throws IOException {
+    name(name);
+    ensure(1);
+    this.buf[this.pos++] = (byte)0xC0;
+    complete();
+  }
+
+  // Lifecycle
+  // =============================================================================================
+
+  /**
+   * Flushes the underlying stream; an incomplete document remains buffered.
+   */
+  @Override
+  public void flush() throws IOException {
+    this.out.flush();
+  }
+
+  /**
+   * Closes the underlying stream; an incomplete document is discarded.
+   */
+  @Override
+  public void close() throws IOException {
+    this.out.close();
+  }
+
+  // Private helpers
+  // =============================================================================================
+
+  @Override
+  void ensure(int length) {
+    if (this.pos + length > this.buf.length) {
+      this.buf = Arrays.copyOf(this.buf, Math.max(this.buf.length * 2, this.pos + length));
+    }
+  }
+
+  /**
+   * Counts a new entry in the current map or array and writes its name if specified.
+   *
+   * @param name The name of the property (may be <code>null</code>)
+   */
+  private void name(String name) throws IOException {
+    if (this.depth > 0) this.counts[this.open[this.depth-1]]++;
+    if (name != null) str(name);
+  }
+
+  /**
+   * Starts a map or array.
+   *
+   * @param type The type of placeholder
+   */
+  private void start(byte type) {
+    if (this.depth == this.open.length) {
+      this.open = Arrays.copyOf(this.open, this.depth * 2);
+    }
+    this.open[this.depth++] = this.placeholders;
+    placeholder(type);
+  }
+
+  /**
+   * Reserves a placeholder for a header of the specified type.
+   *
+   * @param type The type of placeholder
+   */
+  private void placeholder(byte type) {
+    int index = this.placeholders++;
+    if (index == this.positions.length) {
+      this.positions = Arrays.copyOf(this.positions, index * 2);
+      this.counts = Arrays.copyOf(this.counts, index * 2);
+      this.types = Arrays.copyOf(this.types, index * 2);
+    }
+    ensure(PLACEHOLDER);
+    this.positions[index] = this.pos;
+    this.counts[index] = 0;
+    this.types[index] = type;
+    this.pos += PLACEHOLDER;
+  }
+
+  /**
+   * Writes the specified string with its header.
+   *
+   * @param s The string to write.
+   */
+  private void str(String s) throws IOException {
+    int length = utf8Length(s);
+    ensure(PLACEHOLDER + length);
+    final int n = header(STRING, length);
+    System.arraycopy(this.header, 0, this.buf, this.pos, n);
+    this.pos += n;
+    utf8(s);
+  }
+
+  /**
+   * Writes the document to the stream if it is complete.
+   */
+  private void complete() throws IOException {
+    if (this.depth > 0) return;
+    int from = 0;
+    for (int i = 0; i < this.placeholders; i++) {
+      int at = this.positions[i];
+      int length = header(this.types[i], this.counts[i]);
+      this.out.write(this.buf, from, at - from);
+      this.out.write(this.header, 0, length);
+      this.written += at - from + length;
+      from = at + PLACEHOLDER;
+    }
+    this.out.write(this.buf, from, this.pos - from);
+    this.written += this.pos - from;
+    this.pos = 0;
+    this.placeholders = 0;
+  }
+
+  /**
+   * Encodes the header for the specified type and count in its shortest form.
+   *
+   * @param type  The type of placeholder
+   * @param count The number of entries or bytes
+   *
+   * @return the number of bytes in the header
+   */
+  private int header(byte type, int count) {
+    final byte[] h = this.header;
+    if (type == STRING) {
+      if (count < 32) {
+        h[0] = (byte)(0xA0 | count);
+        return 1;
+      } else if (count < 0x100) {
+        h[0] = (byte)0xD9;
+        h[1] = (byte)count;
+        return 2;
+      }
+    } else if (count < 16) {
+      h[0] = (byte)((type == MAP? 0x80 : 0x90) | count);
+      return 1;
+    }
+    if (count < 0x10000) {
+      h[0] = (byte)(type == MAP? 0xDE : type == ARRAY? 0xDC : 0xDA);
+      h[1] = (byte)(count >> 8);
+      h[2] = (byte)count;
+      return 3;
+    }
+    h[0] = (byte)(type == MAP? 0xDF : type == ARRAY? 0xDD : 0xDB);
+    h[1] = (byte)(count >> 24);
+    h[2] = (byte)(count >> 16);
+    h[3] = (byte)(count >> 8);
+    h[4] = (byte)count;
+    return 5;
+  }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+/**
+ * Limits on what a serializer accepts for each document.
+ *
+ * <p>When a document exceeds a limit, the serializer stops immediately with a
+ * {@link LimitExceededException}, so that a pathological document cannot use unbounded memory
+ * or time. By default, there are no limits.
+ *
+ * <p>Serializers copy the limits specified with
+ * {@link JSONSerializer#setLimits(SerializerLimits)}, so the same instance can be shared.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class SerializerLimits {
+
+  /**
+   * The kinds of limits.
+   */
+  public enum Limit {
+
+    /** The nesting depth of elements. */
+    DEPTH,
+
+    /** The number of bytes of output for a document. */
+    OUTPUT_SIZE,
+
+    /** The number of characters of a value. */
+    VALUE_LENGTH,
+
+    /** The number of attributes of an element. */
+    ATTRIBUTES
+
+  };
+
+  /**
+   * The maximum nesting depth of elements.
+   */
+  private int maxDepth = Integer.MAX_VALUE;
+
+  /**
+   * The maximum number of bytes of output for a document.
+   */
+  private long maxOutputSize = Long.MAX_VALUE;
+
+  /**
+   * The maximum number of characters of a value.
+   */
+  private int maxValueLength = Integer.MAX_VALUE;
+
+  /**
+   * The maximum number of attributes of an element.
+   */
+  private int maxAttributes = Integer.MAX_VALUE;
+
+  /**
+   * Sets the maximum nesting depth of elements, the document element being at depth 1.
+   *
+   * @param depth The maximum depth
+   *
+   * @throws IllegalArgumentException If the depth is not positive
+   */
+  public void setMaxDepth(int depth) {
+    this.maxDepth = check(depth);
+  }
+
+  /**
+   * Sets the maximum number of bytes of output for each document.
+   *
+   * <p>The output is checked as elements start and as string values are written, so a
+   * document stops within an element or a chunk of text of the limit.
+   *
+   * @param size The maximum number of bytes
+   *
+   * @throws IllegalArgumentException If the size is not positive
+   */
+  public void setMaxOutputSize(long size) {
+    if (size < 1) throw new IllegalArgumentException("Limit must be positive: "+size);
+    this.maxOutputSize = size;
+  }
+
+  /**
+   * Sets the maximum number of characters of a value, whether from an attribute or from
+   * the text of an element.
+   *
+   * @param length The maximum number of characters
+   *
+   * @throws IllegalArgumentException If the length is not positive
+   */
+  public void setMaxValueLength(int length) {
+    this.maxValueLength = check(length);
+  }
+
+  /**
+   * Sets the maximum number of attributes of an element, including those which are not
+   * serialized.
+   *
+   * @param count The maximum number of attributes
+   *
+   * @throws IllegalArgumentException If the count is not positive
+   */
+  public void setMaxAttributes(int count) {
+    this.maxAttributes = check(count);
+  }
+
+  /**
+   * @return the maximum nesting depth of elements.
+   */
+  public int getMaxDepth() {
+    return this.maxDepth;
+  }
+
+  /**
+   * @return the maximum number of bytes of output for each document.
+   */
+  public long getMaxOutputSize() {
+    return this.maxOutputSize;
+  }
+
+  /**
+   * @return the maximum number of characters of a value.
+   */
+  public int getMaxValueLength() {
+    return this.maxValueLength;
+  }
+
+  /**
+   * @return the maximum number of attributes of an element.
+   */
+  public int getMaxAttributes() {
+    return this.maxAttributes;
+  }
+
+  /**
+   * @return the specified limit if it is positive.
+   */
+  private static int check(int limit) {
+    if (limit < 1) throw new IllegalArgumentException("Limit must be positive: "+limit);
+    return limit;
+  }
+
+  @Override
+  public String toString() {
+    return "depth="+this.maxDepth+" output="+this.maxOutputSize+" value="+this.maxValueLength+" attributes="+this.maxAttributes;
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A thread-safe pool of serializers so that their buffers and state can be reused across
+ * documents.
+ *
+ * <p>The pool never blocks: when empty, a new serializer is created; when full, released
+ * serializers are simply discarded.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+final class SerializerPool {
+
+  /**
+   * Default maximum number of idle serializers to keep.
+   */
+  static final int DEFAULT_CAPACITY = Math.max(16, Runtime.getRuntime().availableProcessors() * 2);
+
+  /**
+   * Pool shared by the results and converters in this package.
+   */
+  static final SerializerPool SHARED = new SerializerPool(DEFAULT_CAPACITY);
+
+  /**
+   * The idle serializers.
+   */
+  private final BlockingQueue<JSONSerializer> idle;
+
+  /**
+   * Creates a new pool.
+   *
+   * @param capacity The maximum number of idle serializers to keep.
+   */
+  public SerializerPool(int capacity) {
+    this.idle = new ArrayBlockingQueue<JSONSerializer>(capacity);
+  }
+
+  /**
+   * Returns a serializer writing to the specified byte stream.
+   *
+   * @param out A valid OutputStream.
+   * @return a pooled serializer if one is available or a new one
+   */
+  public JSONSerializer acquire(OutputStream out) {
+    JSONSerializer serializer = this.idle.poll();
+    if (serializer == null) return new JSONSerializer(out);
+    serializer.reset(out);
+    return serializer;
+  }
+
+  /**
+   * Returns a serializer writing to the specified character stream.
+   *
+   * @param writer A valid character stream.
+   * @return a pooled serializer if one is available or a new one
+   */
+  public JSONSerializer acquire(Writer writer) {
+    JSONSerializer serializer = this.idle.poll();
+    if (serializer == null) return new JSONSerializer(writer);
+    serializer.reset(writer);
+    return serializer;
+  }
+
+  /**
+   * Returns the specified serializer to the pool.
+   *
+   * <p>The serializer is detached from its stream and its options are cleared first, so that
+   * idle serializers do not keep the streams, handlers or statistics of their last use.
+   *
+   * @param serializer A serializer which is no longer in use.
+   */
+  public void release(JSONSerializer serializer) {
+    serializer.release();
+    this.idle.offer(serializer);
+  }
+
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Statistics collected by serializers.
+ *
+ * <p>Serializers count what they do for each document and add their counts to the statistics
+ * specified with {@link JSONSerializer#setStats(SerializerStats)} at the end of the document,
+ * so the same instance can be shared by any number of serializers.
+ *
+ * <p>The time spent in the serializer is only measured when statistics are collected; the
+ * time spent upstream is the time between the start and end of the document which was not
+ * spent in the serializer, that is parsing or transforming.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class SerializerStats implements SerializerStatsMXBean {
+
+  /**
+   * The kinds of warnings reported by the serializer.
+   */
+  public enum Warning {
+
+    /** An element in a <code>null</code> context or property value. */
+    IGNORED_ELEMENT,
+
+    /** A <code>json:array</code> or <code>json:object</code> without name in an object. */
+    MISSING_NAME,
+
+    /** A <code>json:null</code> as the document element. */
+    ILLEGAL_NULL,
+
+    /** An element in the JSON namespace which is not understood. */
+    UNKNOWN_ELEMENT,
+
+    /** An element mapped to a property with attributes mapped to properties. */
+    MIXED_PROPERTY,
+
+    /** A <code>json:name</code> attribute in an array or document context. */
+    IGNORED_NAME,
+
+    /** A value typed as a number which is not a number. */
+    INVALID_NUMBER,
+
+    /** A value typed as a boolean which is not a boolean. */
+    INVALID_BOOLEAN,
+
+    /** A warning reported by the parser. */
+    PARSER
+
+  };
+
+  // Counters are accessed directly by the serializer which owns the instance for a document
+  long documents;
+  long elements;
+  long attributes;
+  long objects;
+  long arrays;
+  long strings;
+  long numbers;
+  long booleans;
+  long nulls;
+  long bytes;
+  int maxDepth;
+  long serializerNanos;
+  long totalNanos;
+  final long[] warnings = new long[Warning.values().length];
+
+  /**
+   * Creates new statistics with all the counters set to zero.
+   */
+  public SerializerStats() {
+  }
+
+  // Counters
+  // =============================================================================================
+
+  @Override
+  public synchronized long getDocuments() {
+    return this.documents;
+  }
+
+  @Override
+  public synchronized long getElements() {
+    return this.elements;
+  }
+
+  @Override
+  public synchronized long getAttributes() {
+    return this.attributes;
+  }
+
+  @Override
+  public synchronized long getObjects() {
+    return this.objects;
+  }
+
+  @Override
+  public synchronized long getArrays() {
+    return this.arrays;
+  }
+
+  @Override
+  public synchronized long getStrings() {
+    return this.strings;
+  }
+
+  @Override
+  public synchronized long getNumbers() {
+    return this.numbers;
+  }
+
+  @Override
+  public synchronized long getBooleans() {
+    return this.booleans;
+  }
+
+  @Override
+  public synchronized long getNulls() {
+    return this.nulls;
+  }
+
+  @Override
+  public synchronized long getBytesWritten() {
+    return this.bytes;
+  }
+
+  @Override
+  public synchronized int getMaxDepth() {
+    return this.maxDepth;
+  }
+
+  @Override
+  public synchronized long getWarnings() {
+    long total = 0;
+    for (long count : this.warnings) total += count;
+    return total;
+  }
+
+  /**
+   * Returns the number of warnings of the specified kind.
+   *
+   * @param kind The kind of warning
+   *
+   * @return the number of warnings of that kind.
+   */
+  public synchronized long getWarnings(Warning kind) {
+    return this.warnings[kind.ordinal()];
+  }
+
+  @Override
+  public synchronized Map<String, Long> getWarningsByKind() {
+    Map<String, Long> map = new LinkedHashMap<String, Long>();
+    for (Warning kind : Warning.values()) {
+      map.put(kind.name(), this.warnings[kind.ordinal()]);
+    }
+    return map;
+  }
+
+  @Override
+  public synchronized long getSerializerTime() {
+    return TimeUnit.NANOSECONDS.toMillis(this.serializerNanos);
+  }
+
+  @Override
+  public synchronized long getUpstreamTime() {
+    return TimeUnit.NANOSECONDS.toMillis(this.totalNanos - this.serializerNanos);
+  }
+
+  @Override
+  public synchronized void reset() {
+    clear();
+  }
+
+  // JMX
+  // =============================================================================================
+
+  /**
+   * Registers these statistics with the platform MBean server.
+   *
+   * <p>The object name is <code>org.pageseeder.aeson:type=SerializerStats,name=[name]</code>.
+   *
+   * @param name The name distinguishing these statistics from others
+   *
+   * @return the object name under which these statistics were registered.
+   *
+   * @throws JMException If the name is invalid or already registered
+   */
+  public ObjectName register(String name) throws JMException {
+    ObjectName object = new ObjectName("org.pageseeder.aeson:type=SerializerStats,name="+ObjectName.quote(name));
+    ManagementFactory.getPlatformMBeanServer().registerMBean(this, object);
+    return object;
+  }
+
+  // Package-private
+  // =============================================================================================
+
+  /**
+   * Adds the counts of a document to these statistics.
+   *
+   * @param doc The counts for a single document
+   */
+  synchronized void add(SerializerStats doc) {
+    this.documents += doc.documents;
+    this.elements += doc.elements;
+    this.attributes += doc.attributes;
+    this.objects += doc.objects;
+    this.arrays += doc.arrays;
+    this.strings += doc.strings;
+    this.numbers += doc.numbers;
+    this.booleans += doc.booleans;
+    this.nulls += doc.nulls;
+    this.bytes += doc.bytes;
+    this.maxDepth = Math.max(this.maxDepth, doc.maxDepth);
+    this.serializerNanos += doc.serializerNanos;
+    this.totalNanos += doc.totalNanos;
+    for (int i = 0; i < this.warnings.length; i++) {
+      this.warnings[i] += doc.warnings[i];
+    }
+  }
+
+  /**
+   * Sets all the counters to zero.
+   */
+  void clear() {
+    this.documents = 0;
+    this.elements = 0;
+    this.attributes = 0;
+    this.objects = 0;
+    this.arrays = 0;
+    this.strings = 0;
+    this.numbers = 0;
+    this.booleans = 0;
+    this.nulls = 0;
+    this.bytes = 0;
+    this.maxDepth = 0;
+    this.serializerNanos = 0;
+    this.totalNanos = 0;
+    for (int i = 0; i < this.warnings.length; i++) {
+      this.warnings[i] = 0;
+    }
+  }
+
+  @Override
+  public synchronized String toString() {
+    StringBuilder s = new StringBuilder();
+    s.append(this.documents).append(" document(s), ");
+    s.append(this.bytes).append(" bytes, ");
+    s.append(this.elements).append(" elements, ");
+    s.append(this.attributes).append(" attributes, ");
+    s.append(this.objects).append(" objects, ");
+    s.append(this.arrays).append(" arrays, ");
+    s.append(this.strings).append(" strings, ");
+    s.append(this.numbers).append(" numbers, ");
+    s.append(this.booleans).append(" booleans, ");
+    s.append(this.nulls).append(" nulls, ");
+    s.append("max depth ").append(this.maxDepth).append(", ");
+    s.append(getWarnings()).append(" warning(s)");
+    for (Warning kind : Warning.values()) {
+      long count = this.warnings[kind.ordinal()];
+      if (count > 0) s.append(' ').append(kind.name().toLowerCase()).append('=').append(count);
+    }
+    s.append(", serializer ").append(getSerializerTime()).append(" ms");
+    s.append(", upstream ").append(getUpstreamTime()).append(" ms");
+    return s.toString();
+  }
+
+}
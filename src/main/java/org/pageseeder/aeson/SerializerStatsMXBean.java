@@ -0,0 +1,110 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.util.Map;
+
+/**
+ * The management interface of the serializer statistics.
+ *
+ * @see SerializerStats#register(String)
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public interface SerializerStatsMXBean {
+
+  /**
+   * @return the number of documents serialized.
+   */
+  long getDocuments();
+
+  /**
+   * @return the number of elements received by the serializer.
+   */
+  long getElements();
+
+  /**
+   * @return the number of attributes written as properties.
+   */
+  long getAttributes();
+
+  /**
+   * @return the number of objects written.
+   */
+  long getObjects();
+
+  /**
+   * @return the number of arrays written.
+   */
+  long getArrays();
+
+  /**
+   * @return the number of string values written.
+   */
+  long getStrings();
+
+  /**
+   * @return the number of number values written.
+   */
+  long getNumbers();
+
+  /**
+   * @return the number of boolean values written.
+   */
+  long getBooleans();
+
+  /**
+   * @return the number of <code>null</code> values written.
+   */
+  long getNulls();
+
+  /**
+   * @return the number of bytes written.
+   */
+  long getBytesWritten();
+
+  /**
+   * @return the maximum depth of elements in a document.
+   */
+  int getMaxDepth();
+
+  /**
+   * @return the total number of warnings.
+   */
+  long getWarnings();
+
+  /**
+   * @return the number of warnings for each kind of warning.
+   */
+  Map<String, Long> getWarningsByKind();
+
+  /**
+   * @return the time spent in the serializer in milliseconds.
+   */
+  long getSerializerTime();
+
+  /**
+   * @return the time spent upstream of the serializer (parser or transformer) in milliseconds.
+   */
+  long getUpstreamTime();
+
+  /**
+   * Resets all the counters to zero.
+   */
+  void reset();
+
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+/**
+ * A cache of compiled stylesheets.
+ *
+ * <p>Stylesheets are identified by their canonical file path and recompiled only if the file
+ * was modified since it was compiled, that is when its last modified date or its length have
+ * changed. Modules imported or included by a stylesheet are not checked.
+ *
+ * <p>When the cache is full, the least recently used stylesheet is evicted.
+ *
+ * <p>This class is thread-safe.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class TemplatesCache {
+
+  /**
+   * Default maximum number of stylesheets to keep.
+   */
+  public static final int DEFAULT_MAX_SIZE = 32;
+
+  /**
+   * Shared instance.
+   */
+  private static final TemplatesCache DEFAULT = new TemplatesCache(DEFAULT_MAX_SIZE);
+
+  /**
+   * The factory used to compile the stylesheets (not thread-safe).
+   */
+  private final TransformerFactory factory;
+
+  /**
+   * The compiled stylesheets by canonical path in access order.
+   */
+  private final Map<String, Compiled> cache;
+
+  /**
+   * Creates a new cache using the default transformer factory.
+   *
+   * @param maxSize The maximum number of stylesheets to keep.
+   */
+  public TemplatesCache(int maxSize) {
+    this(TransformerFactory.newInstance(), maxSize);
+  }
+
+  /**
+   * Creates a new cache using the specified transformer factory.
+   *
+   * @param factory The factory used to compile the stylesheets.
+   * @param maxSize The maximum number of stylesheets to keep.
+   */
+  public TemplatesCache(TransformerFactory factory, final int maxSize) {
+    if (maxSize < 1) throw new IllegalArgumentException("The maximum size must be positive");
+    this.factory = factory;
+    this.cache = new LinkedHashMap<String, Compiled>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Compiled> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * @return the shared instance of this cache.
+   */
+  public static TemplatesCache getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Returns the compiled stylesheet for the specified file, compiling it only if it is not in
+   * the cache or it was modified since.
+   *
+   * @param stylesheet The XSLT stylesheet file
+   *
+   * @return the corresponding templates
+   *
+   * @throws TransformerConfigurationException If the stylesheet could not be compiled.
+   */
+  public Templates get(File stylesheet) throws TransformerConfigurationException {
+    String key = toKey(stylesheet);
+    long modified = stylesheet.lastModified();
+    long length = stylesheet.length();
+    Compiled entry;
+    synchronized (this.cache) {
+      entry = this.cache.get(key);
+    }
+    if (entry == null || entry.modified != modified || entry.length != length) {
+      // Compile outside the cache lock as this may take a while
+      Templates templates;
+      synchronized (this.factory) {
+        templates = this.factory.newTemplates(new StreamSource(stylesheet));
+      }
+      entry = new Compiled(templates, modified, length);
+      synchronized (this.cache) {
+        this.cache.put(key, entry);
+      }
+    }
+    return entry.templates;
+  }
+
+  /**
+   * Returns a new transformer for the specified stylesheet using the cached templates.
+   *
+   * @param stylesheet The XSLT stylesheet file
+   *
+   * @return a new transformer
+   *
+   * @throws TransformerConfigurationException If the stylesheet could not be compiled.
+   */
+  public Transformer newTransformer(File stylesheet) throws TransformerConfigurationException {
+    return get(stylesheet).newTransformer();
+  }
+
+  /**
+   * Removes the specified stylesheet from the cache.
+   *
+   * @param stylesheet The XSLT stylesheet file
+   */
+  public void remove(File stylesheet) {
+    String key = toKey(stylesheet);
+    synchronized (this.cache) {
+      this.cache.remove(key);
+    }
+  }
+
+  /**
+   * Removes all the stylesheets from the cache.
+   */
+  public void clear() {
+    synchronized (this.cache) {
+      this.cache.clear();
+    }
+  }
+
+  /**
+   * @return the number of stylesheets in the cache.
+   */
+  public int size() {
+    synchronized (this.cache) {
+      return this.cache.size();
+    }
+  }
+
+  /**
+   * Returns the key for the specified file.
+   *
+   * @param file The stylesheet file
+   * @return its canonical path or absolute path if the canonical path cannot be computed.
+   */
+  private static String toKey(File file) {
+    try {
+      return file.getCanonicalPath();
+    } catch (IOException ex) {
+      return file.getAbsolutePath();
+    }
+  }
+
+  /**
+   * A compiled stylesheet and the file information when it was compiled.
+   */
+  private static final class Compiled {
+
+    /** The compiled stylesheet. */
+    private final Templates templates;
+
+    /** Last modified date of the file when compiled. */
+    private final long modified;
+
+    /** Length of the file when compiled. */
+    private final long length;
+
+    /**
+     * @param templates The compiled stylesheet.
+     * @param modified  Last modified date of the file when compiled.
+     * @param length    Length of the file when compiled.
+     */
+    Compiled(Templates templates, long modified, long length) {
+      this.templates = templates;
+      this.modified = modified;
+      this.length = length;
+    }
+  }
+
+}
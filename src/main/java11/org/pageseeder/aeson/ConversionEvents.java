@@ -0,0 +1,141 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import jdk.jfr.EventType;
+
+/**
+ * Emits Java Flight Recorder events for the conversions of a serializer.
+ *
+ * <p>Each method checks whether its event is enabled first, so that nothing is allocated
+ * unless a recording includes the event.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+final class ConversionEvents {
+
+  /** Event types checked before creating events. */
+  private static final EventType DOCUMENT = EventType.getEventType(DocumentEvent.class);
+
+  private static final EventType SLOW_VALUE = EventType.getEventType(SlowValueEvent.class);
+
+  private static final EventType WARNING = EventType.getEventType(WarningEvent.class);
+
+  /**
+   * The event for the current document (may be <code>null</code>).
+   */
+  private DocumentEvent document;
+
+  /**
+   * The event for the current value (may be <code>null</code>).
+   */
+  private SlowValueEvent value;
+
+  /**
+   * Invoked when a document starts.
+   *
+   * @param systemId The system identifier of the document (may be <code>null</code>)
+   */
+  void startDocument(String systemId) {
+    if (DOCUMENT.isEnabled()) {
+      DocumentEvent event = new DocumentEvent();
+      event.systemId = systemId;
+      event.begin();
+      this.document = event;
+    } else {
+      this.document = null;
+    }
+  }
+
+  /**
+   * Invoked when a document ends.
+   *
+   * @param bytes    The number of bytes written for the document
+   * @param elements The number of elements in the document
+   * @param warnings The number of warnings for the document
+   */
+  void endDocument(long bytes, long elements, int warnings) {
+    DocumentEvent event = this.document;
+    if (event != null) {
+      event.end();
+      if (event.shouldCommit()) {
+        event.bytes = bytes;
+        event.elements = elements;
+        event.warnings = warnings;
+        event.commit();
+      }
+      this.document = null;
+    }
+  }
+
+  /**
+   * Invoked when the value of a property starts.
+   */
+  void startValue() {
+    if (SLOW_VALUE.isEnabled()) {
+      SlowValueEvent event = new SlowValueEvent();
+      event.begin();
+      this.value = event;
+    } else {
+      this.value = null;
+    }
+  }
+
+  /**
+   * Invoked when the value of a property ends.
+   *
+   * @param name   The name of the property
+   * @param length The number of characters in the value
+   */
+  void endValue(String name, long length) {
+    SlowValueEvent event = this.value;
+    if (event != null) {
+      event.end();
+      if (event.shouldCommit()) {
+        event.name = name;
+        event.length = length;
+        event.commit();
+      }
+      this.value = null;
+    }
+  }
+
+  /**
+   * Indicates whether warnings are recorded, so that their message must be supplied.
+   *
+   * @return <code>true</code> if warnings are recorded; <code>false</code> otherwise.
+   */
+  boolean isWarningEnabled() {
+    return WARNING.isEnabled();
+  }
+
+  /**
+   * Invoked when the serializer reports a warning.
+   *
+   * @param kind    The kind of warning
+   * @param message The warning message
+   */
+  void warning(String kind, String message) {
+    if (WARNING.isEnabled()) {
+      WarningEvent event = new WarningEvent();
+      event.kind = kind;
+      event.message = message;
+      event.commit();
+    }
+  }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event for the serialization of a document, from the start to the end of
+ * the document.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+@Name("org.pageseeder.aeson.Document")
+@Label("Document Serialization")
+@Category("Aeson")
+@Description("Serialization of an XML document as JSON")
+final class DocumentEvent extends Event {
+
+  @Label("System ID")
+  String systemId;
+
+  @Label("Bytes Written")
+  @DataAmount
+  long bytes;
+
+  @Label("Elements")
+  long elements;
+
+  @Label("Warnings")
+  int warnings;
+
+}
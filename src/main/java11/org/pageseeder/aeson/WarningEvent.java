@@ -0,0 +1,44 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event for a warning reported by the serializer.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+@Name("org.pageseeder.aeson.Warning")
+@Label("Serializer Warning")
+@Category("Aeson")
+@Description("Warning reported by the serializer")
+@StackTrace(false)
+final class WarningEvent extends Event {
+
+  @Label("Kind")
+  String kind;
+
+  @Label("Message")
+  String message;
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ * Tests for the types declared by path.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class AesonMappingTest {
+
+  private static final String NS = " xmlns:json='"+JSONSerializer.NS_URI+"'";
+
+  @Test
+  public void testPaths() throws IOException, SAXException {
+    AesonMapping mapping = mapping("number", "/catalog/product/price quantity product/@id", "boolean", "@available");
+    String xml = "<catalog available='true'>"
+        + "<product id='1' available='false'><price>12</price><quantity>3</quantity></product>"
+        + "<other id='2'><price>5</price><item><quantity>4</quantity></item></other>"
+        + "</catalog>";
+    String expected = "{\"available\":true,"
+        + "\"product\":{\"id\":1,\"available\":false,\"price\":12,\"quantity\":3},"
+        + "\"other\":{\"id\":\"2\",\"price\":{},\"item\":{\"quantity\":4}}}";
+    assertEquals(expected, convert(mapping, xml));
+  }
+
+  @Test
+  public void testWildcards() throws IOException, SAXException {
+    AesonMapping mapping = mapping("number", "item/@* */size", "string", "item/@name", "null", "/root/*/none");
+    String xml = "<root><item a='1' name='2'><size>3</size><none/></item><size>4</size></root>";
+    String expected = "{\"item\":{\"a\":1,\"name\":\"2\",\"size\":3,\"none\":null},\"size\":4}";
+    assertEquals(expected, convert(mapping, xml));
+  }
+
+  @Test
+  public void testJSONElements() throws IOException, SAXException {
+    AesonMapping mapping = mapping("number", "json:array/price");
+    String xml = "<json:array"+NS+"><price>1</price><item><price>2</price></item></json:array>";
+    assertEquals("[1,{\"price\":{}}]", convert(mapping, xml));
+  }
+
+  @Test
+  public void testDocumentTypesFirst() throws IOException, SAXException {
+    AesonMapping mapping = mapping("number", "price @id");
+    String xml = "<root"+NS+" json:string='price id'><item id='1'><price>2</price></item></root>";
+    assertEquals("{\"item\":{\"id\":\"1\",\"price\":\"2\"}}", convert(mapping, xml));
+  }
+
+  @Test
+  public void testManyPatterns() throws IOException, SAXException {
+    StringBuilder patterns = new StringBuilder();
+    for (int i = 0; i < 500; i++) patterns.append(" /root/e").append(i);
+    AesonMapping mapping = mapping("number", patterns.toString());
+    assertEquals("{\"e7\":7,\"e499\":499,\"e500\":{}}", convert(mapping, "<root><e7>7</e7><e499>499</e499><e500/></root>"));
+  }
+
+  @Test
+  public void testInvalidPatterns() {
+    String[] invalid = { "/@id", "/", "a//b", "a/", "a/@", "@a/b", "a@b", "@" };
+    for (String pattern : invalid) {
+      try {
+        mapping("number", pattern);
+        fail("Expected "+pattern+" to be rejected");
+      } catch (IllegalArgumentException ex) {
+        assertTrue(ex.getMessage(), ex.getMessage().endsWith(": "+pattern));
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidType() {
+    mapping("date", "price");
+  }
+
+  /**
+   * Compiles a mapping from pairs of type and patterns.
+   *
+   * @param pairs The types followed by their patterns
+   *
+   * @return the mapping
+   */
+  private static AesonMapping mapping(String... pairs) {
+    Properties properties = new Properties();
+    for (int i = 0; i < pairs.length; i += 2) {
+      properties.setProperty(pairs[i], pairs[i+1]);
+    }
+    return AesonMapping.compile(properties);
+  }
+
+  /**
+   * Serializes the XML using the specified mapping.
+   *
+   * @param mapping The mapping to use
+   * @param xml     The XML to serialize
+   *
+   * @return the JSON output
+   */
+  private static String convert(AesonMapping mapping, String xml) throws IOException, SAXException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JSONSerializer serializer = new JSONSerializer(out);
+    serializer.setMapping(mapping);
+    JSONSerializerTest.parse(serializer, xml);
+    return JSONSerializerTest.toString(out);
+  }
+
+}
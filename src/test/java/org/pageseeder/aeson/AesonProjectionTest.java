@@ -0,0 +1,133 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ * Tests for the projections selecting values with JSON Pointers.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class AesonProjectionTest {
+
+  private static final String NS = " xmlns:json='"+JSONSerializer.NS_URI+"'";
+
+  private static final String PRODUCTS = "<root"+NS+" version='1'>"
+      + "<json:array json:name='products'>"
+      + "<product id='1' price='10'><history first='5'/></product>"
+      + "<product id='2' price='20'><history first='15'/></product>"
+      + "</json:array>"
+      + "<info><name>x</name></info>"
+      + "</root>";
+
+  @Test
+  public void testNone() throws IOException, SAXException {
+    String expected = "{\"version\":\"1\",\"products\":["
+        + "{\"id\":\"1\",\"price\":\"10\",\"history\":{\"first\":\"5\"}},"
+        + "{\"id\":\"2\",\"price\":\"20\",\"history\":{\"first\":\"15\"}}],"
+        + "\"info\":{\"name\":{}}}";
+    assertEquals(expected, convert(pointers(), pointers(), PRODUCTS));
+  }
+
+  @Test
+  public void testInclude() throws IOException, SAXException {
+    assertEquals("{\"version\":\"1\"}", convert(pointers("/version"), pointers(), PRODUCTS));
+    assertEquals("{\"info\":{\"name\":{}}}", convert(pointers("/info"), pointers(), PRODUCTS));
+    assertEquals("{\"products\":[{\"id\":\"1\"},{\"id\":\"2\"}]}", convert(pointers("/products/*/id"), pointers(), PRODUCTS));
+    assertEquals("{\"products\":[{\"price\":\"20\",\"history\":{\"first\":\"15\"}}]}",
+        convert(pointers("/products/1/price", "/products/1/history"), pointers(), PRODUCTS));
+  }
+
+  @Test
+  public void testExclude() throws IOException, SAXException {
+    String expected = "{\"version\":\"1\",\"products\":[{\"id\":\"1\",\"price\":\"10\"},{\"id\":\"2\",\"price\":\"20\"}]}";
+    assertEquals(expected, convert(pointers(), pointers("/products/*/history", "/info"), PRODUCTS));
+    assertEquals("{\"version\":\"1\",\"info\":{\"name\":{}}}", convert(pointers(), pointers("/products"), PRODUCTS));
+  }
+
+  @Test
+  public void testIncludeExclude() throws IOException, SAXException {
+    String expected = "{\"products\":[{\"id\":\"1\",\"history\":{\"first\":\"5\"}},{\"id\":\"2\",\"history\":{\"first\":\"15\"}}]}";
+    assertEquals(expected, convert(pointers("/products"), pointers("/products/*/price"), PRODUCTS));
+  }
+
+  @Test
+  public void testWildcards() throws IOException, SAXException {
+    assertEquals("{\"version\":\"1\",\"products\":[],\"info\":{}}", convert(pointers(), pointers("/*/*"), PRODUCTS));
+    // Objects on the path of an included pointer are kept even if nothing in them matches
+    assertEquals("{\"products\":[{\"history\":{\"first\":\"5\"}},{\"history\":{\"first\":\"15\"}}],\"info\":{\"name\":{}}}",
+        convert(pointers("/*/*/history/first"), pointers(), PRODUCTS));
+  }
+
+  @Test
+  public void testEscapedNames() throws IOException, SAXException {
+    String xml = "<root"+NS+"><json:object json:name='a/b'><x/></json:object><json:object json:name='c~d'/><e/></root>";
+    assertEquals("{\"a/b\":{\"x\":{}},\"c~d\":{}}", convert(pointers("/a~1b", "/c~0d"), pointers(), xml));
+  }
+
+  @Test
+  public void testTypedProperties() throws IOException, SAXException {
+    String xml = "<root"+NS+" json:number='n'><n>1</n><item n='2'><n>3</n></item></root>";
+    assertEquals("{\"item\":{\"n\":2,\"n\":3}}", convert(pointers("/item/n"), pointers(), xml));
+    assertEquals("{\"n\":1,\"item\":{}}", convert(pointers(), pointers("/item/n"), xml));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPointer() {
+    AesonProjection.compile(pointers("products"), pointers());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidEscape() {
+    AesonProjection.compile(pointers(), pointers("/a~2"));
+  }
+
+  /**
+   * @return the specified pointers as a list.
+   */
+  private static List<String> pointers(String... pointers) {
+    return pointers.length > 0? Arrays.asList(pointers) : Collections.<String>emptyList();
+  }
+
+  /**
+   * Serializes the XML using a projection made from the specified pointers.
+   *
+   * @param includes The pointers to include
+   * @param excludes The pointers to exclude
+   * @param xml      The XML to serialize
+   *
+   * @return the JSON output
+   */
+  private static String convert(List<String> includes, List<String> excludes, String xml) throws IOException, SAXException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JSONSerializer serializer = new JSONSerializer(out);
+    serializer.setProjection(AesonProjection.compile(includes, excludes));
+    JSONSerializerTest.parse(serializer, xml);
+    return JSONSerializerTest.toString(out);
+  }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Test;
+
+/**
+ * Tests for the StAX writer producing JSON.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class AesonStreamWriterTest {
+
+  @Test
+  public void testObject() throws XMLStreamException {
+    StringWriter json = new StringWriter();
+    AesonStreamWriter writer = new AesonStreamWriter(json);
+    writer.writeStartDocument();
+    writer.writeStartElement("root");
+    writer.writeAttribute("a", "1");
+    writer.writeEmptyElement("b");
+    writer.writeAttribute("c", "2");
+    writer.writeEndDocument();
+    assertEquals("{\"a\":\"1\",\"b\":{\"c\":\"2\"}}", json.toString());
+  }
+
+  @Test
+  public void testPrefixedNamespace() throws XMLStreamException {
+    StringWriter json = new StringWriter();
+    AesonStreamWriter writer = new AesonStreamWriter(json);
+    writer.writeStartDocument();
+    writer.writeStartElement("json", "array", JSONSerializer.NS_URI);
+    writer.writeNamespace("json", JSONSerializer.NS_URI);
+    writer.writeAttribute("json", JSONSerializer.NS_URI, "number", "n");
+    writer.writeStartElement("n");
+    writer.writeCharacters("12");
+    writer.writeEndElement();
+    writer.writeStartElement(JSONSerializer.NS_URI, "array");
+    writer.writeEndElement();
+    writer.writeEndDocument();
+    assertEquals("[12,[]]", json.toString());
+  }
+
+  @Test
+  public void testDefaultNamespaceDeclaredByElement() throws XMLStreamException {
+    StringWriter json = new StringWriter();
+    AesonStreamWriter writer = new AesonStreamWriter(json);
+    writer.writeStartDocument();
+    writer.writeStartElement("array");
+    writer.writeDefaultNamespace(JSONSerializer.NS_URI);
+    writer.writeEmptyElement("", "item", "");
+    writer.writeAttribute("id", "1");
+    writer.writeEmptyElement("array");
+    writer.writeEndDocument();
+    assertEquals("[{\"id\":\"1\"},[]]", json.toString());
+  }
+
+  @Test
+  public void testDefaultNamespaceOutOfScope() throws XMLStreamException {
+    StringWriter json = new StringWriter();
+    AesonStreamWriter writer = new AesonStreamWriter(json);
+    writer.writeStartDocument();
+    writer.writeStartElement("root");
+    writer.writeStartElement("array");
+    writer.writeDefaultNamespace(JSONSerializer.NS_URI);
+    writer.writeEndElement();
+    writer.writeEmptyElement("array");
+    writer.writeEndDocument();
+    assertEquals("{\"array\":[],\"array\":{}}", json.toString());
+  }
+
+}
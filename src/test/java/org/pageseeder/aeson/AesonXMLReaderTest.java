@@ -0,0 +1,151 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.junit.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Tests for the reader reporting JSON as Aeson XML.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class AesonXMLReaderTest {
+
+  @Test
+  public void testRoundTrip() throws IOException, SAXException {
+    assertRoundTrip("{}");
+    assertRoundTrip("[]");
+    assertRoundTrip("{\"id\":4,\"name\":\"Ali Baba\",\"tags\":[\"a\",null]}");
+    assertRoundTrip("[1,-2.5,1e10,true,false,null,{},[[]]]");
+    assertRoundTrip("{\"a\":{\"b\":{\"c\":[{\"d\":\"\"}]}}}");
+    assertRoundTrip("{\"\":\"empty name\",\"json:name\":\"x\",\"1 2\":\"<&>\"}");
+    assertRoundTrip("[\"\\\"\\\\\\n\\t\\u0001\",\"\u00e9\u4e2d\ud83d\ude00\"]");
+  }
+
+  @Test
+  public void testWhitespaceAndEscapes() throws IOException, SAXException {
+    assertEquals("{\"a\":[1,\"/\u00e9\ud83d\ude00\"]}", convert(" { \"a\" :\n[ 1 ,\t\"\\/\\u00e9\\ud83d\\ude00\" ] }\n"));
+  }
+
+  @Test
+  public void testDeepNesting() throws IOException, SAXException {
+    StringBuilder json = new StringBuilder();
+    for (int i = 0; i < 100; i++) json.append('[');
+    for (int i = 0; i < 100; i++) json.append(']');
+    assertRoundTrip(json.toString());
+  }
+
+  @Test
+  public void testByteStream() throws IOException, SAXException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JSONSerializer serializer = new JSONSerializer(out);
+    AesonXMLReader reader = new AesonXMLReader();
+    reader.setContentHandler(serializer);
+    byte[] json = "[\"\u00e9\"]".getBytes(StandardCharsets.UTF_8);
+    reader.parse(new InputSource(new ByteArrayInputStream(json)));
+    assertEquals("[\"\u00e9\"]", new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testXML() throws TransformerException {
+    Transformer transformer = TransformerFactory.newInstance().newTransformer();
+    transformer.setOutputProperty("omit-xml-declaration", "yes");
+    StringWriter xml = new StringWriter();
+    SAXSource source = new SAXSource(new AesonXMLReader(), new InputSource(new StringReader("{\"id\":4,\"t\":[true]}")));
+    transformer.transform(source, new StreamResult(xml));
+    String expected = "<json:object xmlns:json=\"http://pageseeder.org/JSON\""
+        + " json:string=\"string\" json:number=\"number\" json:boolean=\"boolean\">"
+        + "<number json:name=\"id\">4</number>"
+        + "<json:array json:name=\"t\"><boolean>true</boolean></json:array>"
+        + "</json:object>";
+    assertEquals(expected, xml.toString());
+  }
+
+  @Test
+  public void testErrors() throws IOException {
+    assertError("\"string\"");
+    assertError("12");
+    assertError("{\"a\":1");
+    assertError("{\"a\" 1}");
+    assertError("{a:1}");
+    assertError("[1,]");
+    assertError("[1 2]");
+    assertError("[tru]");
+    assertError("[\"\\x\"]");
+    assertError("[] []");
+  }
+
+  /**
+   * Converts the JSON to Aeson XML events and serializes them back to JSON.
+   *
+   * @param json The JSON to convert
+   *
+   * @return the JSON output
+   */
+  private static String convert(String json) throws IOException, SAXException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    AesonXMLReader reader = new AesonXMLReader();
+    reader.setContentHandler(new JSONSerializer(out));
+    reader.parse(new InputSource(new StringReader(json)));
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Asserts that the specified compact JSON is serialized back as is.
+   *
+   * @param json The JSON to convert
+   */
+  private static void assertRoundTrip(String json) throws IOException, SAXException {
+    assertEquals(json, convert(json));
+  }
+
+  /**
+   * Asserts that the specified JSON is rejected with a parse exception.
+   *
+   * @param json The malformed JSON
+   */
+  private static void assertError(String json) throws IOException {
+    try {
+      convert(json);
+      fail("Expected an error for "+json);
+    } catch (SAXParseException ex) {
+      // Expected
+    } catch (SAXException ex) {
+      fail("Expected a parse exception for "+json+" but got "+ex);
+    }
+  }
+
+}
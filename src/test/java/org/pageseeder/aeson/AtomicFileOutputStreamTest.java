@@ -0,0 +1,108 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for the atomic file output stream.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class AtomicFileOutputStreamTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testReplace() throws IOException {
+    File file = this.folder.newFile("test.json");
+    write(file, "{}");
+    write(file, "{\"a\":1}");
+    assertArrayEquals("{\"a\":1}".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(file.toPath()));
+    assertEquals(1, this.folder.getRoot().list().length);
+  }
+
+  @Test
+  public void testSizeHint() throws IOException {
+    File file = this.folder.newFile("test.json");
+    AtomicFileOutputStream out = new AtomicFileOutputStream(file, 4096);
+    out.write(new byte[] { '[', ']' });
+    out.close();
+    assertEquals(2, file.length());
+  }
+
+  @Test
+  public void testDiscard() throws IOException {
+    File file = this.folder.newFile("test.json");
+    write(file, "{}");
+    AtomicFileOutputStream out = new AtomicFileOutputStream(file, 0);
+    out.write(new byte[] { '[', ']' });
+    out.discard();
+    assertArrayEquals("{}".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(file.toPath()));
+    assertEquals(1, this.folder.getRoot().list().length);
+  }
+
+  @Test
+  public void testReplaceKeepsPermissions() throws IOException {
+    assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+    File file = this.folder.newFile("test.json");
+    Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-----");
+    Files.setPosixFilePermissions(file.toPath(), permissions);
+    write(file, "{}");
+    assertEquals(permissions, Files.getPosixFilePermissions(file.toPath()));
+    permissions = PosixFilePermissions.fromString("rw-rw-r--");
+    Files.setPosixFilePermissions(file.toPath(), permissions);
+    write(file, "{}");
+    assertEquals(permissions, Files.getPosixFilePermissions(file.toPath()));
+  }
+
+  @Test
+  public void testNewFileDefaultPermissions() throws IOException {
+    assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+    Path reference = Files.createFile(this.folder.getRoot().toPath().resolve("reference.json"));
+    File file = new File(this.folder.getRoot(), "test.json");
+    write(file, "{}");
+    assertEquals(Files.getPosixFilePermissions(reference), Files.getPosixFilePermissions(file.toPath()));
+  }
+
+  /**
+   * Writes the specified content to the file.
+   */
+  private static void write(File file, String content) throws IOException {
+    AtomicFileOutputStream out = new AtomicFileOutputStream(file, 64);
+    out.write(content.getBytes(StandardCharsets.UTF_8));
+    out.close();
+  }
+
+}
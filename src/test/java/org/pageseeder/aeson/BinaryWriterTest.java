@@ -0,0 +1,140 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Tests for the encoding of integers by the binary writers.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class BinaryWriterTest {
+
+  /** Long.MAX_VALUE + 1 */
+  private static final String ABOVE_LONG = "9223372036854775808";
+
+  /** 2^64 */
+  private static final String ABOVE_64_BITS = "18446744073709551616";
+
+  @Test
+  public void testCBORLong() throws IOException {
+    assertArrayEquals(bytes(0x1B, 0x7F, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF), cbor("9223372036854775807"));
+    assertArrayEquals(bytes(0x3B, 0x7F, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF), cbor("-9223372036854775808"));
+  }
+
+  @Test
+  public void testCBORAboveLong() throws IOException {
+    assertArrayEquals(bytes(0x1B, 0x80, 0, 0, 0, 0, 0, 0, 0), cbor(ABOVE_LONG));
+    assertArrayEquals(bytes(0x1B, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF), cbor("18446744073709551615"));
+    assertArrayEquals(bytes(0x3B, 0x80, 0, 0, 0, 0, 0, 0, 0), cbor("-9223372036854775809"));
+  }
+
+  @Test
+  public void testCBORBignum() throws IOException {
+    assertArrayEquals(bytes(0xC2, 0x49, 0x01, 0, 0, 0, 0, 0, 0, 0, 0), cbor(ABOVE_64_BITS));
+    assertArrayEquals(bytes(0xC3, 0x49, 0x01, 0, 0, 0, 0, 0, 0, 0, 0), cbor("-18446744073709551617"));
+  }
+
+  @Test
+  public void testCBORLargeBignum() throws IOException {
+    BigInteger value = BigInteger.TEN.pow(50000);
+    byte[] magnitude = value.toByteArray();
+    byte[] cbor = cbor(value.toString());
+    assertEquals(4 + magnitude.length, cbor.length);
+    assertEquals((byte)0xC2, cbor[0]);
+    assertEquals((byte)0x59, cbor[1]);
+    assertEquals(magnitude.length, ((cbor[2] & 0xFF) << 8) | (cbor[3] & 0xFF));
+    assertEquals(value, new BigInteger(1, Arrays.copyOfRange(cbor, 4, cbor.length)));
+  }
+
+  @Test
+  public void testMessagePackAboveLong() throws IOException {
+    assertArrayEquals(bytes(0xCF, 0x80, 0, 0, 0, 0, 0, 0, 0), msgpack(ABOVE_LONG));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void testMessagePackBeyond64Bits() throws IOException {
+    msgpack(ABOVE_64_BITS);
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void testMessagePackBelowLong() throws IOException {
+    msgpack("-9223372036854775809");
+  }
+
+  @Test
+  public void testMessagePackBeyond64BitsAsString() throws IOException, SAXException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JSONSerializer serializer = new JSONSerializer(new MessagePackWriter(out));
+    serializer.setErrorHandler(new DefaultHandler());
+    String xml = "<json:array xmlns:json='"+JSONSerializer.NS_URI+"' json:number='n'><n>"+ABOVE_64_BITS+"</n></json:array>";
+    Aeson.parse(new InputSource(new StringReader(xml)), serializer);
+    byte[] expected = new byte[22];
+    expected[0] = (byte)0x91;
+    expected[1] = (byte)(0xA0 | ABOVE_64_BITS.length());
+    System.arraycopy(ABOVE_64_BITS.getBytes("ASCII"), 0, expected, 2, ABOVE_64_BITS.length());
+    assertArrayEquals(expected, out.toByteArray());
+    assertEquals(1, serializer.getWarningCount());
+  }
+
+  /**
+   * Returns the CBOR encoding of the specified number.
+   */
+  private static byte[] cbor(String number) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CBORWriter writer = new CBORWriter(out);
+    writer.writeNumber(null, number);
+    writer.flush();
+    return out.toByteArray();
+  }
+
+  /**
+   * Returns the MessagePack encoding of the specified number.
+   */
+  private static byte[] msgpack(String number) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    MessagePackWriter writer = new MessagePackWriter(out);
+    writer.writeNumber(null, number);
+    writer.flush();
+    return out.toByteArray();
+  }
+
+  /**
+   * Returns the specified bytes as an array.
+   */
+  private static byte[] bytes(int... values) {
+    byte[] bytes = new byte[values.length];
+    for (int i = 0; i < values.length; i++) {
+      bytes[i] = (byte)values[i];
+    }
+    return bytes;
+  }
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+/**
+ * Tests for the gzip and deflate output streams.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class CompressedOutputStreamTest {
+
+  @Test
+  public void testGzip() throws IOException {
+    for (int level = -1; level <= 9; level++) {
+      byte[] data = data(100000);
+      assertArrayEquals(data, gunzip(compress(CompressedOutputStream.GZIP, level, data)));
+    }
+  }
+
+  @Test
+  public void testDeflate() throws IOException {
+    for (int level = -1; level <= 9; level++) {
+      byte[] data = data(100000);
+      assertArrayEquals(data, inflate(compress(CompressedOutputStream.DEFLATE, level, data)));
+    }
+  }
+
+  @Test
+  public void testEmpty() throws IOException {
+    assertArrayEquals(new byte[0], gunzip(compress(CompressedOutputStream.GZIP, -1, new byte[0])));
+    assertArrayEquals(new byte[0], inflate(compress(CompressedOutputStream.DEFLATE, -1, new byte[0])));
+  }
+
+  @Test
+  public void testSingleBytesAndFlush() throws IOException {
+    byte[] data = "{\"a\":[1,2,3]}".getBytes(StandardCharsets.UTF_8);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CompressedOutputStream gzip = new CompressedOutputStream(out, CompressedOutputStream.GZIP, 6);
+    for (byte b : data) {
+      gzip.write(b);
+      gzip.flush();
+    }
+    gzip.close();
+    assertArrayEquals(data, gunzip(out.toByteArray()));
+  }
+
+  @Test
+  public void testPooledDeflaters() throws IOException {
+    // Interleaved and discarded streams must not affect the deflaters returned to the pool
+    byte[] first = data(70000);
+    byte[] second = data(3000);
+    ByteArrayOutputStream out1 = new ByteArrayOutputStream();
+    ByteArrayOutputStream out2 = new ByteArrayOutputStream();
+    CompressedOutputStream gzip1 = new CompressedOutputStream(out1, CompressedOutputStream.GZIP, 1);
+    CompressedOutputStream gzip2 = new CompressedOutputStream(out2, CompressedOutputStream.GZIP, 9);
+    CompressedOutputStream discarded = new CompressedOutputStream(new ByteArrayOutputStream(), CompressedOutputStream.GZIP, 5);
+    discarded.write(first, 0, 1000);
+    discarded.discard();
+    gzip1.write(first, 0, 30000);
+    gzip2.write(second);
+    gzip1.write(first, 30000, first.length - 30000);
+    gzip2.close();
+    gzip1.close();
+    assertArrayEquals(first, gunzip(out1.toByteArray()));
+    assertArrayEquals(second, gunzip(out2.toByteArray()));
+    for (int i = 0; i < 3; i++) {
+      assertArrayEquals(second, gunzip(compress(CompressedOutputStream.GZIP, i, second)));
+      assertArrayEquals(first, inflate(compress(CompressedOutputStream.DEFLATE, i, first)));
+    }
+  }
+
+  @Test
+  public void testClosed() throws IOException {
+    CompressedOutputStream gzip = new CompressedOutputStream(new ByteArrayOutputStream(), CompressedOutputStream.GZIP, -1);
+    gzip.close();
+    gzip.close();
+    gzip.discard();
+    try {
+      gzip.write(1);
+      fail("Expected writing to a closed stream to fail");
+    } catch (IOException ex) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testInvalid() {
+    try {
+      new CompressedOutputStream(new ByteArrayOutputStream(), "br", -1);
+      fail("Expected an unsupported coding to be rejected");
+    } catch (IllegalArgumentException ex) {
+      // Expected
+    }
+    try {
+      new CompressedOutputStream(new ByteArrayOutputStream(), CompressedOutputStream.GZIP, 10);
+      fail("Expected an invalid level to be rejected");
+    } catch (IllegalArgumentException ex) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testJSONResult() throws IOException, TransformerException {
+    Transformer transformer = TransformerFactory.newInstance().newTransformer();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    String xml = "<root id='1'><item name='\u00e9'/></root>";
+    transformer.transform(new StreamSource(new StringReader(xml)), new JSONResult(out, JSONResult.JSON_MEDIA_TYPE, JSONResult.GZIP_ENCODING, 6));
+    byte[] json = "{\"id\":\"1\",\"item\":{\"name\":\"\u00e9\"}}".getBytes(StandardCharsets.UTF_8);
+    assertArrayEquals(json, gunzip(out.toByteArray()));
+  }
+
+  /**
+   * Returns compressible data of the specified length.
+   */
+  private static byte[] data(int length) {
+    Random random = new Random(length);
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte)('a' + random.nextInt(8));
+    }
+    return data;
+  }
+
+  /**
+   * Compresses the data in a single write.
+   */
+  private static byte[] compress(String encoding, int level, byte[] data) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CompressedOutputStream compressed = new CompressedOutputStream(out, encoding, level);
+    compressed.write(data);
+    compressed.close();
+    return out.toByteArray();
+  }
+
+  /**
+   * Decompresses gzip content.
+   */
+  private static byte[] gunzip(byte[] data) throws IOException {
+    return readAll(new GZIPInputStream(new ByteArrayInputStream(data)));
+  }
+
+  /**
+   * Decompresses zlib content.
+   */
+  private static byte[] inflate(byte[] data) throws IOException {
+    return readAll(new InflaterInputStream(new ByteArrayInputStream(data)));
+  }
+
+  /**
+   * Reads the stream to the end and closes it.
+   */
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buf = new byte[4096];
+    try {
+      int n;
+      while ((n = in.read(buf)) != -1) {
+        out.write(buf, 0, n);
+      }
+    } finally {
+      in.close();
+    }
+    return out.toByteArray();
+  }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Tests for numbers, as validated and normalized by the serializer.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class JSONNumberTest {
+
+  @Test
+  public void testValid() {
+    assertTrue(JSONNumber.isValid("0"));
+    assertTrue(JSONNumber.isValid("-12.5"));
+    assertTrue(JSONNumber.isValid("1e10"));
+    assertFalse(JSONNumber.isValid(" 12.5 "));
+    assertFalse(JSONNumber.isValid("+5"));
+    assertFalse(JSONNumber.isValid("007"));
+    assertFalse(JSONNumber.isValid(".5"));
+    assertFalse(JSONNumber.isValid("5."));
+  }
+
+  @Test
+  public void testNormalize() {
+    assertEquals("12.5", JSONNumber.normalize(" 12.5 "));
+    assertEquals("5", JSONNumber.normalize("+5"));
+    assertEquals("-5", JSONNumber.normalize("-5"));
+    assertEquals("7", JSONNumber.normalize("007"));
+    assertEquals("0.5", JSONNumber.normalize(".5"));
+    assertEquals("5", JSONNumber.normalize("5."));
+    assertEquals("1e5", JSONNumber.normalize("+1E+05"));
+    assertNull(JSONNumber.normalize("five"));
+    assertNull(JSONNumber.normalize("."));
+    assertNull(JSONNumber.normalize(""));
+  }
+
+  @Test
+  public void testPaddedAndSignedByDefault() throws IOException, SAXException {
+    JSONSerializer serializer = new JSONSerializer();
+    assertEquals("{\"a\":12.5,\"b\":5,\"c\":-3,\"d\":7,\"e\":0.5,\"f\":5}", convert(serializer, false));
+    assertEquals(0, serializer.getWarningCount());
+  }
+
+  @Test
+  public void testPaddedAndSignedStrict() throws IOException, SAXException {
+    JSONSerializer serializer = new JSONSerializer();
+    assertEquals("{\"a\":\" 12.5 \",\"b\":\"+5\",\"c\":-3,\"d\":\"007\",\"e\":\".5\",\"f\":\"5.\"}", convert(serializer, true));
+    assertEquals(5, serializer.getWarningCount());
+  }
+
+  /**
+   * Converts a document with numbers in various notations.
+   */
+  private static String convert(JSONSerializer serializer, boolean strict) throws IOException, SAXException {
+    String xml = "<json:object xmlns:json='"+JSONSerializer.NS_URI+"' json:number='a b c d e f'"
+        + " a=' 12.5 ' b='+5' c='-3' d='007' e='.5' f='5.'/>";
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    serializer.reset(out);
+    if (strict) serializer.setNormalizeNumbers(false);
+    serializer.setErrorHandler(new DefaultHandler());
+    Aeson.parse(new InputSource(new StringReader(xml)), serializer);
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+}
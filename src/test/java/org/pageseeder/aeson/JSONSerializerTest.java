@@ -0,0 +1,111 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Tests for the serialization of Aeson XML to JSON.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class JSONSerializerTest {
+
+  /** The namespace declaration for the JSON namespace */
+  private static final String NS = " xmlns:json='"+JSONSerializer.NS_URI+"'";
+
+  @Test
+  public void testLineDelimitedObject() throws IOException, SAXException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JSONSerializer serializer = new JSONSerializer(out);
+    serializer.setLineDelimited(true);
+    parse(serializer, "<root a='1'>\n  <b c='2'/>\n</root>");
+    assertEquals("{\"a\":\"1\",\"b\":{\"c\":\"2\"}}\n", toString(out));
+  }
+
+  @Test
+  public void testLineDelimitedArray() throws IOException, SAXException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JSONSerializer serializer = new JSONSerializer(out);
+    serializer.setLineDelimited(true);
+    String xml = "<json:array"+NS+">\n  <item id='1'/>\n  <item id='2'><json:array json:name='x'/></item>\n</json:array>";
+    parse(serializer, xml);
+    assertEquals("{\"id\":\"1\"}\n{\"id\":\"2\",\"x\":[]}\n", toString(out));
+  }
+
+  @Test
+  public void testStreamedValues() throws IOException, SAXException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JSONSerializer serializer = new JSONSerializer(out);
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 10000; i++) text.append("<&\"\u00e9");
+    String xml = "<root"+NS+" json:string='text' json:number='n'>"
+        + "<text>"+text.toString().replace("&", "&amp;").replace("<", "&lt;")+"</text>"
+        + "<n> 12 </n><text><![CDATA[a]]>b<!-- c -->d</text></root>";
+    parse(serializer, xml);
+    String expected = "{\"text\":\""+text.toString().replace("\"", "\\\"")+"\",\"n\":12,\"text\":\"abd\"}";
+    assertEquals(expected, toString(out));
+  }
+
+  @Test
+  public void testWarningMessages() throws IOException, SAXException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JSONSerializer serializer = new JSONSerializer(out);
+    final List<String> messages = new ArrayList<String>();
+    serializer.setErrorHandler(new DefaultHandler() {
+      @Override
+      public void warning(SAXParseException ex) {
+        messages.add(ex.getMessage());
+      }
+    });
+    String xml = "<root"+NS+" json:boolean='b' b='yes' json:number='n' n='x'><json:foo/></root>";
+    parse(serializer, xml);
+    assertEquals(4, messages.size());
+    assertEquals("Unable to convert attribute 'b' to a boolean", messages.get(0));
+    assertEquals("Unable to convert attribute 'n' to a number", messages.get(1));
+    assertEquals("Attribute json:name must be used to specify array/object name", messages.get(2));
+    assertEquals("Unknown JSON element:foo", messages.get(3));
+  }
+
+  /**
+   * Parses the specified XML into the serializer.
+   */
+  static void parse(JSONSerializer serializer, String xml) throws IOException, SAXException {
+    Aeson.parse(new InputSource(new StringReader(xml)), serializer);
+  }
+
+  /**
+   * Returns the content as UTF-8.
+   */
+  static String toString(ByteArrayOutputStream out) {
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests for the UTF-8 JSON writer.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class JSONWriterTest {
+
+  @Test
+  public void testEscaping() throws IOException {
+    assertEquals("[\"a\\\"b\\\\c\"]", write("a\"b\\c"));
+    assertEquals("[\"\\b\\f\\n\\r\\t\"]", write("\b\f\n\r\t"));
+    assertEquals("[\"\\u0000\\u001f\"]", write("\u0000\u001f"));
+    assertEquals("[\"/\u007f\"]", write("/\u007f"));
+  }
+
+  @Test
+  public void testUTF8() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JSONWriter json = new JSONWriter(out);
+    json.writeStartArray(null);
+    json.writeString(null, "\u00e9\u4e2d\ud83d\ude00");
+    json.writeEnd(false);
+    json.flush();
+    byte[] expected = "[\"\u00e9\u4e2d\ud83d\ude00\"]".getBytes(StandardCharsets.UTF_8);
+    assertEquals(Arrays.toString(expected), Arrays.toString(out.toByteArray()));
+  }
+
+  @Test
+  public void testUnpairedSurrogates() throws IOException {
+    assertEquals("[\"a?b\"]", write("a\ud83db"));
+    assertEquals("[\"a?b\"]", write("a\ude00b"));
+    assertEquals("[\"a?\"]", write("a\ud83d"));
+    assertEquals("[\"??\"]", write("\ude00\ud83d"));
+  }
+
+  @Test
+  public void testStreamedString() throws IOException {
+    char[] ch = "a\"b\ud83d\ude00\u00e9\nc".toCharArray();
+    // Every split, including between the surrogates of a pair
+    for (int split = 0; split <= ch.length; split++) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      JSONWriter json = new JSONWriter(out);
+      json.writeStartObject(null);
+      json.writeStartString("s");
+      json.writeStringChars(ch, 0, split);
+      json.writeStringChars(ch, split, ch.length - split);
+      json.writeEndString();
+      json.writeNull("n");
+      json.writeEnd(true);
+      json.flush();
+      String expected = "{\"s\":\"a\\\"b\ud83d\ude00\u00e9\\nc\",\"n\":null}";
+      assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void testStreamedUnpairedSurrogates() throws IOException {
+    StringWriter out = new StringWriter();
+    JSONWriter json = new JSONWriter(out);
+    json.writeStartArray(null);
+    json.writeStartString(null);
+    json.writeStringChars("a\ud83d".toCharArray(), 0, 2);
+    json.writeStringChars("b\ude00".toCharArray(), 0, 2);
+    json.writeStringChars("\ud83d".toCharArray(), 0, 1);
+    json.writeEndString();
+    json.writeEnd(false);
+    json.flush();
+    assertEquals("[\"a?b??\"]", out.toString());
+  }
+
+  @Test
+  public void testValues() throws IOException {
+    StringWriter out = new StringWriter();
+    JSONWriter json = new JSONWriter(out);
+    json.writeStartObject(null);
+    json.writeNumber("i", 12L);
+    json.writeNumber("d", 1.5);
+    json.writeNumber("s", "-1e3");
+    json.writeBoolean("b", true);
+    json.writeNull("n");
+    json.writeStartArray("a");
+    json.writeStartObject(null);
+    json.writeEnd(true);
+    json.writeString(null, "x");
+    json.writeEnd(false);
+    json.writeEnd(true);
+    json.flush();
+    assertEquals("{\"i\":12,\"d\":1.5,\"s\":-1e3,\"b\":true,\"n\":null,\"a\":[{},\"x\"]}", out.toString());
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void testNonFiniteNumber() throws IOException {
+    JSONWriter json = new JSONWriter(new StringWriter());
+    json.writeStartArray(null);
+    json.writeNumber(null, Double.NaN);
+  }
+
+  @Test
+  public void testNameCache() throws IOException {
+    StringWriter out = new StringWriter();
+    JSONWriter json = new JSONWriter(out);
+    json.writeStartArray(null);
+    for (int i = 0; i < 3; i++) {
+      json.writeStartObject(null);
+      json.writeString("id", "x");
+      json.writeString("n\u00e9\"", "y");
+      json.writeEnd(true);
+    }
+    json.writeEnd(false);
+    json.flush();
+    String item = "{\"id\":\"x\",\"n\u00e9\\\"\":\"y\"}";
+    assertEquals("["+item+","+item+","+item+"]", out.toString());
+  }
+
+  @Test
+  public void testNameCacheCollisions() throws IOException {
+    // More names than slots in the cache, written twice
+    StringWriter out = new StringWriter();
+    JSONWriter json = new JSONWriter(out);
+    StringBuilder expected = new StringBuilder("{");
+    json.writeStartObject(null);
+    for (int i = 0; i < 1024; i++) {
+      String name = "p"+(i % 512);
+      json.writeNumber(name, i);
+      if (i > 0) expected.append(',');
+      expected.append('"').append(name).append("\":").append(i);
+    }
+    json.writeEnd(true);
+    json.flush();
+    expected.append('}');
+    assertEquals(expected.toString(), out.toString());
+  }
+
+  @Test
+  public void testLongName() throws IOException {
+    StringBuilder name = new StringBuilder();
+    for (int i = 0; i < 100; i++) name.append("\"");
+    StringWriter out = new StringWriter();
+    JSONWriter json = new JSONWriter(out);
+    json.writeStartObject(null);
+    json.writeNull(name.toString());
+    json.writeEnd(true);
+    json.flush();
+    assertEquals("{\""+name.toString().replace("\"", "\\\"")+"\":null}", out.toString());
+  }
+
+  @Test
+  public void testLargeValue() throws IOException {
+    // Larger than the buffer with multi-byte characters across its boundary
+    StringBuilder value = new StringBuilder();
+    for (int i = 0; i < JSONWriter.DEFAULT_BUFFER_SIZE; i++) value.append(i % 3 == 0? "\u4e2d" : "\n");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JSONWriter json = new JSONWriter(out);
+    json.writeStartArray(null);
+    json.writeString(null, value.toString());
+    json.writeEnd(false);
+    json.flush();
+    String expected = "[\""+value.toString().replace("\n", "\\n")+"\"]";
+    assertEquals(expected, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    assertEquals(out.size(), json.getBytesWritten());
+  }
+
+  @Test
+  public void testReset() throws IOException {
+    StringWriter first = new StringWriter();
+    JSONWriter json = new JSONWriter(first);
+    json.writeStartObject(null);
+    json.writeString("a", "b");
+    StringWriter second = new StringWriter();
+    json.reset(second);
+    json.writeStartArray(null);
+    json.writeEnd(false);
+    json.flush();
+    assertEquals("", first.toString());
+    assertEquals("[]", second.toString());
+    assertEquals(2, json.getBytesWritten());
+  }
+
+  /**
+   * Writes the specified string as the only value of an array.
+   *
+   * @param value The string value to write
+   *
+   * @return the JSON output
+   */
+  private static String write(String value) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JSONWriter json = new JSONWriter(out);
+    json.writeStartArray(null);
+    json.writeString(null, value);
+    json.writeEnd(false);
+    json.flush();
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+}
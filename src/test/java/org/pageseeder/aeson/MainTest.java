@@ -0,0 +1,129 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pageseeder.aeson.Main.OrderedLines;
+
+/**
+ * Tests for the ordering of line-delimited JSON and the files watched by the command-line.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class MainTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testOrderedLines() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OrderedLines lines = new OrderedLines(out, 4);
+    for (int i = 0; i < 4; i++) lines.acquire();
+    lines.write(2, line("c"));
+    lines.write(1, line("b"));
+    assertEquals("", toString(out));
+    lines.write(0, line("a"));
+    lines.write(3, line("d"));
+    assertEquals("a\nb\nc\nd\n", toString(out));
+  }
+
+  @Test
+  public void testOrderedLinesFailure() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OrderedLines lines = new OrderedLines(out, 4);
+    for (int i = 0; i < 3; i++) lines.acquire();
+    lines.write(2, line("c"));
+    lines.write(0, null);
+    lines.write(1, line("b"));
+    assertEquals("b\nc\n", toString(out));
+  }
+
+  @Test
+  public void testOrderedLinesWindow() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final OrderedLines lines = new OrderedLines(out, 2);
+    lines.acquire();
+    lines.acquire();
+    lines.write(1, line("b"));
+    // The file after the window must wait for the first one to be written
+    Thread submitter = new Thread() {
+      @Override
+      public void run() {
+        try {
+          lines.acquire();
+        } catch (InterruptedException ex) {
+          // Test fails
+        }
+      }
+    };
+    submitter.start();
+    submitter.join(200);
+    assertTrue(submitter.isAlive());
+    lines.write(0, line("a"));
+    submitter.join(5000);
+    assertFalse(submitter.isAlive());
+    assertEquals("a\nb\n", toString(out));
+  }
+
+  @Test
+  public void testSources() throws IOException {
+    File dir = this.folder.newFolder("source");
+    File a = new File(dir, "a.xml");
+    File style = new File(dir, "style.xsl");
+    assertTrue(a.createNewFile());
+    assertTrue(style.createNewFile());
+    assertTrue(new File(dir, ".hidden.xml").createNewFile());
+    assertTrue(new File(dir, "sub").mkdir());
+    FileFilter sources = Main.sources(style.getAbsoluteFile().toPath().normalize());
+    assertEquals(Arrays.asList(a), Arrays.asList(dir.listFiles(sources)));
+    assertTrue(sources.accept(a));
+    assertFalse(sources.accept(new File(dir, "sub/../style.xsl")));
+    assertFalse(sources.accept(new File(dir, "b.xml")));
+    assertTrue(Main.sources(null).accept(style));
+  }
+
+  /**
+   * Returns a buffer containing the specified line.
+   */
+  private static ByteArrayOutputStream line(String s) throws IOException {
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    line.write((s+"\n").getBytes(StandardCharsets.UTF_8));
+    return line;
+  }
+
+  /**
+   * Returns the content as UTF-8.
+   */
+  private static String toString(ByteArrayOutputStream out) {
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+}
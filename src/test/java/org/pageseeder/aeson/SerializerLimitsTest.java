@@ -0,0 +1,148 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+import org.pageseeder.aeson.SerializerLimits.Limit;
+import org.xml.sax.SAXException;
+
+/**
+ * Tests for the limits of the serializer.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class SerializerLimitsTest {
+
+  private static final String NS = " xmlns:json='"+JSONSerializer.NS_URI+"'";
+
+  @Test
+  public void testDepth() throws IOException, SAXException {
+    SerializerLimits limits = new SerializerLimits();
+    limits.setMaxDepth(3);
+    assertEquals("{\"a\":{\"b\":{}}}", convert(limits, "<r><a><b/></a></r>"));
+    assertExceeded(limits, "<r><a><b><c/></b></a></r>", Limit.DEPTH, 3, 1);
+  }
+
+  @Test
+  public void testOutputSize() throws IOException, SAXException {
+    SerializerLimits limits = new SerializerLimits();
+    limits.setMaxOutputSize(20);
+    assertEquals("{\"a\":\"1\",\"b\":\"2\"}", convert(limits, "<r a='1' b='2'/>"));
+    assertExceeded(limits, "<r a='12345678901234567890'>\n<x/></r>", Limit.OUTPUT_SIZE, 20, 2);
+  }
+
+  @Test
+  public void testOutputSizeStreamed() throws IOException, SAXException {
+    SerializerLimits limits = new SerializerLimits();
+    limits.setMaxOutputSize(20);
+    assertExceeded(limits, "<r"+NS+" json:string='s'><s>12345678901234567890</s></r>", Limit.OUTPUT_SIZE, 20, 1);
+  }
+
+  @Test
+  public void testValueLength() throws IOException, SAXException {
+    SerializerLimits limits = new SerializerLimits();
+    limits.setMaxValueLength(5);
+    String types = NS+" json:string='s' json:number='n'";
+    assertEquals("{\"a\":\"12345\",\"s\":\"abcde\",\"n\":12345}", convert(limits, "<r"+types+" a='12345'><s>abcde</s><n>12345</n></r>"));
+    assertExceeded(limits, "<r a='123456'/>", Limit.VALUE_LENGTH, 5, 1);
+    assertExceeded(limits, "<r"+types+">\n<s>abc<![CDATA[def]]></s></r>", Limit.VALUE_LENGTH, 5, 2);
+    assertExceeded(limits, "<r"+types+">\n\n<n>123456</n></r>", Limit.VALUE_LENGTH, 5, 3);
+  }
+
+  @Test
+  public void testAttributes() throws IOException, SAXException {
+    SerializerLimits limits = new SerializerLimits();
+    limits.setMaxAttributes(2);
+    assertEquals("{\"x\":{\"a\":\"1\",\"b\":\"2\"}}", convert(limits, "<r><x a='1' b='2'/></r>"));
+    assertExceeded(limits, "<r><x a='1' b='2' c='3'/></r>", Limit.ATTRIBUTES, 2, 1);
+  }
+
+  @Test
+  public void testNoLimits() throws IOException, SAXException {
+    SerializerLimits limits = new SerializerLimits();
+    limits.setMaxDepth(1);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JSONSerializer serializer = new JSONSerializer(out);
+    serializer.setLimits(limits);
+    serializer.setLimits(null);
+    JSONSerializerTest.parse(serializer, "<r><a><b/></a></r>");
+    assertEquals("{\"a\":{\"b\":{}}}", JSONSerializerTest.toString(out));
+  }
+
+  @Test
+  public void testInvalidLimits() {
+    SerializerLimits limits = new SerializerLimits();
+    try {
+      limits.setMaxDepth(0);
+      fail("Expected a depth of 0 to be rejected");
+    } catch (IllegalArgumentException ex) {
+      // Expected
+    }
+    try {
+      limits.setMaxOutputSize(-1);
+      fail("Expected a negative size to be rejected");
+    } catch (IllegalArgumentException ex) {
+      // Expected
+    }
+    assertEquals(Integer.MAX_VALUE, limits.getMaxDepth());
+    assertEquals(Long.MAX_VALUE, limits.getMaxOutputSize());
+  }
+
+  /**
+   * Serializes the XML with the specified limits.
+   *
+   * @param limits The limits to apply
+   * @param xml    The XML to serialize
+   *
+   * @return the JSON output
+   */
+  private static String convert(SerializerLimits limits, String xml) throws IOException, SAXException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JSONSerializer serializer = new JSONSerializer(out);
+    serializer.setLimits(limits);
+    JSONSerializerTest.parse(serializer, xml);
+    return JSONSerializerTest.toString(out);
+  }
+
+  /**
+   * Asserts that serializing the XML exceeds the specified limit.
+   *
+   * @param limits The limits to apply
+   * @param xml    The XML to serialize
+   * @param limit  The limit expected to be exceeded
+   * @param max    The maximum expected to be reported
+   * @param line   The line at which the limit is expected to be exceeded
+   */
+  private static void assertExceeded(SerializerLimits limits, String xml, Limit limit, long max, int line)
+      throws IOException, SAXException {
+    try {
+      convert(limits, xml);
+      fail("Expected "+limit+" to be exceeded");
+    } catch (LimitExceededException ex) {
+      assertEquals(limit, ex.getLimit());
+      assertEquals(max, ex.getMax());
+      assertEquals(line, ex.getLineNumber());
+    }
+  }
+
+}
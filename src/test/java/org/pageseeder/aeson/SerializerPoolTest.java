@@ -0,0 +1,77 @@
+/*
+ * Copyright 2010-2015 Allette Systems (Australia)
+ * http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.aeson;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Properties;
+
+import org.junit.Test;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Tests for the pool of serializers.
+ *
+ * @author Christophe Lauret
+ * @version 16 October 2026
+ */
+public final class SerializerPoolTest {
+
+  /** A document affected by all the options. */
+  private static final String XML = "<root xmlns:json='"+JSONSerializer.NS_URI+"' json:number='n'"
+      + " n='+1' id='2'><a x='1'/><a x='2'/></root>";
+
+  @Test
+  public void testReleaseClearsOptions() throws IOException, SAXException {
+    SerializerPool pool = new SerializerPool(1);
+
+    // First use with all the options
+    ByteArrayOutputStream first = new ByteArrayOutputStream();
+    JSONSerializer serializer = pool.acquire(first);
+    SerializerStats stats = new SerializerStats();
+    Properties mapping = new Properties();
+    mapping.setProperty("number", "@id");
+    SerializerLimits limits = new SerializerLimits();
+    limits.setMaxDepth(5);
+    serializer.setStats(stats);
+    serializer.setMapping(AesonMapping.compile(mapping));
+    serializer.setProjection(AesonProjection.compile(Collections.<String>emptyList(), Collections.singletonList("/a")));
+    serializer.setLimits(limits);
+    serializer.setNormalizeNumbers(false);
+    serializer.setLineDelimited(true);
+    serializer.setErrorHandler(new DefaultHandler());
+    JSONSerializerTest.parse(serializer, XML);
+    assertEquals("{\"n\":\"+1\",\"id\":2}\n", JSONSerializerTest.toString(first));
+    assertEquals(1, serializer.getWarningCount());
+    pool.release(serializer);
+
+    // Second use without options
+    ByteArrayOutputStream second = new ByteArrayOutputStream();
+    JSONSerializer again = pool.acquire(second);
+    assertSame(serializer, again);
+    assertEquals(0, again.getWarningCount());
+    JSONSerializerTest.parse(again, XML);
+    assertEquals("{\"n\":1,\"id\":\"2\",\"a\":{\"x\":\"1\"},\"a\":{\"x\":\"2\"}}", JSONSerializerTest.toString(second));
+    assertEquals("{\"n\":\"+1\",\"id\":2}\n", JSONSerializerTest.toString(first));
+    assertEquals(1, stats.getDocuments());
+  }
+
+}